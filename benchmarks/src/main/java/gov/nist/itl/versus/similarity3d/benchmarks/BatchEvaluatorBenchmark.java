@@ -0,0 +1,71 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Every histogram measure on one pair at once, through BatchMeasureEvaluator (one shared
+ *					HistogramSweep), as Main evaluates a file pair.
+ */
+
+package gov.nist.itl.versus.similarity3d.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.BatchMeasureEvaluator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BatchEvaluatorBenchmark
+{
+	@Param({ "256", "4096", "65536" })
+	public int bins;
+
+	private BatchMeasureEvaluator evaluator;
+	private VoxelHistogramDescriptor d1, d2;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		String[] names = HistogramMeasureBenchmark.MEASURES;
+		Measure[] all = new Measure[names.length];
+		for (int i=0; i < all.length; i++) all[i] = Volumes.measure(names[i]);
+		evaluator = new BatchMeasureEvaluator(all);
+		d1 = new VoxelHistogramDescriptor(Volumes.histogram(1, bins));
+		d2 = new VoxelHistogramDescriptor(Volumes.histogram(2, bins));
+		d1.getNormalizedHistogram();
+		d2.getNormalizedHistogram();
+	}
+
+	@Benchmark
+	public BatchMeasureEvaluator.Result[] evaluate()
+	{
+		return evaluator.evaluate(d1, d2);
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	DicomImageObjectAdapter.load on a real file, and the same volume mapped back through
+ *					MappedVolumeAdapter (the volume.cache path). The default file is the repository's sample
+ *					CT slice, relative to the benchmarks directory; pass -p file=... to use another.
+ */
+
+package gov.nist.itl.versus.similarity3d.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.DicomImageObjectAdapter;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.MappedVolumeAdapter;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.RawVolumeFile;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DicomLoadBenchmark
+{
+	@Param({ "../data/small_ct_set/1.3.6.1.4.1.9590.100.1.1.342414932842009174.342907622617267.dcm" })
+	public String file;
+
+	private File dicom, raw;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		dicom = new File(file);
+		DicomImageObjectAdapter a = new DicomImageObjectAdapter();
+		a.load(dicom);
+		raw = File.createTempFile("benchmark", RawVolumeFile.SUFFIX);
+		RawVolumeFile.write(raw.getPath(), a, a);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		raw.delete();
+	}
+
+	@Benchmark
+	public DicomImageObjectAdapter loadDicom() throws Exception
+	{
+		DicomImageObjectAdapter a = new DicomImageObjectAdapter();
+		a.load(dicom);
+		return a;
+	}
+
+	@Benchmark
+	public MappedVolumeAdapter loadMapped() throws Exception
+	{
+		MappedVolumeAdapter a = new MappedVolumeAdapter();
+		a.load(raw);
+		return a;
+	}
+}
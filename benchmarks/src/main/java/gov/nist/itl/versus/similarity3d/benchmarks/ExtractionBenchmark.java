@@ -0,0 +1,95 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	The steps from an adapter to the values the measures read: both extractors, the
+ *					whole-volume histogram and its normalization, on synthetic cubes and bin counts.
+ *					DicomLoadBenchmark covers decoding a file.
+ */
+
+package gov.nist.itl.versus.similarity3d.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramBuilder;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
+import gov.nist.itl.versus.similarity3d.comparisons.extract.impl.VoxelHistogramExtractor;
+import gov.nist.itl.versus.similarity3d.comparisons.extract.impl.VoxelToArrayFeatureExtractor;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ExtractionBenchmark
+{
+	@Param({ "32", "64", "128" })
+	public int side;			// cube of side^3 voxels
+
+	@Param({ "256", "4096", "65536" })
+	public int bins;
+
+	private final MathKernels kernels = new MathKernels();
+	private final VoxelToArrayFeatureExtractor arrayExtractor = new VoxelToArrayFeatureExtractor();
+	private final VoxelHistogramExtractor histogramExtractor = new VoxelHistogramExtractor();
+	private Volumes.Volume volume;
+	private HistogramBuilder builder;
+	private double[] histogram;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		volume = Volumes.cube(1, side, Volumes.INTENSITIES, bins);
+		builder = new HistogramBuilder(bins, 0, Volumes.INTENSITIES);
+		histogram = kernels.toPrimitive(Volumes.histogram(1, bins).getHistogram());
+	}
+
+	@Benchmark
+	public VoxelToArrayFeature extractVoxelArray()
+	{
+		return arrayExtractor.extract(volume);
+	}
+
+	@Benchmark
+	public VoxelHistogramDescriptor extractHistogram()
+	{
+		return histogramExtractor.extract(volume);
+	}
+
+	@Benchmark
+	public long[] buildHistogram()
+	{
+		return builder.build(volume.getVoxelBuffer(), side*side);
+	}
+
+	@Benchmark
+	public double[] normalizeHistogram() throws Exception
+	{
+		return kernels.normalizeHistogram(histogram);
+	}
+}
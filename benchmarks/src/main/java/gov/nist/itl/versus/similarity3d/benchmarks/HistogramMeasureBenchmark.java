@@ -0,0 +1,92 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Measure.compare for every histogram measure, at several bin counts. The descriptors are
+ *					built once per trial, so their normalized histograms are cached as in a real run (see
+ *					ExtractionBenchmark.normalizeHistogram for that cost). BatchEvaluatorBenchmark runs the
+ *					same set through one BatchMeasureEvaluator sweep. The measures are those registered in
+ *					META-INF/services (KumarHassebrookPCEMeasure is not).
+ */
+
+package gov.nist.itl.versus.similarity3d.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+import edu.illinois.ncsa.versus.measure.Similarity;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HistogramMeasureBenchmark
+{
+	final static String[] MEASURES = {
+		"AdditiveSymmetricChiSquared", "AvgDifference", "Bhattacharyya", "Canberra", "ChebyshevLInf", "CityBlockL1",
+		"Clark", "Cosine", "CzekanowskiD", "Czekanowski", "DiceD", "Dice", "Divergence", "EuclideanL2", "Fidelity",
+		"Gower", "HarmonicMean", "Hellinger", "InnerProduct", "IntersectionD", "Intersection", "JaccardD", "Jaccard",
+		"Jeffreys", "JensenDifference", "JensenShannon", "KDivergence", "Kulczynski", "KulczynskiS", "KullbackLeibler",
+		"KumarJohnsonDifference", "Lorentzian", "MatusitaD", "Matusita", "Minkowski", "MotykaD",
+		"Motyka", "NeymanChiSquared", "PearsonChiSquared", "ProbabilisticSymmetricChiSquared", "Ruzicka", "Soergel",
+		"Sorensen", "SquaredChiSquared", "SquaredChordD", "SquaredChord", "SquaredEuclidean", "TanejaDifference",
+		"Tanimoto", "Topsoe", "WaveHedges" };
+
+	@Param({
+		"AdditiveSymmetricChiSquared", "AvgDifference", "Bhattacharyya", "Canberra", "ChebyshevLInf", "CityBlockL1",
+		"Clark", "Cosine", "CzekanowskiD", "Czekanowski", "DiceD", "Dice", "Divergence", "EuclideanL2", "Fidelity",
+		"Gower", "HarmonicMean", "Hellinger", "InnerProduct", "IntersectionD", "Intersection", "JaccardD", "Jaccard",
+		"Jeffreys", "JensenDifference", "JensenShannon", "KDivergence", "Kulczynski", "KulczynskiS", "KullbackLeibler",
+		"KumarJohnsonDifference", "Lorentzian", "MatusitaD", "Matusita", "Minkowski", "MotykaD",
+		"Motyka", "NeymanChiSquared", "PearsonChiSquared", "ProbabilisticSymmetricChiSquared", "Ruzicka", "Soergel",
+		"Sorensen", "SquaredChiSquared", "SquaredChordD", "SquaredChord", "SquaredEuclidean", "TanejaDifference",
+		"Tanimoto", "Topsoe", "WaveHedges" })
+	public String measure;
+
+	@Param({ "256", "4096", "65536" })
+	public int bins;
+
+	private Measure m;
+	private VoxelHistogramDescriptor d1, d2;
+
+	@Setup
+	public void setup() throws Exception
+	{
+		m = Volumes.measure(measure);
+		d1 = new VoxelHistogramDescriptor(Volumes.histogram(1, bins));
+		d2 = new VoxelHistogramDescriptor(Volumes.histogram(2, bins));
+		d1.getNormalizedHistogram();
+		d2.getNormalizedHistogram();
+	}
+
+	@Benchmark
+	public Similarity compare() throws Exception
+	{
+		return m.compare(d1, d2);
+	}
+}
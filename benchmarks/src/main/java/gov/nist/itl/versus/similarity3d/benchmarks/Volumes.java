@@ -0,0 +1,97 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Synthetic inputs for the benchmarks, generated from fixed seeds so every run (and every
+ *					fork) measures the same data.
+ */
+
+package gov.nist.itl.versus.similarity3d.benchmarks;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramBuilder;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+
+final class Volumes
+{
+	final static int INTENSITIES = 4096;	// 12 bit CT
+
+	private Volumes() {}
+
+	/*
+	 * Cube of side^3 voxels, each background (0) with probability 1/3, else uniform in 1..values-1.
+	 */
+	static Volume cube(long seed, int side, int values, int bins)
+	{
+		Random r = new Random(seed);
+		float[] v = new float[side*side*side];
+		for (int i=0; i < v.length; i++) v[i] = r.nextInt(3) == 0 ? 0 : 1 + r.nextInt(values - 1);
+		long[] counts = new HistogramBuilder(bins, 0, values, 1).build(FloatBuffer.wrap(v), side*side);
+		return new Volume(v, side, HistogramBuilder.toDouble(counts));
+	}
+
+	/*
+	 * Histogram of bins counts in 1..1000. No bin is empty, so every measure (including the ln ones,
+	 * which raise on empty bins) completes.
+	 */
+	static Volume histogram(long seed, int bins)
+	{
+		Random r = new Random(seed);
+		Double[] h = new Double[bins];
+		for (int i=0; i < bins; i++) h[i] = (double)(1 + r.nextInt(1000));
+		return new Volume(new float[1], 1, h);
+	}
+
+	static Measure measure(String simpleName) throws Exception
+	{
+		return (Measure)Class.forName("gov.nist.itl.versus.similarity3d.comparisons.measure.impl." + simpleName + "Measure").newInstance();
+	}
+
+	// voxels in ImageStack order with a precomputed histogram
+	static final class Volume implements HasVoxelBuffer, HasHistogram
+	{
+		private final float[] v;
+		private final int side;
+		private final Double[] histogram;
+
+		Volume(float[] v, int side, Double[] histogram) {
+			this.v = v;
+			this.side = side;
+			this.histogram = histogram;
+		}
+
+		public int getWidth()  { return side; }
+		public int getHeight() { return side; }
+		public int getDepth()  { return side; }
+		public double getValue(int x, int y, int z) { return v[(z*side + y)*side + x]; }
+		public double[][][] getValues() {
+			double[][][] p = new double[side][side][side];
+			for (int z=0; z < side; z++) for (int y=0; y < side; y++) for (int x=0; x < side; x++) p[z][x][y] = getValue(x,y,z);
+			return p;
+		}
+		public double getRGBPixel(int row, int col, int slice) { return getValue(row,col,slice); }
+		public double[][][] getRGBPixels() { return getValues(); }
+		public FloatBuffer getVoxelBuffer() { return FloatBuffer.wrap(v).asReadOnlyBuffer(); }
+		public double[] getSpacing() { return new double[] { 1, 1, 1 }; }
+		public Double[] getHistogram() { return histogram; }
+		public int getLength() { return histogram.length; }
+		public String getName() { return "Synthetic Volume"; }
+		public List<String> getSupportedMediaTypes() { return new ArrayList<String>(); }
+	}
+}
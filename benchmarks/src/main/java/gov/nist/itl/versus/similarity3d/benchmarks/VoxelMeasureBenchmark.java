@@ -0,0 +1,93 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Every voxel measure on cubes of several sizes. compare() gets fresh VoxelToArrayFeatures
+ *					on each call, so it includes building their masks and labels, as the first comparison of
+ *					a pair does; streamed() compares the same volumes through a VoxelCounter instead.
+ */
+
+package gov.nist.itl.versus.similarity3d.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+import edu.illinois.ncsa.versus.measure.Similarity;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.BatchMeasureEvaluator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class VoxelMeasureBenchmark
+{
+	@Param({ "DiceVoxel", "JaccardVoxel", "TotalErrorRateEvaluation", "TotalErrorRateTest", "RandIndex",
+			 "AdjustedRandIndex", "VoxelSimilarity" })
+	public String measure;
+
+	@Param({ "32", "64", "128" })
+	public int side;			// cube of side^3 voxels
+
+	@Param({ "4" })
+	public int labels;			// distinct voxel values, background included
+
+	private Measure m;
+	private BatchMeasureEvaluator streaming;
+	private Volumes.Volume v1, v2;
+	private VoxelToArrayFeature d1, d2;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception
+	{
+		m = Volumes.measure(measure);
+		streaming = new BatchMeasureEvaluator(new Measure[] { m });
+		v1 = Volumes.cube(1, side, labels, labels);
+		v2 = Volumes.cube(2, side, labels, labels);
+	}
+
+	// a call takes milliseconds, so per-invocation setup does not disturb the timing
+	@Setup(Level.Invocation)
+	public void descriptors()
+	{
+		d1 = new VoxelToArrayFeature(v1);
+		d2 = new VoxelToArrayFeature(v2);
+	}
+
+	@Benchmark
+	public Similarity compare() throws Exception
+	{
+		return m.compare(d1, d2);
+	}
+
+	@Benchmark
+	public BatchMeasureEvaluator.Result[] streamed()
+	{
+		return streaming.evaluateStreaming(v1, v2);
+	}
+}
@@ -0,0 +1,264 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Contingency table of two labelings of the same voxels, reduced to the pair counts the
+ *					Rand indices need: sum over cells, rows and columns of n(n-1)/2, and N(N-1)/2.
+ *					A voxel's label is its value truncated to int, as MathOpsE.pixel_measure_ari_nD indexes
+ *					its table; negative labels are allowed. Cells are counted in one pass, in a dense
+ *					table when the two label ranges are small, otherwise in an open-addressing hash of
+ *					packed (label1, label2) keys, so only occupied cells cost memory.
+ *					A Counter builds the same table incrementally, from two volumes read chunk by chunk.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.nio.FloatBuffer;
+
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.SingularityTreatmentException;
+
+public class ContingencyTable
+{
+	private final static long DENSE_CELLS = 1 << 20;	// largest dense table, in cells
+
+	private final static long MAX_VOXELS = 1L << 32;	// below this every pair count fits a long
+
+	private final long n;
+	private final long cellPairs, rowPairs, colPairs;
+
+	private ContingencyTable(long n, long cellPairs, long rowPairs, long colPairs) {
+		this.n = n;
+		this.cellPairs = cellPairs;
+		this.rowPairs = rowPairs;
+		this.colPairs = colPairs;
+	}
+
+	/*
+	 *  Labels a volume indexed [z][x][y], in the z, x, y order of VoxelToArrayFeature.voxelsToArray().
+	 *  NaN and infinite voxels raise as MathOpsE.chkargs does.
+	 */
+	public static int[] labels(double[][][] values) throws Exception
+	{
+		if ( values == null ) throw new SingularityTreatmentException("ContingencyTable.labels: first argument null value");
+		long n = 0;
+		for (double[][] slice : values)
+			for (double[] column : slice) n += column.length;
+		if ( n > Integer.MAX_VALUE ) throw new MathCompatibilityException("ContingencyTable.labels: volume too large (" + n + " voxels)");
+
+		int[] labels = new int[(int)n];
+		int i = 0;
+		for (double[][] slice : values) {
+			for (double[] column : slice) {
+				for (double v : column) {
+					MathKernels.chkresult("ContingencyTable.labels", v);
+					labels[i++] = (int)v;
+				}
+			}
+		}
+		return labels;
+	}
+
+	/*
+	 *  Labels the w*h*d voxels of a buffer in ImageStack order (see HasVoxelBuffer), in the same z, x, y
+	 *  order, so the labels equal those of the volume VoxelBuffers.toArray() would build.
+	 */
+	public static int[] labels(FloatBuffer voxels, int w, int h, int d) throws Exception
+	{
+		if ( voxels == null ) throw new SingularityTreatmentException("ContingencyTable.labels: first argument null value");
+		long n = (long)w * h * d;
+		if ( n > Integer.MAX_VALUE ) throw new MathCompatibilityException("ContingencyTable.labels: volume too large (" + n + " voxels)");
+
+		int[] labels = new int[(int)n];
+		FloatBuffer b = voxels.duplicate();
+		float[] slice = new float[w*h], columns = new float[w*h];
+		for (int z=0, i=0; z < d; z++) {
+			VoxelBuffers.nextSlice(b, w, h, slice, columns);
+			for (int k=0; k < columns.length; k++) {
+				double v = columns[k];
+				MathKernels.chkresult("ContingencyTable.labels", v);
+				labels[i++] = (int)v;
+			}
+		}
+		return labels;
+	}
+
+	public static ContingencyTable build(int[] labels1, int[] labels2) throws Exception
+	{
+		if ( labels1 == null ) throw new SingularityTreatmentException("ContingencyTable.build: first argument null value");
+		if ( labels2 == null ) throw new SingularityTreatmentException("ContingencyTable.build: second argument null value");
+		if ( labels1.length != labels2.length )
+			throw new MathCompatibilityException("ContingencyTable.build: lengths differ (" + labels1.length + " vs " + labels2.length + ")");
+		int n = labels1.length;
+		if ( n == 0 ) throw new SingularityTreatmentException("ContingencyTable.build: empty labelings");
+
+		int min1 = Integer.MAX_VALUE, max1 = Integer.MIN_VALUE, min2 = Integer.MAX_VALUE, max2 = Integer.MIN_VALUE;
+		for (int i=0; i < n; i++) {
+			int a = labels1[i], b = labels2[i];
+			if ( a < min1 ) min1 = a;
+			if ( a > max1 ) max1 = a;
+			if ( b < min2 ) min2 = b;
+			if ( b > max2 ) max2 = b;
+		}
+		long range1 = (long)max1 - min1 + 1;
+		long range2 = (long)max2 - min2 + 1;
+
+		Counts rows = counts(range1), cols = counts(range2), cells;
+		if ( range1 <= DENSE_CELLS / range2 ) {
+			cells = new DenseCounts((int)(range1 * range2));
+			for (int i=0; i < n; i++) {
+				long a = (long)labels1[i] - min1, b = (long)labels2[i] - min2;
+				rows.inc(a);
+				cols.inc(b);
+				cells.inc(a * range2 + b);
+			}
+		}
+		else {
+			cells = new HashCounts();
+			for (int i=0; i < n; i++) {
+				long a = (long)labels1[i] - min1, b = (long)labels2[i] - min2;
+				rows.inc(a);
+				cols.inc(b);
+				cells.inc((a << 32) | b);		// a, b < 2^32
+			}
+		}
+		return new ContingencyTable(n, cells.pairs(), rows.pairs(), cols.pairs());
+	}
+
+	public long size()       { return n; }						// N, voxels counted
+	public long pairs()      { return pairCount(n); }				// N(N-1)/2
+	public long cellPairs()  { return cellPairs; }				// sum over cells of n_ij(n_ij-1)/2
+	public long rowPairs()   { return rowPairs; }				// sum over labels1 of a_i(a_i-1)/2
+	public long colPairs()   { return colPairs; }				// sum over labels2 of b_j(b_j-1)/2
+
+	// c(c-1)/2 without overflow for c < 2^32
+	private static long pairCount(long c) {
+		return ( (c & 1) == 0 ) ? (c >> 1) * (c - 1) : c * ((c - 1) >> 1);
+	}
+
+	/*
+	 *  Counts a table from two labelings fed in pieces, e.g. slice by slice from two voxel buffers, in
+	 *  O(distinct labels + occupied cells) memory. Labels 0..DENSE-1 are counted in arrays, others in
+	 *  hashes. Gives the same table as build() on the concatenated labels. Not thread-safe.
+	 */
+	public static class Counter
+	{
+		private final static int DENSE = 64;
+
+		private final long[] rows = new long[DENSE], cols = new long[DENSE], cells = new long[DENSE * DENSE];
+		private final HashCounts rowsHash = new HashCounts(), colsHash = new HashCounts(), cellsHash = new HashCounts();
+		private long n;
+
+		/*
+		 *  Adds voxels 0..length-1 of two pieces, labelled as labels() does.
+		 */
+		public void add(float[] values1, float[] values2, int length) throws Exception
+		{
+			for (int i=0; i < length; i++) {
+				float v1 = values1[i], v2 = values2[i];
+				MathKernels.chkresult("ContingencyTable.Counter.add", v1);
+				MathKernels.chkresult("ContingencyTable.Counter.add", v2);
+				int a = (int)v1, b = (int)v2;
+				boolean denseA = a >= 0 && a < DENSE, denseB = b >= 0 && b < DENSE;
+				if ( denseA ) rows[a]++; else rowsHash.inc(a);
+				if ( denseB ) cols[b]++; else colsHash.inc(b);
+				if ( denseA && denseB ) cells[a * DENSE + b]++;
+				else cellsHash.inc(((long)a << 32) | (b & 0xffffffffL));
+			}
+			n += length;
+		}
+
+		public long size() { return n; }
+
+		public ContingencyTable table() throws Exception
+		{
+			if ( n == 0 ) throw new SingularityTreatmentException("ContingencyTable.Counter: empty labelings");
+			if ( n >= MAX_VOXELS ) throw new MathCompatibilityException("ContingencyTable.Counter: volume too large (" + n + " voxels)");
+			return new ContingencyTable(n, sum(cells) + cellsHash.pairs(), sum(rows) + rowsHash.pairs(), sum(cols) + colsHash.pairs());
+		}
+
+		private static long sum(long[] counts) {
+			long s = 0;
+			for (long c : counts) s += pairCount(c);
+			return s;
+		}
+	}
+
+	private static Counts counts(long range) {
+		return range <= DENSE_CELLS ? new DenseCounts((int)range) : new HashCounts();
+	}
+
+	private static abstract class Counts {
+		abstract void inc(long key);
+		abstract long pairs();		// sum of c(c-1)/2 over the counts c
+	}
+
+	private final static class DenseCounts extends Counts {
+		private final int[] c;
+		DenseCounts(int size) { c = new int[size]; }
+		void inc(long key) { c[(int)key]++; }
+		long pairs() {
+			long s = 0;
+			for (int v : c) s += (long)v * (v - 1);
+			return s / 2;
+		}
+	}
+
+	// linear probing; a key is present when its count is > 0
+	private final static class HashCounts extends Counts {
+		private long[] keys = new long[1024];
+		private long[] vals = new long[1024];
+		private int size;
+
+		void inc(long key) {
+			int mask = keys.length - 1;
+			int i = slot(key, mask);
+			while ( vals[i] != 0 && keys[i] != key ) i = (i + 1) & mask;
+			if ( vals[i] == 0 ) {
+				keys[i] = key;
+				if ( ++size > keys.length >>> 1 ) {
+					vals[i] = 1;
+					grow();
+					return;
+				}
+			}
+			vals[i]++;
+		}
+
+		private void grow() {
+			long[] k = keys;
+			long[] v = vals;
+			keys = new long[k.length << 1];
+			vals = new long[v.length << 1];
+			int mask = keys.length - 1;
+			for (int j=0; j < k.length; j++) {
+				if ( v[j] == 0 ) continue;
+				int i = slot(k[j], mask);
+				while ( vals[i] != 0 ) i = (i + 1) & mask;
+				keys[i] = k[j];
+				vals[i] = v[j];
+			}
+		}
+
+		private static int slot(long key, int mask) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int)(h ^ (h >>> 32)) & mask;
+		}
+
+		long pairs() {
+			long s = 0;
+			for (long v : vals) s += pairCount(v);
+			return s;
+		}
+	}
+}
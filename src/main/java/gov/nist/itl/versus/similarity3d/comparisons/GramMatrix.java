@@ -0,0 +1,240 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Dot products of every row histogram with every column histogram of one block of an
+ *					all-pairs run, sum P*Q and, for FIDELITY, sum sqrt P * sqrt Q. The histograms are packed
+ *					into row-major matrices and multiplied as A * B^T, walking the bins in strips of K_BLOCK
+ *					so a strip of every column stays in cache while the rows pass over it, and finishing a
+ *					2 x 2 block of products per step. INNER_PRODUCT, COSINE and FIDELITY are then finished
+ *					from a pair's products and the histograms' norms, with the kernels' special cases (0/0).
+ *
+ *					A product sums its terms strip by strip, not in the kernel's order, and FIDELITY takes
+ *					sqrt(P*Q) as sqrt P * sqrt Q. On normalized histograms every term is non-negative, so
+ *					nothing cancels: values are within about 2 * len * 2^-53 relative of the kernels', a few
+ *					units in the last place in practice, near-identical histograms included. Equations that
+ *					subtract such a sum from the norms or from 1 (EUCLIDEAN, SQUARED_EUCLIDEAN, HELLINGER,
+ *					MATUSITA, and BHATTACHARYYA through -ln) would lose their leading digits on close
+ *					histograms, so they are not finished here but left to the exact sweep. Every product is
+ *					formed in the same order whatever the block, so (i,j) and (j,i) get the same bits. Rows
+ *					or columns without a histogram (null transforms, or a length other than the first one's)
+ *					are left out: has() is false for their pairs.
+ *					A GramMatrix is immutable once built and may be shared.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.util.Arrays;
+
+public class GramMatrix
+{
+	// products
+	public final static int PRODUCTS	= 1;	// sum P*Q
+	public final static int ROOTS		= 2;	// sum sqrt P * sqrt Q
+
+	public final static int K_BLOCK = 512;		// bins per strip
+
+	private final int row0, col0, rows, cols, terms;
+	private final boolean[] rowOk, colOk;
+	private final double[] pq, roots;			// rows x cols, row-major
+	private final double[] rowNorm, colNorm;	// sum P^2, by the same product
+	private final long nanos;
+
+	public static boolean supports(HistogramEquation eq) {
+		return termsOf(eq) != 0;
+	}
+
+	// union of the products needed by the equations that can be finished from a GramMatrix
+	public static int termsFor(HistogramEquation[] equations) {
+		int t = 0;
+		for (HistogramEquation e : equations) {
+			if ( e != null ) t |= termsOf(e);
+		}
+		return t;
+	}
+
+	private static int termsOf(HistogramEquation eq) {
+		switch (eq) {
+			case INNER_PRODUCT:
+			case COSINE:				return PRODUCTS;
+			case FIDELITY:				return ROOTS;
+			default:					return 0;		// not a sum of non-negative terms, see above
+		}
+	}
+
+	/*
+	 *  Products of the histograms of rows row0.. and columns col0.. (indices into the whole run). When
+	 *  rows and cols are the same array the block is multiplied by itself.
+	 */
+	public GramMatrix(HistogramTransforms[] rowHistograms, int row0, HistogramTransforms[] colHistograms, int col0, int terms)
+	{
+		long start = System.nanoTime();
+		this.row0 = row0;
+		this.col0 = col0;
+		this.rows = rowHistograms.length;
+		this.cols = colHistograms.length;
+		this.terms = terms;
+		boolean same = rowHistograms == colHistograms;
+
+		int len = -1;
+		for (HistogramTransforms t : rowHistograms) if ( len < 0 && t != null ) len = t.getLength();
+		for (HistogramTransforms t : colHistograms) if ( len < 0 && t != null ) len = t.getLength();
+		len = Math.max(len, 0);
+		this.rowOk = available(rowHistograms, len);
+		this.colOk = same ? rowOk : available(colHistograms, len);
+
+		double[] a = pack(rowHistograms, rowOk, len, false);
+		double[] b = same ? a : pack(colHistograms, colOk, len, false);
+		this.rowNorm = norms(a, rows, len);
+		this.colNorm = same ? rowNorm : norms(b, cols, len);
+		this.pq = new double[rows * cols];
+		if ( (terms & PRODUCTS) != 0 ) multiplyTransposed(a, rows, b, cols, len, pq);
+
+		if ( (terms & ROOTS) != 0 ) {
+			a = pack(rowHistograms, rowOk, len, true);
+			b = same ? a : pack(colHistograms, colOk, len, true);
+			this.roots = new double[rows * cols];
+			multiplyTransposed(a, rows, b, cols, len, roots);
+		}
+		else
+			this.roots = null;
+		this.nanos = System.nanoTime() - start;
+	}
+
+	public int getTerms()  { return terms; }
+	public long getNanos() { return nanos; }			// time taken to build the block
+	public int getPairs()  { return rows * cols; }
+
+	// true when the products of the pair (i,j), or of (j,i), are in this block
+	public boolean has(int i, int j) {
+		return at(i, j) >= 0 || at(j, i) >= 0;
+	}
+
+	// true when eq can be finished from this block
+	public boolean covers(HistogramEquation eq) {
+		int t = termsOf(eq);
+		return t != 0 && (terms & t) == t;
+	}
+
+	/*
+	 *  Finishes one equation for the pair (i,j) from the products, as the matching kernel would.
+	 */
+	public double value(MathKernels k, HistogramEquation eq, int i, int j) throws Exception
+	{
+		int at = at(i, j);
+		boolean transposed = at < 0;
+		if ( transposed ) at = at(j, i);
+		if ( at < 0 || !covers(eq) )
+			throw new IllegalStateException("GramMatrix: no products for " + eq + " of (" + i + "," + j + ")");
+		int r = transposed ? j - row0 : i - row0;
+		int c = transposed ? i - col0 : j - col0;
+		double nP = transposed ? colNorm[c] : rowNorm[r], nQ = transposed ? rowNorm[r] : colNorm[c];
+
+		double d;
+		switch (eq) {
+			case INNER_PRODUCT:		d = pq[at]; break;
+			case COSINE:			d = k.div(pq[at], k.mult(k.sqrt(nP), k.sqrt(nQ))); break;
+			case FIDELITY:			d = roots[at]; break;
+			default:
+				throw new IllegalStateException("Unhandled histogram equation " + eq);
+		}
+		if ( MeasureStatus.of(d) != MeasureStatus.OK ) k.check("GramMatrix." + eq, d);
+		return d;
+	}
+
+	// index of (i,j) in the products, or -1
+	private int at(int i, int j) {
+		int r = i - row0, c = j - col0;
+		if ( r < 0 || r >= rows || c < 0 || c >= cols || !rowOk[r] || !colOk[c] ) return -1;
+		return r * cols + c;
+	}
+
+	private static boolean[] available(HistogramTransforms[] h, int len) {
+		boolean[] ok = new boolean[h.length];
+		for (int i=0; i < h.length; i++) ok[i] = h[i] != null && h[i].getLength() == len;
+		return ok;
+	}
+
+	// one histogram (or its square roots) per row; rows left out stay 0
+	private static double[] pack(HistogramTransforms[] h, boolean[] ok, int len, boolean roots) {
+		double[] m = new double[h.length * len];
+		for (int i=0; i < h.length; i++) {
+			if ( !ok[i] ) continue;
+			double[] p = h[i].getHistogram();
+			double[] sq = roots ? h[i].sqrt() : null;
+			for (int k=0; k < len; k++) m[i * len + k] = !roots ? p[k] : sq != null ? sq[k] : Math.sqrt(p[k]);
+		}
+		return m;
+	}
+
+	private static double[] norms(double[] a, int rows, int len) {
+		double[] n = new double[rows];
+		for (int i=0; i < rows; i++) n[i] = dot(a, i * len, a, i * len, len);
+		return n;
+	}
+
+	/*
+	 *  One product in the order multiplyTransposed forms it: a sum per strip, the strips added in turn.
+	 */
+	static double dot(double[] a, int ao, double[] b, int bo, int len) {
+		double c = 0d;
+		for (int k0=0; k0 < len; k0 += K_BLOCK) {
+			int k1 = Math.min(len, k0 + K_BLOCK);
+			double s = 0d;
+			for (int k=k0; k < k1; k++) s += a[ao + k] * b[bo + k];
+			c += s;
+		}
+		return c;
+	}
+
+	/*
+	 *  C[i*cols + j] = sum over k of A[i*len + k] * B[j*len + k], for row-major A (rows x len) and
+	 *  B (cols x len). Each strip of K_BLOCK bins is summed on its own and added to C, as in dot().
+	 */
+	static void multiplyTransposed(double[] A, int rows, double[] B, int cols, int len, double[] C)
+	{
+		Arrays.fill(C, 0, rows * cols, 0d);
+		for (int k0=0; k0 < len; k0 += K_BLOCK) {
+			int k1 = Math.min(len, k0 + K_BLOCK);
+			for (int i=0; i < rows; i += 2) {
+				int a0 = i * len, a1 = a0 + len;
+				boolean two = i + 1 < rows;
+				for (int j=0; j < cols; j += 2) {
+					int b0 = j * len, b1 = b0 + len;
+					if ( two && j + 1 < cols ) {
+						double s00 = 0d, s01 = 0d, s10 = 0d, s11 = 0d;
+						for (int k=k0; k < k1; k++) {
+							double x0 = A[a0 + k], x1 = A[a1 + k], y0 = B[b0 + k], y1 = B[b1 + k];
+							s00 += x0 * y0;
+							s01 += x0 * y1;
+							s10 += x1 * y0;
+							s11 += x1 * y1;
+						}
+						C[i * cols + j]           += s00;
+						C[i * cols + j + 1]       += s01;
+						C[(i + 1) * cols + j]     += s10;
+						C[(i + 1) * cols + j + 1] += s11;
+					}
+					else {
+						for (int r=i; r < Math.min(i + 2, rows); r++)
+						for (int c=j; c < Math.min(j + 2, cols); c++) {
+							double s = 0d;
+							for (int k=k0; k < k1; k++) s += A[r * len + k] * B[c * len + k];
+							C[r * cols + c] += s;
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Histogram of a whole volume, counted in one pass over its flat voxel buffer into a long[].
+ *					bins equal-width bins cover [min, max); voxels below min count in the first bin, voxels at
+ *					or above max in the last, NaN voxels are skipped. A linear calibration (value =
+ *					intercept + slope * raw, e.g. a DICOM rescale to Hounsfield units) can be applied on the
+ *					fly, so min and max may be given in calibrated units, signed or not.
+ *
+ *					The slices are split into contiguous runs, up to threads of them; the calling thread counts
+ *					the first and the others go to one pool of daemon threads, as many as there are cores,
+ *					shared by every builder, so concurrent builds (e.g. from all-pairs workers) queue on it
+ *					instead of each starting threads of its own. Each run is counted into its own long[] and
+ *					the partial histograms are summed at the end, so the counts do not depend on the number
+ *					of threads. Small volumes use fewer runs, down to one, counted on the calling thread.
+ *					A HistogramBuilder holds only its configuration and may be shared.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class HistogramBuilder
+{
+	private final static int MIN_VOXELS_PER_THREAD = 1 << 20;
+
+	private static ExecutorService pool;		// shared by every build, see pool()
+
+	private final int bins;
+	private final double min, max;
+	private final int threads;
+
+	public HistogramBuilder(int bins, double min, double max)
+	{
+		this(bins, min, max, Runtime.getRuntime().availableProcessors());
+	}
+
+	public HistogramBuilder(int bins, double min, double max, int threads)
+	{
+		if ( bins < 1 )    throw new IllegalArgumentException("bins must be >= 1: " + bins);
+		if ( !(min < max) || Double.isInfinite(min) || Double.isInfinite(max) )
+			throw new IllegalArgumentException("invalid histogram range [" + min + ", " + max + ")");
+		if ( threads < 1 ) throw new IllegalArgumentException("threads must be >= 1: " + threads);
+		this.bins = bins;
+		this.min = min;
+		this.max = max;
+		this.threads = threads;
+	}
+
+	public int getBins()    { return bins; }
+	public double getMin()  { return min; }
+	public double getMax()  { return max; }
+	public int getThreads() { return threads; }		// runs one build is split into, at most
+
+	/*
+	 * Counts the uncalibrated voxels of a buffer holding whole slices of sliceSize voxels, from its position
+	 * to its limit. The buffer's position is not changed.
+	 */
+	public long[] build(FloatBuffer voxels, int sliceSize)
+	{
+		return build(voxels, sliceSize, 0.0d, 1.0d);
+	}
+
+	public long[] build(FloatBuffer voxels, int sliceSize, double intercept, double slope)
+	{
+		if ( sliceSize < 1 ) throw new IllegalArgumentException("sliceSize must be >= 1: " + sliceSize);
+		if ( voxels.remaining() % sliceSize != 0 )
+			throw new IllegalArgumentException("buffer does not hold whole slices: " + voxels.remaining() + " voxels, slice " + sliceSize);
+
+		// bin = floor((intercept + slope * raw - min) * bins / (max - min)), folded into raw * scale + offset
+		double width = (max - min) / bins;
+		double scale  = slope / width;
+		double offset = (intercept - min) / width;
+
+		int slices = voxels.remaining() / sliceSize;
+		int k = (int)Math.min(Math.min(threads, slices), Math.max(1L, (long)voxels.remaining() / MIN_VOXELS_PER_THREAD));
+		if ( k <= 1 )
+			return new Run(voxels.duplicate(), sliceSize, slices, scale, offset).call();
+
+		List<Future<long[]>> parts = new ArrayList<Future<long[]>>(k - 1);
+		try {
+			Run[] runs = new Run[k];
+			int start = voxels.position();
+			for (int t=0; t < k; t++) {
+				int z0 = (int)((long)slices * t / k), z1 = (int)((long)slices * (t+1) / k);
+				FloatBuffer run = voxels.duplicate();
+				run.position(start + z0 * sliceSize);
+				runs[t] = new Run(run, sliceSize, z1 - z0, scale, offset);
+			}
+			ExecutorService pool = pool();
+			for (int t=1; t < k; t++) parts.add(pool.submit(runs[t]));
+			long[] counts = runs[0].call();
+			for (Future<long[]> f : parts) {
+				long[] part = f.get();
+				for (int i=0; i < bins; i++) counts[i] += part[i];
+			}
+			return counts;
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("HistogramBuilder.build: interrupted", e);
+		}
+		catch(ExecutionException e) {
+			throw new IllegalStateException("HistogramBuilder.build: " + e.getCause(), e.getCause());
+		}
+		finally {
+			for (Future<long[]> f : parts) f.cancel(true);		// no-op once done
+		}
+	}
+
+	// created on first use; its threads are daemons, so it never keeps the JVM alive
+	private static synchronized ExecutorService pool()
+	{
+		if ( pool == null ) {
+			pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "HistogramBuilder");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return pool;
+	}
+
+	/*
+	 * Boxes counts for HasHistogram.getHistogram().
+	 */
+	public static Double[] toDouble(long[] counts)
+	{
+		Double[] a = new Double[counts.length];
+		for (int i=0; i < counts.length; i++) a[i] = Double.valueOf(counts[i]);
+		return a;
+	}
+
+	// one thread's run of slices, read a slice at a time
+	private final class Run implements Callable<long[]> {
+		private final FloatBuffer voxels;
+		private final int sliceSize, slices;
+		private final double scale, offset;
+
+		Run(FloatBuffer voxels, int sliceSize, int slices, double scale, double offset) {
+			this.voxels = voxels;
+			this.sliceSize = sliceSize;
+			this.slices = slices;
+			this.scale = scale;
+			this.offset = offset;
+		}
+
+		public long[] call() {
+			long[] counts = new long[bins];
+			int last = bins - 1;
+			float[] slice = new float[sliceSize];
+			for (int z=0; z < slices; z++) {
+				voxels.get(slice);
+				for (float v : slice) {
+					if ( v != v ) continue;		// NaN
+					double b = v * scale + offset;
+					counts[ b < 0 ? 0 : b >= bins ? last : (int)b ]++;
+				}
+			}
+			return counts;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Names each two-histogram equation of MathOpsE/MathKernels, together with the groups of
+ *					per-bin terms a HistogramSweep must accumulate to finish it.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+public enum HistogramEquation
+{
+	EUCLIDEAN							(HistogramSweep.BASIC),
+	CITY_BLOCK							(HistogramSweep.BASIC),
+	MINKOWSKI							(HistogramSweep.BASIC),
+	CHEBYSHEV							(HistogramSweep.BASIC),
+	SORENSEN							(HistogramSweep.BASIC),
+	GOWER								(HistogramSweep.BASIC),
+	SOERGEL								(HistogramSweep.BASIC),
+	KULCZYNSKI							(HistogramSweep.BASIC),
+	CANBERRA							(HistogramSweep.RATIOS),
+	LORENTZIAN							(HistogramSweep.LOGS),
+	INTERSECTION_IS						(HistogramSweep.BASIC),
+	INTERSECTION_DNONIS					(HistogramSweep.BASIC),
+	INTERSECTION_DNONIS2				(HistogramSweep.BASIC),
+	WAVE_HEDGES							(HistogramSweep.RATIOS),
+	WAVE_HEDGES_DWH						(HistogramSweep.RATIOS),
+	CZEKANOWSKI							(HistogramSweep.BASIC),
+	CZEKANOWSKI_DCZE					(HistogramSweep.BASIC),
+	CZEKANOWSKI_DCZE2					(HistogramSweep.BASIC),
+	MOTYKA								(HistogramSweep.BASIC),
+	MOTYKA_DMOT							(HistogramSweep.BASIC),
+	MOTYKA_DMOT2						(HistogramSweep.BASIC),
+	KULCZYNSKI_S						(HistogramSweep.BASIC),
+	KULCZYNSKI_S2						(HistogramSweep.BASIC),
+	RUZICKA								(HistogramSweep.BASIC),
+	TANIMOTO							(HistogramSweep.BASIC),
+	TANIMOTO2							(HistogramSweep.BASIC),
+	INNER_PRODUCT						(HistogramSweep.BASIC),
+	HARMONIC_MEAN						(HistogramSweep.RATIOS),
+	COSINE								(HistogramSweep.BASIC),
+	KUMAR_HASSEBROOK_PCE				(HistogramSweep.BASIC),
+	JACCARD								(HistogramSweep.BASIC),
+	JACCARD_DJAC1						(HistogramSweep.BASIC),
+	JACCARD_DJAC2						(HistogramSweep.BASIC),
+	DICE								(HistogramSweep.BASIC),
+	DICE_DDICE1							(HistogramSweep.BASIC),
+	DICE_DDICE2							(HistogramSweep.BASIC),
+	FIDELITY							(HistogramSweep.ROOTS),
+	BHATTACHARYYA						(HistogramSweep.ROOTS),
+	HELLINGER							(HistogramSweep.ROOTS),
+	HELLINGER_DH2						(HistogramSweep.ROOTS),
+	MATUSITA							(HistogramSweep.ROOTS),
+	MATUSITA_DM2						(HistogramSweep.ROOTS),
+	SQUARED_CHORD						(HistogramSweep.ROOTS),
+	SQUARED_CHORD_SSQC1					(HistogramSweep.ROOTS),
+	SQUARED_CHORD_SSQC2					(HistogramSweep.ROOTS),
+	SQUARED_EUCLIDEAN					(HistogramSweep.BASIC),
+	PEARSON_CHISQUARED					(HistogramSweep.RATIOS),
+	NEYMAN_CHISQUARED					(HistogramSweep.RATIOS),
+	SQUARED_CHISQUARED					(HistogramSweep.RATIOS),
+	PROBABILISTIC_SYMMETRIC_CHISQUARED	(HistogramSweep.RATIOS),
+	DIVERGENCE							(HistogramSweep.RATIOS),
+	CLARK								(HistogramSweep.RATIOS),
+	ADDITIVE_SYMMETRIC_CHISQUARED		(HistogramSweep.RATIOS),
+	KULLBACK_LEIBLER					(HistogramSweep.LOGS),
+	JEFFREYS							(HistogramSweep.LOGS),
+	K_DIVERGENCE						(HistogramSweep.LOGS),
+	TOPSOE								(HistogramSweep.LOGS),
+	JENSEN_SHANNON						(HistogramSweep.LOGS),
+	JENSEN_DIFFERENCE					(HistogramSweep.LOGS),
+	TANEJA_DIFFERENCE					(HistogramSweep.LOGS | HistogramSweep.ROOTS),
+	KUMAR_JOHNSON_DIFFERENCE			(HistogramSweep.POWERS),
+	AVG_DIFFERENCE						(HistogramSweep.AVG);
+
+	private final int terms;
+
+	private HistogramEquation(int terms) {
+		this.terms = terms | HistogramSweep.BASIC;
+	}
+
+	// bit set of HistogramSweep term groups needed to finish this equation
+	public int getTerms() {
+		return terms;
+	}
+
+	/*
+	 *  Evaluates this equation on its own, through the matching MathKernels method.
+	 */
+	public double compute(MathKernels k, double[] P, double[] Q) throws Exception
+	{
+		switch (this) {
+			case EUCLIDEAN:								return k.histogram_measure_euclidean(P,Q);
+			case CITY_BLOCK:							return k.histogram_measure_city_block(P,Q);
+			case MINKOWSKI:								return k.histogram_measure_minkowski(P,Q);
+			case CHEBYSHEV:								return k.histogram_measure_chebyshev(P,Q);
+			case SORENSEN:								return k.histogram_measure_sorensen(P,Q);
+			case GOWER:									return k.histogram_measure_gower(P,Q);
+			case SOERGEL:								return k.histogram_measure_soergel(P,Q);
+			case KULCZYNSKI:							return k.histogram_measure_kulczynski(P,Q);
+			case CANBERRA:								return k.histogram_measure_canberra(P,Q);
+			case LORENTZIAN:							return k.histogram_measure_lorentzian(P,Q);
+			case INTERSECTION_IS:						return k.histogram_measure_intersection_IS(P,Q);
+			case INTERSECTION_DNONIS:					return k.histogram_measure_intersection_dNonIS(P,Q);
+			case INTERSECTION_DNONIS2:					return k.histogram_measure_intersection_dNonIS2(P,Q);
+			case WAVE_HEDGES:							return k.histogram_measure_wave_hedges(P,Q);
+			case WAVE_HEDGES_DWH:						return k.histogram_measure_wave_hedges_dWH(P,Q);
+			case CZEKANOWSKI:							return k.histogram_measure_czekanowski(P,Q);
+			case CZEKANOWSKI_DCZE:						return k.histogram_measure_czekanowski_dCze(P,Q);
+			case CZEKANOWSKI_DCZE2:						return k.histogram_measure_czekanowski_dCze2(P,Q);
+			case MOTYKA:								return k.histogram_measure_motyka(P,Q);
+			case MOTYKA_DMOT:							return k.histogram_measure_motyka_dMot(P,Q);
+			case MOTYKA_DMOT2:							return k.histogram_measure_motyka_dMot2(P,Q);
+			case KULCZYNSKI_S:							return k.histogram_measure_kulczynski_s(P,Q);
+			case KULCZYNSKI_S2:							return k.histogram_measure_kulczynski_s2(P,Q);
+			case RUZICKA:								return k.histogram_measure_ruzicka(P,Q);
+			case TANIMOTO:								return k.histogram_measure_tanimoto(P,Q);
+			case TANIMOTO2:								return k.histogram_measure_tanimoto2(P,Q);
+			case INNER_PRODUCT:							return k.histogram_measure_inner_product(P,Q);
+			case HARMONIC_MEAN:							return k.histogram_measure_harmonic_mean(P,Q);
+			case COSINE:								return k.histogram_measure_cosine(P,Q);
+			case KUMAR_HASSEBROOK_PCE:					return k.histogram_measure_kumar_hassebrook_pce(P,Q);
+			case JACCARD:								return k.histogram_measure_jaccard(P,Q);
+			case JACCARD_DJAC1:							return k.histogram_measure_jaccard_dJac1(P,Q);
+			case JACCARD_DJAC2:							return k.histogram_measure_jaccard_dJac2(P,Q);
+			case DICE:									return k.histogram_measure_dice(P,Q);
+			case DICE_DDICE1:							return k.histogram_measure_dice_dDice1(P,Q);
+			case DICE_DDICE2:							return k.histogram_measure_dice_dDice2(P,Q);
+			case FIDELITY:								return k.histogram_measure_fidelity(P,Q);
+			case BHATTACHARYYA:							return k.histogram_measure_bhattacharyya(P,Q);
+			case HELLINGER:								return k.histogram_measure_hellinger(P,Q);
+			case HELLINGER_DH2:							return k.histogram_measure_hellinger_dH2(P,Q);
+			case MATUSITA:								return k.histogram_measure_matusita(P,Q);
+			case MATUSITA_DM2:							return k.histogram_measure_matusita_dM2(P,Q);
+			case SQUARED_CHORD:							return k.histogram_measure_squared_chord(P,Q);
+			case SQUARED_CHORD_SSQC1:					return k.histogram_measure_squared_chord_Ssqc1(P,Q);
+			case SQUARED_CHORD_SSQC2:					return k.histogram_measure_squared_chord_Ssqc2(P,Q);
+			case SQUARED_EUCLIDEAN:						return k.histogram_measure_squared_euclidean(P,Q);
+			case PEARSON_CHISQUARED:					return k.histogram_measure_pearson_chiSquared(P,Q);
+			case NEYMAN_CHISQUARED:						return k.histogram_measure_neyman_chiSquared(P,Q);
+			case SQUARED_CHISQUARED:					return k.histogram_measure_squared_chiSquared(P,Q);
+			case PROBABILISTIC_SYMMETRIC_CHISQUARED:	return k.histogram_measure_probabilistic_symmetric_chiSquared(P,Q);
+			case DIVERGENCE:							return k.histogram_measure_divergence(P,Q);
+			case CLARK:									return k.histogram_measure_clark(P,Q);
+			case ADDITIVE_SYMMETRIC_CHISQUARED:			return k.histogram_measure_additive_symmetric_chiSquared(P,Q);
+			case KULLBACK_LEIBLER:						return k.histogram_measure_kullback_leibler(P,Q);
+			case JEFFREYS:								return k.histogram_measure_jeffreys(P,Q);
+			case K_DIVERGENCE:							return k.histogram_measure_k_divergence(P,Q);
+			case TOPSOE:								return k.histogram_measure_topsoe(P,Q);
+			case JENSEN_SHANNON:						return k.histogram_measure_jensen_shannon(P,Q);
+			case JENSEN_DIFFERENCE:						return k.histogram_measure_jensen_difference(P,Q);
+			case TANEJA_DIFFERENCE:						return k.histogram_measure_taneja_difference(P,Q);
+			case KUMAR_JOHNSON_DIFFERENCE:				return k.histogram_measure_kumar_johnson_difference(P,Q);
+			case AVG_DIFFERENCE:						return k.histogram_measure_avg_difference(P,Q);
+			default:
+				throw new IllegalStateException("Unhandled histogram equation " + this);
+		}
+	}
+}
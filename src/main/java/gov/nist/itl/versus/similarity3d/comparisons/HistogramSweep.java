@@ -0,0 +1,480 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Accumulates, in one walk over two normalized histograms, every summation term used by the
+ *					HistogramEquation set. Shared sub-expressions (P-Q, |P-Q|, P+Q, min, max, P*Q, sqrt(P*Q),
+ *					the ln terms) are formed once per bin and fed to all accumulators that use them. Each term is
+ *					formed and summed exactly as in the matching MathKernels method, so value() is bit-identical
+ *					to calling that kernel.
+ *
+ *					Only the term groups requested in sweep() are accumulated; asking value() for an equation
+ *					whose groups were not swept is an error. A term that raises in some bin (e.g. a ln term
+ *					summing -MAX_VALUE twice on empty bins) only stops its own accumulator: value() then
+ *					re-runs the matching kernel for the equations that use it, so they report the kernel's own
+ *					exception while the rest are still finished from the sweep. A HistogramSweep holds the
+ *					state of one pair and is not thread-safe.
+ *
+ *					Swept from two HistogramTransforms, the per-histogram terms (sqrt P, P ln P, sum P,
+ *					sum P^2) are read from them instead of being formed for every pair, still bit-identically.
+ *					An inexact sweep also takes p ln(p/q) as p (ln p - ln q), x/q as x * (1/q) and
+ *					sqrt(P*Q) as sqrt P * sqrt Q from the cached ln P, 1/P and sqrt P, saving the logs of
+ *					Kullback-Leibler and Jeffreys and the square roots of the fidelity family. Those terms
+ *					then differ from the kernels' by a few units in the last place per bin, and their sums
+ *					by a few ulps of 1, not of the value: near-identical histograms lose most relative
+ *					accuracy in the values left after cancellation (Kullback-Leibler, Taneja, the fidelity
+ *					family), and Hellinger and Matusita, the square roots of 1 - sum sqrt(P*Q), can be off
+ *					by up to about 5e-8 absolute on identical histograms.
+ *
+ *					When the two histograms are mostly empty (non-empty bins of both together fewer than
+ *					SPARSE_DENSITY times the two lengths), the sweep merge-joins their SparseHistograms and
+ *					visits only bins where either is non-empty, in ascending order. Every accumulated term is
+ *					exactly 0 on an empty/empty bin (0/0 = 0, 0 ln 0 = 0), so the sums are unchanged, except
+ *					for 1 - min/max (WAVE_HEDGES_DWH), sqrt(P*Q) - 1 (SQUARED_CHORD_SSQC2) and the AVG pass:
+ *					those equations are finished by their own kernels over the dense histograms.
+ *
+ *					Swept with a quiet MathKernels, a failing term stops its accumulator on the shared
+ *					MeasureStatus.Failure instead of a new exception, and value() raises that Failure for the
+ *					equations that then fail, so a pair with many empty bins builds no exceptions at all.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+
+public class HistogramSweep
+{
+	// term groups
+	public final static int BASIC	= 1;	// sums of P, Q, P+Q, |P-Q|, (P-Q)^2, |P-Q|^3, min, max, P*Q, P^2, Q^2; max |P-Q|
+	public final static int RATIOS	= 2;	// per-bin quotients (canberra, wave hedges, chi-squared family, ...)
+	public final static int ROOTS	= 4;	// sqrt(P*Q) and (sqrt P - sqrt Q)^2
+	public final static int LOGS	= 8;	// ln and (a ln b) terms
+	public final static int POWERS	= 16;	// (P*Q)^(3/2)
+	public final static int AVG		= 32;	// second pass: sum(|P-Q| + max|P-Q|)
+
+	public final static double SPARSE_DENSITY = 0.5;	// largest mean share of non-empty bins walked sparsely
+
+	// accumulators that raised during the sweep
+	private final static long F_CB = 1L,       F_WH = 1L << 1,  F_WHD = 1L << 2,  F_HM = 1L << 3,  F_PE = 1L << 4;
+	private final static long F_NE = 1L << 5,  F_SC = 1L << 6,  F_DV = 1L << 7,   F_CL = 1L << 8,  F_AS = 1L << 9;
+	private final static long F_R  = 1L << 10, F_CH = 1L << 11, F_S2 = 1L << 12;
+	private final static long F_LO = 1L << 13, F_KL = 1L << 14, F_JE = 1L << 15,  F_JP = 1L << 16, F_JQ = 1L << 17;
+	private final static long F_TO = 1L << 18, F_JD = 1L << 19, F_TA = 1L << 20;
+	private final static long F_KJ = 1L << 21, F_AV = 1L << 22;
+
+	private final MathKernels k;
+	private final boolean exact;	// false: per-pair terms may be rebuilt from cached transforms (see above)
+
+	private int terms;
+	private int len;
+	private long failed;
+	private double[] P, Q;
+
+	// BASIC
+	private double sumP, sumQ, sumPlusQ, sumAbsDiff, sumSqDiff, sumCubeAbsDiff, maxAbsDiff;
+	private double sumMin, sumMax, sumMaxMinusMin, sumPQ, sumPP, sumQQ;
+	// RATIOS
+	private double canberra, waveHedges, waveHedgesDWH, harmonic, pearson, neyman, squaredChi, divergence, clark, additiveSym;
+	// ROOTS
+	private double sumSqrtPQ, chord, ssqc2;
+	// LOGS
+	private double lorentzian, kullbackLeibler, jeffreys, jsP, jsQ, topsoe, jensenDifference, taneja;
+	// POWERS
+	private double kumarJohnson;
+	// AVG
+	private double avgDifference;
+
+	public HistogramSweep(MathKernels k) {
+		this(k, true);
+	}
+
+	public HistogramSweep(MathKernels k, boolean exact) {
+		this.k = k;
+		this.exact = exact;
+	}
+
+	public HistogramSweep() {
+		this(new MathKernels());
+	}
+
+	// union of the term groups needed by the given equations
+	public static int termsFor(HistogramEquation[] equations) {
+		int t = BASIC;
+		for (HistogramEquation e : equations) {
+			if ( e != null ) t |= e.getTerms();
+		}
+		return t;
+	}
+
+	/*
+	 *  Walks P and Q once (twice when AVG is requested), accumulating the requested term groups.
+	 *  P and Q are expected to be normalized histograms of the same length.
+	 */
+	public void sweep(double[] P, double[] Q, int terms) throws Exception
+	{
+		sweep(P, Q, terms, null, null);
+	}
+
+	/*
+	 *  As sweep(double[], double[], int), over the transforms' histograms, reading their cached terms.
+	 */
+	public void sweep(HistogramTransforms P, HistogramTransforms Q, int terms) throws Exception
+	{
+		sweep(P.getHistogram(), Q.getHistogram(), terms, P, Q);
+	}
+
+	private void sweep(double[] P, double[] Q, int terms, HistogramTransforms tp, HistogramTransforms tq) throws Exception
+	{
+		k.chkinputs("HistogramSweep.sweep",P,Q);
+		this.terms = terms | BASIC;
+		this.len = P.length;
+		this.failed = 0L;
+		this.P = P;
+		this.Q = Q;
+
+		boolean ratios = (terms & RATIOS) != 0;
+		boolean roots  = (terms & ROOTS) != 0;
+		boolean logs   = (terms & LOGS) != 0;
+		boolean powers = (terms & POWERS) != 0;
+		double e = powers ? k.div(3.0d, 2.0d) : 0d;
+
+		// cached per-histogram terms; null where not available
+		double[] sumsP = null, sumsQ = null, sqP = null, sqQ = null, alP = null, alQ = null;
+		double[] lnP = null, lnQ = null, rcP = null, rcQ = null;
+		if ( tp != null && tq != null ) {
+			sumsP = tp.sums();		sumsQ = tq.sums();
+			if ( sumsP == null || sumsQ == null ) sumsP = sumsQ = null;
+			if ( roots ) {
+				sqP = tp.sqrt();	sqQ = tq.sqrt();
+				if ( sqP == null || sqQ == null ) sqP = sqQ = null;
+			}
+			if ( logs ) {
+				alP = tp.aLnA();	alQ = tq.aLnA();
+				if ( alP == null || alQ == null ) alP = alQ = null;
+			}
+			if ( !exact && logs )   { lnP = tp.ln();			lnQ = tq.ln(); }
+			if ( !exact && ratios ) { rcP = tp.reciprocal();	rcQ = tq.reciprocal(); }
+		}
+		boolean cachedSums = sumsP != null;
+		boolean fastRoots  = !exact && sqP != null;
+
+		// sparse walk: the non-empty bins of either histogram, by merge-join
+		SparseHistogram spP = null, spQ = null;
+		if ( tp != null && tq != null ) {
+			spP = tp.sparse();	spQ = tq.sparse();
+			if ( spP.size() + spQ.size() >= SPARSE_DENSITY * 2 * len ) spP = spQ = null;
+		}
+
+		double sP=0d, sQ=0d, sS=0d, sAD=0d, sD2=0d, sAD3=0d, mAD=0d;
+		double sMn=0d, sMx=0d, sMxMn=0d, sPQ=0d, sPP=0d, sQQ=0d;
+		double cb=0d, wh=0d, whd=0d, hm=0d, pe=0d, ne=0d, sc=0d, dv=0d, cl=0d, as=0d;
+		double sR=0d, ch=0d, s2=0d;
+		double lo=0d, kl=0d, je=0d, jp=0d, jq=0d, to=0d, jd=0d, ta=0d;
+		double kj=0d;
+
+		for (int n=0, a=0, b=0; ; n++) {
+			int i;
+			double p, q;
+			if ( spP == null ) {
+				if ( n == len ) break;
+				i = n;
+				p = P[i];
+				q = Q[i];
+			}
+			else {
+				int ia = ( a < spP.index.length ) ? spP.index[a] : len;
+				int ib = ( b < spQ.index.length ) ? spQ.index[b] : len;
+				i = Math.min(ia, ib);
+				if ( i == len ) break;
+				p = ( ia == i ) ? spP.value[a++] : 0d;
+				q = ( ib == i ) ? spQ.value[b++] : 0d;
+			}
+			double d  = k.sub(p,q);
+			double ad = k.abs(d);
+			double s  = k.add(p,q);
+			double mn = k.min(p,q);
+			double mx = k.max(p,q);
+			double pq = k.mult(p,q);
+			double d2 = k.square(d);			// == square(|P-Q|)
+
+			// BASIC
+			if ( !cachedSums ) {
+				sP  = k.accumulate(sP, p);
+				sQ  = k.accumulate(sQ, q);
+			}
+			sS    = k.accumulate(sS, s);
+			sAD   = k.accumulate(sAD, ad);
+			sD2   = k.accumulate(sD2, d2);
+			sAD3  = k.accumulate(sAD3, k.cube(ad));
+			mAD   = (n == 0) ? ad : k.max(ad, mAD);
+			sMn   = k.accumulate(sMn, mn);
+			sMx   = k.accumulate(sMx, mx);
+			sMxMn = k.accumulate(sMxMn, k.sub(mx, mn));
+			sPQ   = k.accumulate(sPQ, pq);
+			if ( !cachedSums ) {
+				sPP = k.accumulate(sPP, k.square(p));
+				sQQ = k.accumulate(sQQ, k.square(q));
+			}
+
+			if ( ratios ) {
+				if ( (failed & F_CB) == 0 )  try { cb  = acc(cb, k.div(ad, s)); }                       catch(Exception x) { failed |= F_CB; }
+				if ( (failed & F_WH) == 0 )  try { wh  = acc(wh, k.div(ad, mx)); }                      catch(Exception x) { failed |= F_WH; }
+				if ( (failed & F_WHD) == 0 ) try { whd = acc(whd, k.sub(1.0d, k.div(mn, mx))); }        catch(Exception x) { failed |= F_WHD; }
+				if ( (failed & F_HM) == 0 )  try { hm  = acc(hm, k.div(pq, s)); }                       catch(Exception x) { failed |= F_HM; }
+				if ( (failed & F_PE) == 0 )  try { pe  = acc(pe, rcQ != null ? divBy(d2, q, rcQ[i]) : k.div(d2, q)); } catch(Exception x) { failed |= F_PE; }
+				if ( (failed & F_NE) == 0 )  try { ne  = acc(ne, rcP != null ? divBy(d2, p, rcP[i]) : k.div(d2, p)); } catch(Exception x) { failed |= F_NE; }
+				if ( (failed & F_SC) == 0 )  try { sc  = acc(sc, k.div(d2, s)); }                       catch(Exception x) { failed |= F_SC; }
+				if ( (failed & F_DV) == 0 )  try { dv  = acc(dv, k.div(d2, k.square(s))); }            catch(Exception x) { failed |= F_DV; }
+				if ( (failed & F_CL) == 0 )  try { cl  = acc(cl, k.square(k.div(ad, s))); }            catch(Exception x) { failed |= F_CL; }
+				if ( (failed & F_AS) == 0 )  try { as  = acc(as, k.div(k.mult(d2, s), pq)); }           catch(Exception x) { failed |= F_AS; }
+			}
+
+			double sqpq = 0d;
+			if ( roots ) {
+				try { sqpq = fastRoots ? k.mult(sqP[i], sqQ[i]) : k.sqrt(pq); }                         catch(Exception x) { failed |= F_R | F_S2 | F_TA; }
+				if ( (failed & F_R) == 0 )   try { sR  = acc(sR, sqpq); }                               catch(Exception x) { failed |= F_R; }
+				if ( (failed & F_CH) == 0 )  try { ch  = acc(ch, k.square(sqP != null ? k.sub(sqP[i], sqQ[i]) : k.sub(k.sqrt(p), k.sqrt(q)))); } catch(Exception x) { failed |= F_CH; }
+				if ( (failed & F_S2) == 0 )  try { s2  = acc(s2, k.sub(sqpq, 1.0d)); }                  catch(Exception x) { failed |= F_S2; }
+			}
+
+			if ( logs ) {
+				double lp = 0d, lq = 0d;
+				try { lp = k.a_Ln_b(p, k.div(k.mult(2.0d,p), s)); }                                     catch(Exception x) { failed |= F_JP | F_TO; }
+				try { lq = k.a_Ln_b(q, k.div(k.mult(2.0d,q), s)); }                                     catch(Exception x) { failed |= F_JQ | F_TO; }
+				if ( (failed & F_LO) == 0 )  try { lo  = acc(lo, k.ln(k.add(1d, ad))); }               catch(Exception x) { failed |= F_LO; }
+				if ( (failed & F_KL) == 0 )  try { kl  = acc(kl, lnP != null ? aLnRatio(p, p, q, lnP[i], lnQ[i]) : k.a_Ln_b(p, k.div(p,q))); } catch(Exception x) { failed |= F_KL; }
+				if ( (failed & F_JE) == 0 )  try { je  = acc(je, lnP != null ? aLnRatio(d, p, q, lnP[i], lnQ[i]) : k.a_Ln_b(d, k.div(p,q))); } catch(Exception x) { failed |= F_JE; }
+				if ( (failed & F_JP) == 0 )  try { jp  = acc(jp, lp); }                                 catch(Exception x) { failed |= F_JP; }
+				if ( (failed & F_JQ) == 0 )  try { jq  = acc(jq, lq); }                                 catch(Exception x) { failed |= F_JQ; }
+				if ( (failed & F_TO) == 0 )  try { to  = acc(to, k.add(lp, lq)); }                      catch(Exception x) { failed |= F_TO; }
+				if ( (failed & F_JD) == 0 )  try {
+					double m = k.div(s, 2.0d);
+					double self = alP != null ? k.add(alP[i], alQ[i]) : k.add(k.a_Ln_b(p,p), k.a_Ln_b(q,q));
+					jd = acc(jd, k.sub(k.div(self, 2.0d), k.a_Ln_b(m, m)));
+				} catch(Exception x) { failed |= F_JD; }
+				if ( roots && (failed & F_TA) == 0 ) try {
+					ta = acc(ta, k.a_Ln_b(k.div(s, 2.0d), k.div(s, k.mult(2.0d, sqpq))));
+				} catch(Exception x) { failed |= F_TA; }
+			}
+
+			if ( powers && (failed & F_KJ) == 0 ) try {
+				double bottom = k.mult(2.0d, k.pow(pq, e));
+				double top    = k.square(k.sub(k.square(p), k.square(q)));
+				kj = acc(kj, k.div(top, bottom));
+			} catch(Exception x) { failed |= F_KJ; }
+		}
+
+		sumP = cachedSums ? sumsP[0] : MathKernels.total(sP);
+		sumQ = cachedSums ? sumsQ[0] : MathKernels.total(sQ);
+		sumPlusQ = MathKernels.total(sS);				sumAbsDiff = MathKernels.total(sAD);
+		sumSqDiff = MathKernels.total(sD2);				sumCubeAbsDiff = MathKernels.total(sAD3);
+		maxAbsDiff = mAD;
+		sumMin = MathKernels.total(sMn);				sumMax = MathKernels.total(sMx);
+		sumMaxMinusMin = MathKernels.total(sMxMn);		sumPQ = MathKernels.total(sPQ);
+		sumPP = cachedSums ? sumsP[1] : MathKernels.total(sPP);
+		sumQQ = cachedSums ? sumsQ[1] : MathKernels.total(sQQ);
+
+		canberra = MathKernels.total(cb);				waveHedges = MathKernels.total(wh);
+		waveHedgesDWH = MathKernels.total(whd);			harmonic = MathKernels.total(hm);
+		pearson = MathKernels.total(pe);				neyman = MathKernels.total(ne);
+		squaredChi = MathKernels.total(sc);				divergence = MathKernels.total(dv);
+		clark = MathKernels.total(cl);					additiveSym = MathKernels.total(as);
+
+		sumSqrtPQ = MathKernels.total(sR);				chord = MathKernels.total(ch);
+		ssqc2 = MathKernels.total(s2);
+
+		lorentzian = MathKernels.total(lo);				kullbackLeibler = MathKernels.total(kl);
+		jeffreys = MathKernels.total(je);				jsP = MathKernels.total(jp);
+		jsQ = MathKernels.total(jq);					topsoe = MathKernels.total(to);
+		jensenDifference = MathKernels.total(jd);		taneja = MathKernels.total(ta);
+
+		kumarJohnson = MathKernels.total(kj);
+
+		if ( spP != null ) {
+			failed |= F_WHD | F_S2 | F_AV;		// not 0 on empty/empty bins
+		}
+		else if ( (terms & AVG) != 0 ) {
+			try {
+				double av = 0d;
+				for (int i=0; i < len; i++) av = acc(av, k.add(k.abs(k.sub(P[i],Q[i])), maxAbsDiff));
+				avgDifference = MathKernels.total(av);
+			}
+			catch(Exception x) { failed |= F_AV; }
+		}
+	}
+
+	/*
+	 *  Finishes one equation from the accumulated terms.
+	 */
+	public double value(HistogramEquation eq) throws Exception
+	{
+		if ( (eq.getTerms() & ~terms) != 0 )
+			throw new MathCompatibilityException("HistogramSweep: terms for " + eq + " were not accumulated");
+		if ( (failed & needs(eq)) != 0 )
+			return eq.compute(k, P, Q);
+
+		double d;
+		switch (eq) {
+			case EUCLIDEAN:								d = k.sqrt(sumSqDiff); break;
+			case CITY_BLOCK:							d = sumAbsDiff; break;
+			case MINKOWSKI:								d = k.cbrt(sumCubeAbsDiff); break;
+			case CHEBYSHEV:								d = maxAbsDiff; break;
+			case SORENSEN:								d = k.div(sumAbsDiff, sumPlusQ); break;
+			case GOWER:									d = k.mult(k.reciprocal1((double)len), sumAbsDiff); break;
+			case SOERGEL:								d = k.div(sumAbsDiff, sumMax); break;
+			case KULCZYNSKI:							d = k.div(sumAbsDiff, sumMin); break;
+			case CANBERRA:								d = canberra; break;
+			case LORENTZIAN:							d = lorentzian; break;
+			case INTERSECTION_IS:						d = sumMin; break;
+			case INTERSECTION_DNONIS:					d = complement(sumMin); break;
+			case INTERSECTION_DNONIS2:					d = k.mult(k.reciprocal1(2.0d), sumAbsDiff); break;
+			case WAVE_HEDGES:							d = waveHedges; break;
+			case WAVE_HEDGES_DWH:						d = waveHedgesDWH; break;
+			case CZEKANOWSKI:							d = czekanowski(); break;
+			case CZEKANOWSKI_DCZE:						d = complement(czekanowski()); break;
+			case CZEKANOWSKI_DCZE2:						d = k.div(sumAbsDiff, sumPlusQ); break;
+			case MOTYKA:								d = k.div(sumMin, sumPlusQ); break;
+			case MOTYKA_DMOT:							d = complement(k.div(sumMin, sumPlusQ)); break;
+			case MOTYKA_DMOT2:							d = k.div(sumMax, sumPlusQ); break;
+			case KULCZYNSKI_S:							d = k.reciprocal1(k.div(sumAbsDiff, sumMin)); break;
+			case KULCZYNSKI_S2:							d = k.div(sumMin, sumAbsDiff); break;
+			case RUZICKA:								d = k.div(sumMin, sumMax); break;
+			case TANIMOTO:								d = k.div(sumMaxMinusMin, sumMax); break;
+			case TANIMOTO2:								d = tanimoto2(); break;
+			case INNER_PRODUCT:							d = sumPQ; break;
+			case HARMONIC_MEAN:							d = k.mult(2.0d, harmonic); break;
+			case COSINE:								d = k.div(sumPQ, k.mult(k.sqrt(sumPP), k.sqrt(sumQQ))); break;
+			case KUMAR_HASSEBROOK_PCE:					d = Double.NaN; break;	// see MathOpsE
+			case JACCARD:								d = jaccard(); break;
+			case JACCARD_DJAC1:							d = complement(jaccard()); break;
+			case JACCARD_DJAC2:							d = k.div(sumSqDiff, k.sub(k.add(sumPP, sumQQ), sumPQ)); break;
+			case DICE:									d = dice(); break;
+			case DICE_DDICE1:							d = complement(dice()); break;
+			case DICE_DDICE2:							d = k.div(sumSqDiff, k.add(sumPP, sumQQ)); break;
+			case FIDELITY:								d = sumSqrtPQ; break;
+			case BHATTACHARYYA:							d = isNormalizedOverflow(sumSqrtPQ) ? 0.0 : k.mult(-1.0d, k.ln(sumSqrtPQ)); break;
+			case HELLINGER:								d = isNormalizedOverflow(sumSqrtPQ) ? 0.0 : k.mult(2.0d, k.sqrt(k.sub(1d, sumSqrtPQ))); break;
+			case HELLINGER_DH2:							d = k.sqrt(k.mult(2.0d, chord)); break;
+			case MATUSITA:								d = isNormalizedOverflow(sumSqrtPQ) ? 0.0 : k.sqrt(k.sub(2.0d, k.mult(2.0d, sumSqrtPQ))); break;
+			case MATUSITA_DM2:							d = k.sqrt(chord); break;
+			case SQUARED_CHORD:							d = chord; break;
+			case SQUARED_CHORD_SSQC1:					d = complement(chord); break;
+			case SQUARED_CHORD_SSQC2:					d = k.mult(2.0d, ssqc2); break;
+			case SQUARED_EUCLIDEAN:						d = sumSqDiff; break;
+			case PEARSON_CHISQUARED:					d = pearson; break;
+			case NEYMAN_CHISQUARED:						d = neyman; break;
+			case SQUARED_CHISQUARED:					d = squaredChi; break;
+			case PROBABILISTIC_SYMMETRIC_CHISQUARED:	d = k.mult(2.0d, squaredChi); break;
+			case DIVERGENCE:							d = k.mult(2.0d, divergence); break;
+			case CLARK:									d = k.sqrt(clark); break;
+			case ADDITIVE_SYMMETRIC_CHISQUARED:			d = additiveSym; break;
+			case KULLBACK_LEIBLER:						d = kullbackLeibler; break;
+			case JEFFREYS:								d = jeffreys; break;
+			case K_DIVERGENCE:							d = jsP; break;
+			case TOPSOE:								d = topsoe; break;
+			case JENSEN_SHANNON:						d = k.mult(k.div(1.0d, 2.0d), k.add(jsP, jsQ)); break;
+			case JENSEN_DIFFERENCE:						d = jensenDifference; break;
+			case TANEJA_DIFFERENCE:						d = taneja; break;
+			case KUMAR_JOHNSON_DIFFERENCE:				d = kumarJohnson; break;
+			case AVG_DIFFERENCE:						d = k.div(avgDifference, 2.0d); break;
+			default:
+				throw new IllegalStateException("Unhandled histogram equation " + eq);
+		}
+		if ( MeasureStatus.of(d) != MeasureStatus.OK ) k.check("HistogramSweep." + eq, d);
+		return d;
+	}
+
+	// accumulators, among those that may fail, that an equation is finished from
+	private static long needs(HistogramEquation eq) {
+		switch (eq) {
+			case CANBERRA:								return F_CB;
+			case LORENTZIAN:							return F_LO;
+			case WAVE_HEDGES:							return F_WH;
+			case WAVE_HEDGES_DWH:						return F_WHD;
+			case HARMONIC_MEAN:							return F_HM;
+			case FIDELITY:
+			case BHATTACHARYYA:
+			case HELLINGER:
+			case MATUSITA:								return F_R;
+			case HELLINGER_DH2:
+			case MATUSITA_DM2:
+			case SQUARED_CHORD:
+			case SQUARED_CHORD_SSQC1:					return F_CH;
+			case SQUARED_CHORD_SSQC2:					return F_S2;
+			case PEARSON_CHISQUARED:					return F_PE;
+			case NEYMAN_CHISQUARED:						return F_NE;
+			case SQUARED_CHISQUARED:
+			case PROBABILISTIC_SYMMETRIC_CHISQUARED:	return F_SC;
+			case DIVERGENCE:							return F_DV;
+			case CLARK:									return F_CL;
+			case ADDITIVE_SYMMETRIC_CHISQUARED:			return F_AS;
+			case KULLBACK_LEIBLER:						return F_KL;
+			case JEFFREYS:								return F_JE;
+			case K_DIVERGENCE:							return F_JP;
+			case TOPSOE:								return F_TO;
+			case JENSEN_SHANNON:						return F_JP | F_JQ;
+			case JENSEN_DIFFERENCE:						return F_JD;
+			case TANEJA_DIFFERENCE:						return F_TA;
+			case KUMAR_JOHNSON_DIFFERENCE:				return F_KJ;
+			case AVG_DIFFERENCE:						return F_AV;
+			default:									return 0L;
+		}
+	}
+
+	private double acc(double s, double x) throws Exception {
+		return k.accumulate(s, x);
+	}
+
+	// k.div(a, b) given 1/b: a * (1/b) where b is neither empty nor so small that 1/b overflows
+	private double divBy(double a, double b, double rb) throws Exception {
+		if ( Math.abs(b) <= Double.MIN_VALUE || Double.isInfinite(rb) ) return k.div(a, b);
+		return k.mult(a, rb);
+	}
+
+	// k.a_Ln_b(a, k.div(p, q)) given ln p and ln q: a (ln p - ln q) where a_Ln_b would take the log
+	private double aLnRatio(double a, double p, double q, double lp, double lq) throws Exception {
+		double b = k.div(p, q);
+		if ( Math.abs(b) <= Double.MIN_VALUE || a >= Double.MAX_VALUE || b >= Double.MAX_VALUE ) return k.a_Ln_b(a, b);
+		double c = a * (lp - lq);
+		k.check("a_Ln_b", c);
+		return c;
+	}
+
+	private double czekanowski() throws Exception {
+		return k.div(k.mult(2.0d, sumMin), sumPlusQ);
+	}
+
+	private double jaccard() throws Exception {
+		return k.div(sumPQ, k.sub(k.add(sumPP, sumQQ), sumPQ));
+	}
+
+	private double dice() throws Exception {
+		return k.div(k.mult(2.0d, sumPQ), k.add(sumPP, sumQQ));
+	}
+
+	private double tanimoto2() throws Exception {
+		double sumPQ = k.add(sumP, sumQ);
+		double bottom = k.sub(sumPQ, sumMin);
+		double top = k.sub(sumPQ, k.mult(2.0d, sumMin));
+		return k.div(top, bottom);
+	}
+
+	// 1 - d, with the normalized-histogram case of the D-variants
+	private double complement(double d) throws Exception {
+		return isNormalizedOverflow(d) ? 0.0 : k.sub(1.0d, d);
+	}
+
+	private boolean isNormalizedOverflow(double d) {
+		return d > 1 && Math.abs(sumP - 1) < MathKernels.EPSILON && Math.abs(sumQ - 1) < MathKernels.EPSILON;
+	}
+}
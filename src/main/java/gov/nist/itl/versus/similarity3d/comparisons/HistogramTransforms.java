@@ -0,0 +1,133 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Per-bin transforms of one normalized histogram P that do not depend on the histogram it is
+ *					compared with: sqrt(P), P ln P, ln P and 1/P, the sums of P and P^2, and its non-empty
+ *					bins as a SparseHistogram. Held by the descriptor (see
+ *					VoxelHistogramDescriptor.getTransforms()), so an all-pairs run over N histograms forms
+ *					each of them N times instead of N^2 times inside HistogramSweep.
+ *
+ *					sqrt(P), P ln P and the sums are formed with the MathKernels operations the kernels use,
+ *					in the same bin order, so a sweep reading them stays bit-identical. ln P and 1/P are plain
+ *					Math.log and 1/p (-Infinity and Infinity on empty bins); they are only read by an inexact
+ *					sweep. Each vector is computed on first use; a transform that raises in some bin is
+ *					reported as null, and the sweep forms those terms itself. Concurrent first calls may
+ *					compute a vector twice, with identical results. The returned arrays are shared and must
+ *					not be modified.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+public class HistogramTransforms
+{
+	private final static double[] FAILED = new double[0];
+
+	private final double[] P;
+	private volatile double[] sqrt, aLnA, ln, reciprocal;
+	private volatile double[] sums;		// { sum P, sum P^2 }, as totals
+	private volatile SparseHistogram sparse;
+
+	public HistogramTransforms(double[] P) {
+		this.P = P;
+	}
+
+	public double[] getHistogram() { return P; }
+	public int getLength()         { return P.length; }
+
+	public SparseHistogram sparse() {
+		SparseHistogram t = sparse;
+		if ( t == null ) {
+			t = SparseHistogram.of(P);
+			sparse = t;
+		}
+		return t;
+	}
+
+	// sqrt(p), or null
+	public double[] sqrt() {
+		double[] t = sqrt;
+		if ( t == null ) {
+			MathKernels k = new MathKernels();
+			t = new double[P.length];
+			try {
+				for (int i=0; i < t.length; i++) t[i] = k.sqrt(P[i]);
+			}
+			catch(Exception e) {
+				t = FAILED;
+			}
+			sqrt = t;
+		}
+		return t == FAILED ? null : t;
+	}
+
+	// p ln p (0 on empty bins), or null
+	public double[] aLnA() {
+		double[] t = aLnA;
+		if ( t == null ) {
+			MathKernels k = new MathKernels();
+			t = new double[P.length];
+			try {
+				for (int i=0; i < t.length; i++) t[i] = k.a_Ln_b(P[i], P[i]);
+			}
+			catch(Exception e) {
+				t = FAILED;
+			}
+			aLnA = t;
+		}
+		return t == FAILED ? null : t;
+	}
+
+	// ln p, unchecked
+	public double[] ln() {
+		double[] t = ln;
+		if ( t == null ) {
+			t = new double[P.length];
+			for (int i=0; i < t.length; i++) t[i] = Math.log(P[i]);
+			ln = t;
+		}
+		return t;
+	}
+
+	// 1/p, unchecked
+	public double[] reciprocal() {
+		double[] t = reciprocal;
+		if ( t == null ) {
+			t = new double[P.length];
+			for (int i=0; i < t.length; i++) t[i] = 1.0d / P[i];
+			reciprocal = t;
+		}
+		return t;
+	}
+
+	// sum P and sum P^2 as MathKernels sums them, or null
+	double[] sums() {
+		double[] t = sums;
+		if ( t == null ) {
+			MathKernels k = new MathKernels();
+			double s = 0d, s2 = 0d;
+			try {
+				for (int i=0; i < P.length; i++) {
+					s  = k.accumulate(s, P[i]);
+					s2 = k.accumulate(s2, k.square(P[i]));
+				}
+				t = new double[] { MathKernels.total(s), MathKernels.total(s2) };
+			}
+			catch(Exception e) {
+				t = FAILED;
+			}
+			sums = t;
+		}
+		return t == FAILED ? null : t;
+	}
+}
@@ -0,0 +1,1294 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  Primitive (double[]) measure calculation implementations
+ *
+ *  @see 			<a href="http://www.wseas.us/e-library/conferences/2008/harvard/math/49-577-887.pdf">http://www.wseas.us/e-library/conferences/2008/harvard/math/49-577-887.pdf</a>
+ *
+ *	description:	Same equations as MathOpsE, computed over primitive double[] histograms.
+ *					Each equation makes a single pass over the bins, carrying every summation term of the
+ *					MathOpsE version in its own scalar accumulator, so a comparison allocates no intermediate
+ *					arrays and boxes no values. Terms are formed with the same operations and summed in the same
+ *					bin order, so results are bit-identical to MathOpsE (avg_difference needs max(|P-Q|) before
+ *					its sum and makes two passes). Element-wise operations keep the MathOpsE semantics
+ *					(0/0 = 0, x/0 = MAX_VALUE, 0 ln 0 = 0, saturating sums) and raise the same exception types
+ *					(HWIndependenceException for NaN, SingularityTreatmentException for infinite or null values);
+ *					when several terms fail, the first one reported may differ from MathOpsE. Whether the
+ *					input arrays are also scanned as a whole on entry is set by the instance's
+ *					ValidationPolicy (STRICT unless given). A quiet instance reports a NaN or infinite
+ *					result by its MeasureStatus alone (see MeasureStatus.Failure), for callers that only need
+ *					the status; the entry checks still raise the exceptions above.
+ *					Is called by appropriate related class in gov.nist.itl.versus.similarity3d.comparisons.measure.impl.* .
+ *					Holds no state beyond those two settings: an instance may be shared by any number of
+ *					threads.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import gov.nist.itl.versus.similarity3d.comparisons.exception.HWIndependenceException;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.SingularityTreatmentException;
+
+public class MathKernels
+{
+
+	public final static double EPSILON = MathOpsE.EPSILON;
+
+	private final boolean quiet;	// failures raise the shared MeasureStatus.Failure (see check)
+	private final ValidationPolicy validation;	// see ValidationPolicy
+
+	public MathKernels() {
+		this(false);
+	}
+
+	public MathKernels(boolean quiet) {
+		this(quiet, ValidationPolicy.STRICT);
+	}
+
+	public MathKernels(boolean quiet, ValidationPolicy validation) {
+		if ( validation == null ) throw new IllegalArgumentException("validation policy must not be null");
+		this.quiet = quiet;
+		this.validation = validation;
+	}
+
+	public boolean isQuiet() { return quiet; }
+
+	public ValidationPolicy getValidationPolicy() { return validation; }
+
+/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
+ * Histogram-based measures.
+ * - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
+ */
+
+	// eqn #1
+	public double histogram_measure_euclidean(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_euclidean",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, square(abs(sub(P[i],Q[i]))));
+		double d = sqrt(total(s));
+		check("histogram_measure_euclidean",d);
+		return d;
+	}
+
+	// eqn #2
+	public double histogram_measure_city_block(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_city_block",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, abs(sub(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_city_block",d);
+		return d;
+	}
+
+	// eqn #3
+	public double histogram_measure_minkowski(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_minkowski",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, cube(abs(sub(P[i],Q[i]))));
+		double d = cbrt(total(s));
+		check("histogram_measure_minkowski",d);
+		return d;
+	}
+
+	// eqn #4
+	public double histogram_measure_chebyshev(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_chebyshev",P,Q);
+		double d = maxAbsDiff(P,Q);
+		check("histogram_measure_chebyshev",d);
+		return d;
+	}
+
+	// eqn #5
+	public double histogram_measure_sorensen(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_sorensen",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, abs(sub(P[i],Q[i])));
+			bottom = accumulate(bottom, add(P[i],Q[i]));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_sorensen",d);
+		return d;
+	}
+
+	// eqn #7
+	public double histogram_measure_gower(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_gower",P,Q);
+		int len = P.length;
+		double r = reciprocal1((double)len);
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, abs(sub(P[i],Q[i])));
+		double d = mult(r, total(s));
+		check("histogram_measure_gower",d);
+		return d;
+	}
+
+	// eqn #6
+	public double histogram_measure_gower2(double[] P, double[] Q, double[] R) throws Exception
+	{
+		chkinputs("histogram_measure_gower2",P,Q);
+		chkinputs("histogram_measure_gower2",Q,R);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(abs(sub(P[i],Q[i])), R[i]));
+		double r = reciprocal1((double)len);
+		double d = mult(r, total(s));
+		check("histogram_measure_gower2",d);
+		return d;
+	}
+
+	// eqn #8
+	public double histogram_measure_soergel(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_soergel",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, abs(sub(P[i],Q[i])));
+			bottom = accumulate(bottom, max(P[i],Q[i]));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_soergel",d);
+		return d;
+	}
+
+	// eqn #9
+	public double histogram_measure_kulczynski(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_kulczynski",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, abs(sub(P[i],Q[i])));
+			bottom = accumulate(bottom, min(P[i],Q[i]));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_kulczynski",d);
+		return d;
+	}
+
+	// eqn #10
+	public double histogram_measure_canberra(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_canberra",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(abs(sub(P[i],Q[i])), add(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_canberra",d);
+		return d;
+	}
+
+	// eqn #11
+	public double histogram_measure_lorentzian(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_lorentzian",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, ln(add(1d, abs(sub(P[i],Q[i])))));
+		double d = total(s);
+		check("histogram_measure_lorentzian",d);
+		return d;
+	}
+
+	// eqn #12
+	public double histogram_measure_intersection_IS(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_intersection_IS",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, min(P[i],Q[i]));
+		double d = total(s);
+		check("histogram_measure_intersection_IS",d);
+		return d;
+	}
+
+	// eqn #13.1
+	public double histogram_measure_intersection_dNonIS(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_intersection_dNonIS",P,Q);
+		double d1 = histogram_measure_intersection_IS(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d1,P,Q)) return 0.0;
+		double d2 = sub(1.0d,d1);
+		check("histogram_measure_intersection_dNonIS",d2);
+		return d2;
+	}
+
+	// eqn #13.2
+	public double histogram_measure_intersection_dNonIS2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_intersection_dNonIS2",P,Q);
+		int len = P.length;
+		double r = reciprocal1(2.0d);
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, abs(sub(P[i],Q[i])));
+		double d = mult(r, total(s));
+		check("histogram_measure_intersection_dNonIS2",d);
+		return d;
+	}
+
+	// eqn #15
+	public double histogram_measure_wave_hedges(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_wave_hedges",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(abs(sub(P[i],Q[i])), max(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_wave_hedges",d);
+		return d;
+	}
+
+	// eqn #14
+	public double histogram_measure_wave_hedges_dWH(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_wave_hedges_dWH",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, sub(1.0d, div(min(P[i],Q[i]), max(P[i],Q[i]))));
+		double d = total(s);
+		check("histogram_measure_wave_hedges_dWH",d);
+		return d;
+	}
+
+	// eqn #16
+	public double histogram_measure_czekanowski(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_czekanowski",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, min(P[i],Q[i]));
+			bottom = accumulate(bottom, add(P[i],Q[i]));
+		}
+		// combine
+		double d = div(mult(2.0d, total(top)), total(bottom));
+		check("histogram_measure_czekanowski",d);
+		return d;
+	}
+
+	// eqn #17.1
+	public double histogram_measure_czekanowski_dCze(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_czekanowski_dCze",P,Q);
+		double d1 = histogram_measure_czekanowski(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d1,P,Q)) return 0.0;
+		double d2 = sub(1.0d,d1);
+		check("histogram_measure_czekanowski_dCze",d2);
+		return d2;
+	}
+
+	// eqn #17.2
+	public double histogram_measure_czekanowski_dCze2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_czekanowski_dCze2",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, abs(sub(P[i],Q[i])));
+			bottom = accumulate(bottom, add(P[i],Q[i]));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_czekanowski_dCze2",d);
+		return d;
+	}
+
+	// eqn #18
+	public double histogram_measure_motyka(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_motyka",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, min(P[i],Q[i]));
+			bottom = accumulate(bottom, add(P[i],Q[i]));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_motyka",d);
+		return d;
+	}
+
+	// eqn #19.1
+	public double histogram_measure_motyka_dMot(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_motyka_dMot",P,Q);
+		double d1 = histogram_measure_motyka(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d1,P,Q)) return 0.0;
+		double d2 = sub(1.0d,d1);
+		check("histogram_measure_motyka_dMot",d2);
+		return d2;
+	}
+
+	// eqn #19.2
+	public double histogram_measure_motyka_dMot2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_motyka_dMot2",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, max(P[i],Q[i]));
+			bottom = accumulate(bottom, add(P[i],Q[i]));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_motyka_dMot2",d);
+		return d;
+	}
+
+	// eqn #20.1
+	public double histogram_measure_kulczynski_s(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_kulczynski_s",P,Q);
+		double d1 = histogram_measure_kulczynski(P,Q);
+		double d2 = reciprocal1(d1);
+		check("histogram_measure_kulczynski_s",d2);
+		return d2;
+	}
+
+	// eqn #20.2
+	public double histogram_measure_kulczynski_s2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_kulczynski_s2",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, min(P[i],Q[i]));
+			bottom = accumulate(bottom, abs(sub(P[i],Q[i])));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_kulczynski_s2",d);
+		return d;
+	}
+
+	// eqn #21
+	public double histogram_measure_ruzicka(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_ruzicka",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			top    = accumulate(top, min(P[i],Q[i]));
+			bottom = accumulate(bottom, max(P[i],Q[i]));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_ruzicka",d);
+		return d;
+	}
+
+	// eqn #23
+	public double histogram_measure_tanimoto(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_tanimoto",P,Q);
+		int len = P.length;
+		double top = 0d, bottom = 0d;
+		for (int i=0; i < len; i++) {
+			double mx = max(P[i],Q[i]);
+			bottom = accumulate(bottom, mx);
+			top    = accumulate(top, sub(mx, min(P[i],Q[i])));
+		}
+		// combine
+		double d = div(total(top), total(bottom));
+		check("histogram_measure_tanimoto",d);
+		return d;
+	}
+
+	// eqn #22
+	public double histogram_measure_tanimoto2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_tanimoto2",P,Q);
+		int len = P.length;
+		double mn = 0d, sp = 0d, sq = 0d;
+		for (int i=0; i < len; i++) {
+			mn = accumulate(mn, min(P[i],Q[i]));
+			sp = accumulate(sp, P[i]);
+			sq = accumulate(sq, Q[i]);
+		}
+		double sumMin = total(mn);
+		double sumPQ = add(total(sp), total(sq));
+		// bottom
+		double bottom = sub(sumPQ, sumMin);
+		// top
+		double top = sub(sumPQ, mult(2.0d, sumMin));
+		// combine
+		double d = div(top, bottom);
+		check("histogram_measure_tanimoto2",d);
+		return d;
+	}
+
+	// eqn #24
+	public double histogram_measure_inner_product(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_inner_product",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, mult(P[i],Q[i]));
+		double d = total(s);
+		check("histogram_measure_inner_product",d);
+		return d;
+	}
+
+	// eqn #25
+	public double histogram_measure_harmonic_mean(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_harmonic_mean",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(mult(P[i],Q[i]), add(P[i],Q[i])));
+		double d = mult(2.0d, total(s));
+		check("histogram_measure_harmonic_mean",d);
+		return d;
+	}
+
+	// eqn #26
+	public double histogram_measure_cosine(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_cosine",P,Q);
+		int len = P.length;
+		double pp = 0d, qq = 0d, pq = 0d;
+		for (int i=0; i < len; i++) {
+			pp = accumulate(pp, square(P[i]));
+			qq = accumulate(qq, square(Q[i]));
+			pq = accumulate(pq, mult(P[i],Q[i]));
+		}
+		// bottom
+		double bottom = mult(sqrt(total(pp)), sqrt(total(qq)));
+		// combine
+		double d = div(total(pq), bottom);
+		check("histogram_measure_cosine",d);
+		return d;
+	}
+
+	// eqn #27
+	public double histogram_measure_kumar_hassebrook_pce(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_kumar_hassebrook_pce",P,Q);
+		// NOTE: Mirrors MathOpsE, where the published formula is a copy of Jaccard and the measure
+		//       has been replaced with a constant NaN result until a replacement formula is identified.
+		double d = Double.NaN;
+		check("histogram_measure_kumar_hassebrook_pce",d);
+		return d;
+	}
+
+	// eqn #28
+	public double histogram_measure_jaccard(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_jaccard",P,Q);
+		int len = P.length;
+		double pp = 0d, qq = 0d, pq = 0d;
+		for (int i=0; i < len; i++) {
+			pp = accumulate(pp, square(P[i]));
+			qq = accumulate(qq, square(Q[i]));
+			pq = accumulate(pq, mult(P[i],Q[i]));
+		}
+		double sumPQ = total(pq);
+		// bottom
+		double bottom = sub(add(total(pp), total(qq)), sumPQ);
+		// combine
+		double d = div(sumPQ, bottom);
+		check("histogram_measure_jaccard",d);
+		return d;
+	}
+
+	// eqn #39.1 (a.k.a., #29.1, was misnamed in paper)
+	public double histogram_measure_jaccard_dJac1(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_jaccard_dJac1",P,Q);
+		double d1 = histogram_measure_jaccard(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d1,P,Q)) return 0.0;
+		double d2 = sub(1.0d,d1);
+		check("histogram_measure_jaccard_dJac1",d2);
+		return d2;
+	}
+
+	// eqn #39.2 (a.k.a., #29.2, was misnamed in paper)
+	public double histogram_measure_jaccard_dJac2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_jaccard_dJac2",P,Q);
+		int len = P.length;
+		double pp = 0d, qq = 0d, pq = 0d, top = 0d;
+		for (int i=0; i < len; i++) {
+			pp  = accumulate(pp, square(P[i]));
+			qq  = accumulate(qq, square(Q[i]));
+			pq  = accumulate(pq, mult(P[i],Q[i]));
+			top = accumulate(top, square(sub(P[i],Q[i])));
+		}
+		// bottom
+		double bottom = sub(add(total(pp), total(qq)), total(pq));
+		// combine
+		double d = div(total(top), bottom);
+		check("histogram_measure_jaccard_dJac2",d);
+		return d;
+	}
+
+	// eqn #40 (a.k.a., #30, was misnamed in paper)
+	public double histogram_measure_dice(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_dice",P,Q);
+		int len = P.length;
+		double pp = 0d, qq = 0d, pq = 0d;
+		for (int i=0; i < len; i++) {
+			pp = accumulate(pp, square(P[i]));
+			qq = accumulate(qq, square(Q[i]));
+			pq = accumulate(pq, mult(P[i],Q[i]));
+		}
+		// bottom
+		double bottom = add(total(pp), total(qq));
+		// top
+		double top = mult(2.0d, total(pq));
+		// combine
+		double d = div(top, bottom);
+		check("histogram_measure_dice",d);
+		return d;
+	}
+
+	// eqn #31.1
+	public double histogram_measure_dice_dDice1(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_dice_dDice1",P,Q);
+		double d1 = histogram_measure_dice(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d1,P,Q)) return 0.0;
+		double d2 = sub(1.0d,d1);
+		check("histogram_measure_dice_dDice1",d2);
+		return d2;
+	}
+
+	// eqn #31.2
+	public double histogram_measure_dice_dDice2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_dice_dDice2",P,Q);
+		int len = P.length;
+		double pp = 0d, qq = 0d, top = 0d;
+		for (int i=0; i < len; i++) {
+			pp  = accumulate(pp, square(P[i]));
+			qq  = accumulate(qq, square(Q[i]));
+			top = accumulate(top, square(sub(P[i],Q[i])));
+		}
+		// bottom
+		double bottom = add(total(pp), total(qq));
+		// combine
+		double d = div(total(top), bottom);
+		check("histogram_measure_dice_dDice2",d);
+		return d;
+	}
+
+	// eqn #32
+	public double histogram_measure_fidelity(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_fidelity",P,Q);
+		double d = sumSqrtProducts(P,Q);
+		check("histogram_measure_fidelity",d);
+		return d;
+	}
+
+	// eqn #33
+	public double histogram_measure_bhattacharyya(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_bhattacharyya",P,Q);
+		double d3 = sumSqrtProducts(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d3,P,Q)) return 0.0;
+		double d = mult(-1.0d, ln(d3));
+		check("histogram_measure_bhattacharyya",d);
+		return d;
+	}
+
+	// eqn #35
+	public double histogram_measure_hellinger(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_hellinger",P,Q);
+		double d3 = sumSqrtProducts(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d3,P,Q)) return 0.0;
+		double d = mult(2.0d, sqrt(sub(1d, d3)));
+		check("histogram_measure_hellinger",d);
+		return d;
+	}
+
+	// eqn #34
+	public double histogram_measure_hellinger_dH2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_hellinger_dH2",P,Q);
+		double d = sqrt(mult(2.0d, sumSquaredRootDiffs(P,Q)));
+		check("histogram_measure_hellinger_dH2",d);
+		return d;
+	}
+
+	// eqn #37
+	public double histogram_measure_matusita(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_matusita",P,Q);
+		double d3 = sumSqrtProducts(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d3,P,Q)) return 0.0;
+		double d = sqrt(sub(2.0d, mult(2.0d, d3)));
+		check("histogram_measure_matusita",d);
+		return d;
+	}
+
+	// eqn #36
+	public double histogram_measure_matusita_dM2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_matusita_dM2",P,Q);
+		double d = sqrt(sumSquaredRootDiffs(P,Q));
+		check("histogram_measure_matusita_dM2",d);
+		return d;
+	}
+
+	// eqn #38
+	public double histogram_measure_squared_chord(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_squared_chord",P,Q);
+		double d = sumSquaredRootDiffs(P,Q);
+		check("histogram_measure_squared_chord",d);
+		return d;
+	}
+
+	// eqn #39.1
+	public double histogram_measure_squared_chord_Ssqc1(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_squared_chord_Ssqc1",P,Q);
+		double d1 = histogram_measure_squared_chord(P,Q);
+		// Case of normalized histograms
+		if (isNormalizedOverflow(d1,P,Q)) return 0.0;
+		double d2 = sub(1.0d,d1);
+		check("histogram_measure_squared_chord_Ssqc1",d2);
+		return d2;
+	}
+
+	// eqn #39.2
+	public double histogram_measure_squared_chord_Ssqc2(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_squared_chord_Ssqc2",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, sub(sqrt(mult(P[i],Q[i])), 1.0d));
+		double d = mult(2.0d, total(s));
+		check("histogram_measure_squared_chord_Ssqc2",d);
+		return d;
+	}
+
+	// eqn #40
+	public double histogram_measure_squared_euclidean(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_squared_euclidean",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, square(sub(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_squared_euclidean",d);
+		return d;
+	}
+
+	// eqn #41
+	public double histogram_measure_pearson_chiSquared(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_pearson_chiSquared",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(square(sub(P[i],Q[i])), Q[i]));
+		double d = total(s);
+		check("histogram_measure_pearson_chiSquared",d);
+		return d;
+	}
+
+	// eqn #42
+	public double histogram_measure_neyman_chiSquared(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_neyman_chiSquared",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(square(sub(P[i],Q[i])), P[i]));
+		double d = total(s);
+		check("histogram_measure_neyman_chiSquared",d);
+		return d;
+	}
+
+	// eqn #43
+	public double histogram_measure_squared_chiSquared(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_squared_chiSquared",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(square(sub(P[i],Q[i])), add(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_squared_chiSquared",d);
+		return d;
+	}
+
+	// eqn #44
+	public double histogram_measure_probabilistic_symmetric_chiSquared(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_probabilistic_symmetric_chiSquared",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(square(sub(P[i],Q[i])), add(P[i],Q[i])));
+		double d = mult(2.0d, total(s));
+		check("histogram_measure_probabilistic_symmetric_chiSquared",d);
+		return d;
+	}
+
+	// eqn #45
+	public double histogram_measure_divergence(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_divergence",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(square(sub(P[i],Q[i])), square(add(P[i],Q[i]))));
+		double d = mult(2.0d, total(s));
+		check("histogram_measure_divergence",d);
+		return d;
+	}
+
+	// eqn #46
+	public double histogram_measure_clark(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_clark",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, square(div(abs(sub(P[i],Q[i])), add(P[i],Q[i]))));
+		double d = sqrt(total(s));
+		check("histogram_measure_clark",d);
+		return d;
+	}
+
+	// eqn #47
+	public double histogram_measure_additive_symmetric_chiSquared(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_additive_symmetric_chiSquared",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, div(mult(square(sub(P[i],Q[i])), add(P[i],Q[i])), mult(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_additive_symmetric_chiSquared",d);
+		return d;
+	}
+
+	// eqn #48
+	public double histogram_measure_kullback_leibler(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_kullback_leibler",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, a_Ln_b(P[i], div(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_kullback_leibler",d);
+		return d;
+	}
+
+	// eqn #49
+	public double histogram_measure_jeffreys(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_jeffreys",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, a_Ln_b(sub(P[i],Q[i]), div(P[i],Q[i])));
+		double d = total(s);
+		check("histogram_measure_jeffreys",d);
+		return d;
+	}
+
+	// eqn #50
+	public double histogram_measure_k_divergence(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_k_divergence",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, a_Ln_b(P[i], div(mult(2.0d,P[i]), add(P[i],Q[i]))));
+		double d = total(s);
+		check("histogram_measure_k_divergence",d);
+		return d;
+	}
+
+	// eqn #51
+	public double histogram_measure_topsoe(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_topsoe",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) {
+			double right = a_Ln_b(Q[i], div(mult(2.0d,Q[i]), add(P[i],Q[i])));
+			double left  = a_Ln_b(P[i], div(mult(2.0d,P[i]), add(P[i],Q[i])));
+			s = accumulate(s, add(left, right));
+		}
+		double d = total(s);
+		check("histogram_measure_topsoe",d);
+		return d;
+	}
+
+	// eqn #52
+	public double histogram_measure_jensen_shannon(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_jensen_shannon",P,Q);
+		int len = P.length;
+		double left = 0d, right = 0d;
+		for (int i=0; i < len; i++) {
+			double pq = add(P[i],Q[i]);
+			// right-most term: sum Q * ln( 2Q / P+Q )
+			right = accumulate(right, a_Ln_b(Q[i], div(mult(2.0d,Q[i]), pq)));
+			// left-most term: sum P * ln( 2P / P+Q )
+			left  = accumulate(left, a_Ln_b(P[i], div(mult(2.0d,P[i]), pq)));
+		}
+		// combine
+		double d = mult(div(1.0d, 2.0d), add(total(left), total(right)));
+		check("histogram_measure_jensen_shannon",d);
+		return d;
+	}
+
+	// eqn #53
+	public double histogram_measure_jensen_difference(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_jensen_difference",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) {
+			// right-most term: ((P+Q)/2) ln ((P+Q)/2)
+			double m = div(add(P[i],Q[i]), 2.0d);
+			double right = a_Ln_b(m, m);
+			// left-most term: (P ln P + Q ln Q)/2
+			double left = div(add(a_Ln_b(P[i],P[i]), a_Ln_b(Q[i],Q[i])), 2.0d);
+			s = accumulate(s, sub(left, right));
+		}
+		double d = total(s);
+		check("histogram_measure_jensen_difference",d);
+		return d;
+	}
+
+	// eqn #54
+	public double histogram_measure_taneja_difference(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_taneja_difference",P,Q);
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) {
+			// right-most term: (P+Q) / (2 * sqrt(P*Q))
+			double right = div(add(P[i],Q[i]), mult(2.0d, sqrt(mult(P[i],Q[i]))));
+			// left-most term: (P+Q)/2
+			double left = div(add(P[i],Q[i]), 2.0d);
+			s = accumulate(s, a_Ln_b(left, right));
+		}
+		double d = total(s);
+		check("histogram_measure_taneja_difference",d);
+		return d;
+	}
+
+	// eqn #55
+	public double histogram_measure_kumar_johnson_difference(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_kumar_johnson_difference",P,Q);
+		int len = P.length;
+		double e = div(3.0d, 2.0d);
+		double s = 0d;
+		for (int i=0; i < len; i++) {
+			// bottom: 2 * ((P*Q)^(3/2))
+			double bottom = mult(2.0d, pow(mult(P[i],Q[i]), e));
+			// top: (P^2 - Q^2)^2
+			double top = square(sub(square(P[i]), square(Q[i])));
+			s = accumulate(s, div(top, bottom));
+		}
+		double d = total(s);
+		check("histogram_measure_kumar_johnson_difference",d);
+		return d;
+	}
+
+	// eqn #56
+	public double histogram_measure_avg_difference(double[] P, double[] Q) throws Exception
+	{
+		chkinputs("histogram_measure_avg_difference",P,Q);
+		int len = P.length;
+		// max(|P-Q|)
+		double m = maxAbsDiff(P,Q);
+		// sum(|P-Q| + max(|P-Q|))
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, add(abs(sub(P[i],Q[i])), m));
+		double d = div(total(s), 2.0d);
+		check("histogram_measure_avg_difference",d);
+		return d;
+	}
+
+//////////////////////////////////////////////////////////////////////////////////
+// SHARED TERMS
+//////////////////////////////////////////////////////////////////////////////////
+
+	// sum( sqrt(P*Q) ): fidelity, bhattacharyya, hellinger, matusita
+	private double sumSqrtProducts(double[] P, double[] Q) throws Exception {
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, sqrt(mult(P[i],Q[i])));
+		return total(s);
+	}
+
+	// sum( (sqrt(P) - sqrt(Q))^2 ): squared chord, hellinger dH2, matusita dM2
+	private double sumSquaredRootDiffs(double[] P, double[] Q) throws Exception {
+		int len = P.length;
+		double s = 0d;
+		for (int i=0; i < len; i++) s = accumulate(s, square(sub(sqrt(P[i]), sqrt(Q[i]))));
+		return total(s);
+	}
+
+	// max( |P-Q| ), following MathOpsE.max(Double[]) (0 for empty input)
+	private double maxAbsDiff(double[] P, double[] Q) throws Exception {
+		int len = P.length;
+		if ( len==0 ) return 0d;
+		double m = abs(sub(P[0],Q[0]));
+		for (int i=1; i < len; i++) m = max(abs(sub(P[i],Q[i])), m);
+		return m;
+	}
+
+	// Case of normalized histograms: a similarity above 1 with both inputs summing to 1 maps to distance 0
+	private boolean isNormalizedOverflow(double d, double[] P, double[] Q) throws Exception {
+		return d > 1 && Math.abs(sum(P) - 1) < EPSILON && Math.abs(sum(Q) - 1) < EPSILON;
+	}
+
+	/*
+	 *  Adds one term to a running sum the way MathOpsE.sum(Double[]) does: a term at or above
+	 *  Double.MAX_VALUE saturates the sum. Saturation is carried as POSITIVE_INFINITY (which a
+	 *  checked sum can never otherwise reach) so later terms are still evaluated and checked;
+	 *  total() maps it back to Double.MAX_VALUE.
+	 */
+	double accumulate(double s, double x) throws Exception {
+		if (s == Double.POSITIVE_INFINITY) return s;
+		if (x >= Double.MAX_VALUE) return Double.POSITIVE_INFINITY;
+		double b = x + s;
+		check("sum",b);
+		return b;
+	}
+
+	static double total(double s) {
+		return (s == Double.POSITIVE_INFINITY) ? Double.MAX_VALUE : s;
+	}
+
+//////////////////////////////////////////////////////////////////////////////////
+// PRIMITIVE OPERATIONS
+//////////////////////////////////////////////////////////////////////////////////
+
+	public double add(double a, double b) throws Exception {
+		double c = a + b;
+		check("add",c);
+		return c;
+	}
+
+	public double sum(double[] a) throws Exception {
+		int len = a.length;
+		double b = 0d;
+		for (int i=0; i < len; i++) b = accumulate(b, a[i]);
+		return total(b);
+	}
+
+	public double sub(double a, double b) throws Exception {
+		double c = a - b;
+		check("sub",c);
+		return c;
+	}
+
+	public double mult(double a, double b) throws Exception {
+		double c = a * b;
+		check("mult",c);
+		return c;
+	}
+
+	public double div(double a, double b) throws Exception
+	{
+		// Per guidance from the survey paper, if we receive 0/0, return 0. If x/0, a small value.
+		if ( Math.abs(a) <= Double.MIN_VALUE && Math.abs(b) <= Double.MIN_VALUE)	 {  // 0/0
+			return 0d;
+		}
+		else if ( Math.abs(a) > Double.MIN_VALUE  && Math.abs(b) <= Double.MIN_VALUE  ) { // x/0
+			return Double.MAX_VALUE;
+		}
+		double c = a / b;
+		check("div",c);
+		return c;
+	}
+
+	public double pow(double a, double b) throws Exception {
+		double c = Math.pow(a, b);
+		check("pow",c);
+		return c;
+	}
+
+	public double max(double a, double b) {
+		return (a > b) ? a : b;
+	}
+
+	public double max(double[] a) {
+		int len = a.length;
+		if ( len==0 ) return 0d;
+		double b = a[0];
+		for (int i=0; i < len; i++) b = max(a[i], b);
+		return b;
+	}
+
+	public double min(double a, double b) {
+		return (a < b) ? a : b;
+	}
+
+	public double ln(double a) throws Exception
+	{
+		// NOTE: let case: log 0 be handled by exception-handler of chkresult
+		double b = Math.log(a);
+		check("ln",b);
+		return b;
+	}
+
+	// (a log b) => also checks-for/handles case: (0 log 0)
+	public double a_Ln_b(double a1, double a2) throws Exception
+	{
+		if (Math.abs(a1) <= Double.MIN_VALUE && Math.abs(a2) <= Double.MIN_VALUE)
+			return 0.0;
+		if (Math.abs(a1) > Double.MIN_VALUE && Math.abs(a2) <= Double.MIN_VALUE)
+			return (-Double.MAX_VALUE);
+		if (a1 >= Double.MAX_VALUE || a2 >= Double.MAX_VALUE)
+			return  Double.MAX_VALUE;
+		double b = a1 * ln(a2);
+		check("a_Ln_b",b);
+		return b;
+	}
+
+	public double abs(double a) {
+		return Math.abs(a);
+	}
+
+	public double square(double a) throws Exception {
+		double b = a * a;
+		check("square",b);
+		return b;
+	}
+
+	public double sqrt(double a) throws Exception {
+		double b = Math.sqrt(a);
+		check("sqrt",b);
+		return b;
+	}
+
+	public double cube(double a) throws Exception {
+		double b = a * a * a;
+		check("cube",b);
+		return b;
+	}
+
+	public double cbrt(double a) throws Exception {
+		double b = Math.cbrt(a);
+		check("cbrt",b);
+		return b;
+	}
+
+	public double reciprocal1(double a) throws Exception {
+		return div(1d, a);
+	}
+
+/* - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
+ * Voxel-based measures, over binarized volumes (see VoxelMask).
+ * The voxel counts are exact integers, so these are bit-identical to the
+ * MathOpsE pixel_measure_*_nD versions on the same volumes.
+ * - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
+ */
+
+	// 2|A and B| / (|A or B| + |A and B|)
+	public double pixel_measure_dice(VoxelMask A, VoxelMask B) throws Exception
+	{
+		return pixel_measure_dice(A.andCount(B), A.cardinality(), B.cardinality());
+	}
+
+	// |A and B| / |A or B|
+	public double pixel_measure_jaccard(VoxelMask A, VoxelMask B) throws Exception
+	{
+		return pixel_measure_jaccard(A.andCount(B), A.cardinality(), B.cardinality());
+	}
+
+	// total error rate evaluation: |T and E| / |E|, 1 when E is empty
+	public double pixel_measure_tee(VoxelMask T, VoxelMask E) throws Exception
+	{
+		return pixel_measure_tee(T.andCount(E), T.cardinality(), E.cardinality());
+	}
+
+	// total error rate test: |T and E| / |T|
+	public double pixel_measure_tet(VoxelMask T, VoxelMask E) throws Exception
+	{
+		return pixel_measure_tet(T.andCount(E), T.cardinality(), E.cardinality());
+	}
+
+	/*
+	 * The same measures from the counts |A and B|, |A| and |B|, so that one overlap pass can serve
+	 * all four. |A or B| = |A| + |B| - |A and B| is exact.
+	 */
+	public double pixel_measure_dice(long overlap, long sizeA, long sizeB) throws Exception
+	{
+		double union = sizeA + sizeB - overlap;
+		double d = div(mult(2.0d, overlap), add(union, overlap));
+		check("pixel_measure_dice",d);
+		return d;
+	}
+
+	public double pixel_measure_jaccard(long overlap, long sizeA, long sizeB) throws Exception
+	{
+		double d = div(overlap, sizeA + sizeB - overlap);
+		check("pixel_measure_jaccard",d);
+		return d;
+	}
+
+	public double pixel_measure_tee(long overlap, long sizeT, long sizeE) throws Exception
+	{
+		double d = (sizeE == 0) ? 1.0d : div(overlap, sizeE);
+		check("pixel_measure_tee",d);
+		return d;
+	}
+
+	public double pixel_measure_tet(long overlap, long sizeT, long sizeE) throws Exception
+	{
+		double d = div(overlap, sizeT);
+		check("pixel_measure_tet",d);
+		return d;
+	}
+
+	/*
+	 * Rand indices of a contingency table, in the arithmetic of MathOpsE.pixel_measure_ari_nD:
+	 * Nij, A2, B2, N2 are the cell, row, column and total pair counts. The counts are exact, so
+	 * the results are bit-identical while they stay below 2^53 (volumes up to about 94M voxels).
+	 */
+	public double pixel_measure_ari(ContingencyTable t) throws Exception
+	{
+		double Nij = t.cellPairs(), A2 = t.rowPairs(), B2 = t.colPairs(), N2 = t.pairs();
+		double ARI = ( Nij - ((A2*B2)/N2) ) / ( (0.5 * (A2+B2)) - ((A2*B2)/N2) );
+		check("pixel_measure_ari",ARI);
+		return ARI;
+	}
+
+	public double pixel_measure_ri(ContingencyTable t) throws Exception
+	{
+		double Nij = t.cellPairs(), A2 = t.rowPairs(), B2 = t.colPairs(), N2 = t.pairs();
+		double RI = 1 + (((2*Nij) - (A2+B2)) / N2);		// = 2Nij - A2 - B2 while exact; symmetric in A2, B2
+		check("pixel_measure_ri",RI);
+		return RI;
+	}
+
+//////////////////////////////////////////////////////////////////////////////////
+// SUPPORT METHODS
+//////////////////////////////////////////////////////////////////////////////////
+
+	/*
+	 *  Support method for metric implementations
+	 *  description: 	Unboxes a histogram received from a descriptor.
+	 */
+	public double[] toPrimitive(final Double[] h) throws Exception {
+		if ( h == null ) throw new SingularityTreatmentException("toPrimitive: first argument null value");
+		int len = h.length;
+		double[] r = new double[len];
+		for (int i=0; i < len; i++) {
+			if ( h[i] == null ) throw new SingularityTreatmentException("toPrimitive: element " + i + " null value");
+			r[i] = h[i];
+		}
+		return r;
+	}
+
+	/*
+	 *  Support method for metric implementations
+	 *  description: 	Normalizes a raw histogram to relative frequencies, as MathOpsE.normalizeHistogram(Double[]).
+	 */
+	public double[] normalizeHistogram(final double[] h) throws Exception {
+		if ( validation == ValidationPolicy.OFF ) {
+			if ( h == null ) throw new SingularityTreatmentException("normalizeHistogram: first argument null value");
+		}
+		else
+			chkargs("normalizeHistogram",h);
+		double total = 0;
+		int len = h.length;
+		for (int i=0; i < len; i++) {
+			if ( h[i] != 0 ) {
+				total += h[i];
+			}
+		}
+		check("normalizeHistogram",total);
+		double[] r = new double[len];
+		for (int i=0; i < len; i++) {
+			r[i] = div(h[i], total);
+		}
+		return r;
+	}
+
+//////////////////////////////////////////////////////////////////////////////////
+// Error checks
+//////////////////////////////////////////////////////////////////////////////////
+
+	/*
+	 *  Kernel entry check: the arguments' presence and lengths always, their elements only under
+	 *  ValidationPolicy.STRICT.
+	 */
+	boolean chkinputs( String methodName, double[] a, double[] b ) throws Exception {
+		if ( validation == ValidationPolicy.STRICT ) return chkargs(methodName, a, b);
+		if ( a == null ) throw new SingularityTreatmentException(methodName  + ": first argument null value");
+		if ( b == null ) throw new SingularityTreatmentException(methodName  + ": second argument null value");
+		if ( a.length != b.length ) throw new MathCompatibilityException(methodName  + ": argument lengths differ (" + a.length + " vs " + b.length + ")");
+		return true;
+	}
+
+	public static boolean chkargs( String methodName, double[] a ) throws Exception {
+		if ( a == null ) throw new SingularityTreatmentException(methodName  + ": first argument null value");
+		int len = a.length;
+		for (int i=0; i < len; i++) {
+			chkresult(methodName, a[i]);
+		}
+		return true;	// if we get here, we've had no exceptions.
+	}
+
+	public static boolean chkargs( String methodName, double[] a, double[] b ) throws Exception {
+		if ( a == null ) throw new SingularityTreatmentException(methodName  + ": first argument null value");
+		if ( b == null ) throw new SingularityTreatmentException(methodName  + ": second argument null value");
+		if ( a.length != b.length ) throw new MathCompatibilityException(methodName  + ": argument lengths differ (" + a.length + " vs " + b.length + ")");
+		chkargs(methodName,a);
+		chkargs(methodName,b);
+		return true;	// if we get here, we've had no exceptions.
+	}
+
+	/*
+	 *  Result check of the kernels and their operations: as chkresult, or, on a quiet instance, raises the
+	 *  shared MeasureStatus.Failure of the value's status, which builds no message and no stack trace.
+	 */
+	void check( String methodName, double a ) throws Exception {
+		if ( !quiet ) chkresult(methodName, a);
+		else {
+			int status = MeasureStatus.of(a);
+			if ( status != MeasureStatus.OK ) throw MeasureStatus.failure(status);
+		}
+	}
+
+	public static boolean chkresult( String methodName, double a ) throws Exception {
+		if ( Double.isNaN(a) ) throw new HWIndependenceException(methodName  + ": NAN indeterminate value");
+		if ( a == Double.POSITIVE_INFINITY ) throw new SingularityTreatmentException(methodName  + ": POSITIVE_INFINITY value");
+		if ( a == Double.NEGATIVE_INFINITY ) throw new SingularityTreatmentException(methodName  + ": NEGATIVE_INFINITY value");
+		return true;	// if we get here, we've had no exceptions.
+	}
+
+}
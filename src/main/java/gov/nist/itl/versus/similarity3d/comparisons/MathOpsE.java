@@ -19,6 +19,7 @@
  *
  *	description:	Each assumes 2 probability distribution functions (1D vector PDFs) as input and generates a single numerical output.
  *					Is called by appropriate related class in gov.nist.itl.versus.similarity.comparisons.measure.impl.* .
+ *					Holds no state: an instance may be shared by any number of threads.
  *  
  *  @author 		B. Long
  *  version:		1.0
@@ -2540,8 +2541,6 @@ public class MathOpsE
 		    
 		    chkresult("pixel_measure_ari",ARI);
 		   
-		    _ARI=ARI;
-		    _RI = RI;
 		    
 		  return ARI;
 	  }
@@ -3046,8 +3045,6 @@ public class MathOpsE
 		    
 		    chkresult("pixel_measure_ri",ARI);
 		    
-		    _ARI=ARI;
-		    _RI = RI;
 		    
 		  return RI;	  
 	}		  
@@ -3230,11 +3227,6 @@ public class MathOpsE
 		 *  version:		1.0
 		 */		
 		
-	public static Double _TEE = 0.0;
-	public static Double _TET = 0.0;
-	public static Double _ARI = 0.0;
-	public static Double _RI  = 0.0;
-	
 	public Double pixel_measure_tee_nD( Double[] im1, Double[] im2 ) throws Exception
 	{
  	 chkargs("pixel_measure_tee",im1,im2);
@@ -3289,8 +3281,6 @@ public class MathOpsE
          tee = div(cN_TE,c_E);	
        }
        
-       _TEE=tee;
-       _TET=tet;
        
 	        Double r = new Double(tee);
 	        
@@ -3358,8 +3348,6 @@ public class MathOpsE
          tee = div(cN_TE,c_E);	
        }
        
-       _TEE=tee;
-       _TET=tet;
        
 	        Double r = new Double(tet);
 	        
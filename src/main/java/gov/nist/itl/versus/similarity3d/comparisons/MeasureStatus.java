@@ -0,0 +1,105 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Outcome of one measure on one pair as a primitive code, so that hot loops can report a
+ *					singular or undefined result without building an exception for it. UNDEFINED is what
+ *					MathKernels reports as HWIndependenceException (a NaN value), SINGULAR what it reports as
+ *					SingularityTreatmentException (an infinite or null value); anything else is FAILED.
+ *
+ *					A quiet MathKernels (see MathKernels(boolean)) raises the shared Failure of the status
+ *					instead of a new exception: it carries only the status name and no stack trace, so
+ *					throwing it allocates nothing. exception() turns a status back into the exception type
+ *					the loud kernels raise, for callers at the Versus API boundary.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import gov.nist.itl.versus.similarity3d.comparisons.exception.HWIndependenceException;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.SingularityTreatmentException;
+
+public final class MeasureStatus
+{
+	public final static int OK			= 0;
+	public final static int UNDEFINED	= 1;	// NaN
+	public final static int SINGULAR	= 2;	// infinite or null
+	public final static int FAILED		= 3;	// any other error
+	public final static int COUNT		= 4;
+
+	private final static Failure[] FAILURES = { null, new Failure(UNDEFINED), new Failure(SINGULAR), new Failure(FAILED) };
+
+	private MeasureStatus() {}
+
+	// status of a checked value: OK when finite
+	public static int of(double a) {
+		if ( a != a ) return UNDEFINED;
+		if ( a == Double.POSITIVE_INFINITY || a == Double.NEGATIVE_INFINITY ) return SINGULAR;
+		return OK;
+	}
+
+	// status an exception stands for; OK for null
+	public static int of(Throwable e) {
+		if ( e == null ) return OK;
+		if ( e instanceof Failure ) return ((Failure)e).status;
+		if ( e instanceof HWIndependenceException ) return UNDEFINED;
+		if ( e instanceof SingularityTreatmentException ) return SINGULAR;
+		return FAILED;
+	}
+
+	// the shared Failure of a status other than OK
+	public static Failure failure(int status) {
+		if ( status <= OK || status >= COUNT ) throw new IllegalArgumentException("no failure for status " + status);
+		return FAILURES[status];
+	}
+
+	/*
+	 * A new exception of the type MathKernels raises for the status, with the given message; null for OK.
+	 */
+	public static Exception exception(int status, String message) {
+		switch (status) {
+			case OK:		 return null;
+			case UNDEFINED:	 return new HWIndependenceException(message + ": NAN indeterminate value");
+			case SINGULAR:	 return new SingularityTreatmentException(message + ": infinite value");
+			default:		 return new Exception(message + ": failed");
+		}
+	}
+
+	public static String name(int status) {
+		switch (status) {
+			case OK:		 return "OK";
+			case UNDEFINED:	 return "UNDEFINED";
+			case SINGULAR:	 return "SINGULAR";
+			case FAILED:	 return "FAILED";
+			default:		 return "status " + status;
+		}
+	}
+
+	/*
+	 * Raised by quiet kernels; one immutable instance per status, shared by all threads.
+	 */
+	public final static class Failure extends Exception {
+		private final int status;
+
+		private Failure(int status) {
+			super(name(status), null);
+			this.status = status;
+		}
+
+		public int getStatus() { return status; }
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this;		// no stack trace to fill, or to share between threads
+		}
+	}
+}
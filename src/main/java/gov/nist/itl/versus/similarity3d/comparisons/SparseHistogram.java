@@ -0,0 +1,63 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	The non-empty bins of a histogram, as (index, value) pairs in ascending index order. A 16 bit
+ *					CT histogram has 65536 bins of which typically a few thousand are non-empty; walking two of
+ *					them by merge-join (see HistogramSweep) visits only the bins where either is non-empty, in
+ *					the same order as a dense walk, so every term that is exactly 0 on an empty/empty bin sums
+ *					to the same bits. Immutable; may be shared.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+public class SparseHistogram
+{
+	final int[] index;
+	final double[] value;
+	private final int length;
+
+	private SparseHistogram(int[] index, double[] value, int length) {
+		this.index = index;
+		this.value = value;
+		this.length = length;
+	}
+
+	// keeps every bin that is not 0 (NaN bins are kept)
+	public static SparseHistogram of(double[] h)
+	{
+		int n = 0;
+		for (double v : h) if ( v != 0d ) n++;
+		int[] index = new int[n];
+		double[] value = new double[n];
+		for (int i=0, k=0; i < h.length; i++) {
+			if ( h[i] != 0d ) { index[k] = i; value[k] = h[i]; k++; }
+		}
+		return new SparseHistogram(index, value, h.length);
+	}
+
+	public int getLength()        { return length; }			// bins of the dense histogram
+	public int size()             { return index.length; }		// non-empty bins
+	public int getIndex(int k)    { return index[k]; }
+	public double getValue(int k) { return value[k]; }
+
+	public double density() {
+		return length == 0 ? 0d : (double)index.length / length;
+	}
+
+	public double[] toDense() {
+		double[] h = new double[length];
+		for (int k=0; k < index.length; k++) h[index[k]] = value[k];
+		return h;
+	}
+}
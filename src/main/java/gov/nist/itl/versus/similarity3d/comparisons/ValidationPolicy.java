@@ -0,0 +1,38 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	When MathKernels scans whole input arrays for NaN and infinite values (chkargs), given to
+ *					each MathKernels and BatchMeasureEvaluator instance (STRICT unless given). Every element-wise
+ *					operation still checks its own scalar result under any policy, so x/0 and ln 0 are reported
+ *					as before and a NaN bin raises when a kernel reaches it. Without the scan, a term that fails
+ *					in an earlier bin is reported first instead (as when several terms fail under STRICT), and an
+ *					infinite bin that only meets min() may go unnoticed. That is why, under ENTRY_ONLY, a
+ *					BatchMeasureEvaluator has each descriptor's histogram scanned once (see
+ *					VoxelHistogramDescriptor.isValidated()) and skips the kernels' scan only for pairs whose
+ *					descriptors have both been scanned.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+public enum ValidationPolicy
+{
+	STRICT,			// every kernel and sweep scans both histograms on entry (the default)
+	ENTRY_ONLY,		// each descriptor's histogram is scanned once; kernels skip the scan for such pairs
+	OFF;			// no scans; invalid values surface through the per-operation checks
+
+	// parses a config value: strict, entry_only (or entry-only), off
+	public static ValidationPolicy parse(String s) {
+		return valueOf(s.trim().toUpperCase().replace('-', '_'));
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Reads a flat voxel buffer in ImageStack order (voxel (x,y,z) at (z*h + y)*w + x, see
+ *					HasVoxelBuffer) one slice at a time, rearranged into the z, x, y order of the [z][x][y]
+ *					volumes (see VoxelToArrayFeature.voxelsToArray()), so the volume, its VoxelMask and its
+ *					labels can all be built from the buffer by the same walk. The buffers' positions are not
+ *					changed.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.nio.FloatBuffer;
+
+public final class VoxelBuffers
+{
+	private VoxelBuffers() {}
+
+	/*
+	 *  Reads the next w*h voxels of buf into slice, and writes them to columns in x, y order: voxel (x,y)
+	 *  goes to columns[x*h + y]. slice and columns hold at least w*h floats.
+	 */
+	public static void nextSlice(FloatBuffer buf, int w, int h, float[] slice, float[] columns)
+	{
+		buf.get(slice, 0, w*h);
+		for (int x=0; x < w; x++) {
+			for (int y=0, i=x, j=x*h; y < h; y++, i+=w, j++) {
+				columns[j] = slice[i];
+			}
+		}
+	}
+
+	/*
+	 *  The w*h*d voxels from buf's position as a [z][x][y] volume.
+	 */
+	public static double[][][] toArray(FloatBuffer buf, int w, int h, int d)
+	{
+		FloatBuffer b = buf.duplicate();
+		float[] slice = new float[w*h], columns = new float[w*h];
+		double[][][] pixels = new double[d][w][h];
+		for (int z=0; z < d; z++) {
+			nextSlice(b, w, h, slice, columns);
+			for (int x=0; x < w; x++) {
+				double[] column = pixels[z][x];
+				for (int y=0, j=x*h; y < h; y++, j++) {
+					column[y] = columns[j];
+				}
+			}
+		}
+		return pixels;
+	}
+}
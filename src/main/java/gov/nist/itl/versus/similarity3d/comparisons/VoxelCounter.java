@@ -0,0 +1,92 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Counts everything the voxel measures need from two equally sized volumes fed
+ *					in pieces (slices or chunks), so neither volume is ever held whole: the overlap
+ *					counts |A|, |B| and |A and B| of the binarized volumes (voxel > 0, as VoxelMask), and
+ *					optionally their ContingencyTable (see ContingencyTable.Counter). Memory is one
+ *					chunk per volume plus the table's distinct labels and cells. The counts equal those
+ *					from VoxelMask and ContingencyTable.build() on the whole volumes, so the measures
+ *					finished from them are bit-identical. NaN and infinite voxels raise as
+ *					VoxelMask.threshold does. A VoxelCounter holds the state of one pair and is not
+ *					thread-safe.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.nio.FloatBuffer;
+
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+
+public class VoxelCounter
+{
+	public final static int CHUNK = 64 * 1024;	// voxels read per volume per step by count()
+
+	private final ContingencyTable.Counter table;	// null when not counted
+	private long overlap, size1, size2, n;
+
+	public VoxelCounter(boolean contingency) {
+		this.table = contingency ? new ContingencyTable.Counter() : null;
+	}
+
+	/*
+	 *  Adds voxels 0..length-1 of one piece of each volume; pieces must come in the same order for both.
+	 */
+	public void add(float[] values1, float[] values2, int length) throws Exception
+	{
+		long o = 0, s1 = 0, s2 = 0;
+		for (int i=0; i < length; i++) {
+			float v1 = values1[i], v2 = values2[i];
+			MathKernels.chkresult("VoxelCounter.add", v1);
+			MathKernels.chkresult("VoxelCounter.add", v2);
+			boolean a = v1 > 0, b = v2 > 0;
+			if ( a ) s1++;
+			if ( b ) s2++;
+			if ( a && b ) o++;
+		}
+		overlap += o;
+		size1 += s1;
+		size2 += s2;
+		n += length;
+		if ( table != null ) table.add(values1, values2, length);
+	}
+
+	/*
+	 *  Streams two buffers of equal length through add(), CHUNK voxels at a time, from their positions to
+	 *  their limits. The buffers' positions are not changed.
+	 */
+	public void count(FloatBuffer voxels1, FloatBuffer voxels2) throws Exception
+	{
+		if ( voxels1.remaining() != voxels2.remaining() )
+			throw new MathCompatibilityException("VoxelCounter.count: lengths differ (" + voxels1.remaining() + " vs " + voxels2.remaining() + ")");
+		FloatBuffer b1 = voxels1.duplicate(), b2 = voxels2.duplicate();
+		float[] c1 = new float[Math.min(CHUNK, b1.remaining())], c2 = new float[c1.length];
+		while ( b1.hasRemaining() ) {
+			int k = Math.min(c1.length, b1.remaining());
+			b1.get(c1, 0, k);
+			b2.get(c2, 0, k);
+			add(c1, c2, k);
+		}
+	}
+
+	public long size()    { return n; }			// voxels counted
+	public long overlap() { return overlap; }	// |A and B|
+	public long size1()   { return size1; }		// |A|
+	public long size2()   { return size2; }		// |B|
+
+	public ContingencyTable table() throws Exception {
+		if ( table == null ) throw new IllegalStateException("VoxelCounter: contingency table not counted");
+		return table.table();
+	}
+}
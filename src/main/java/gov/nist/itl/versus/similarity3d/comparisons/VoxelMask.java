@@ -0,0 +1,125 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	Binary voxel volume packed 64 voxels to a long. A voxel is set when its value is > 0, which is
+ *					the binarization MathOpsE applies (pvrel_greaterThan(v, 0) / logical(v)) before its voxel
+ *					overlap measures. Set-operation counts (|A and B|, |A or B|, |A and not B|) are taken
+ *					word by word with Long.bitCount, without materializing the combined volume.
+ *					Bits past length() in the last word are always clear.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.nio.FloatBuffer;
+
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.SingularityTreatmentException;
+
+public class VoxelMask
+{
+	private final long[] bits;
+	private final int length;
+	private final int cardinality;
+
+	private VoxelMask(long[] bits, int length) {
+		this.bits = bits;
+		this.length = length;
+		int c = 0;
+		for (long w : bits) c += Long.bitCount(w);
+		this.cardinality = c;
+	}
+
+	/*
+	 *  Thresholds a volume indexed [z][x][y], in the z, x, y order of VoxelToArrayFeature.voxelsToArray().
+	 *  NaN and infinite voxels raise as MathOpsE.chkargs does.
+	 */
+	public static VoxelMask threshold(double[][][] values) throws Exception
+	{
+		if ( values == null ) throw new SingularityTreatmentException("VoxelMask.threshold: first argument null value");
+		long n = 0;
+		for (double[][] slice : values)
+			for (double[] column : slice) n += column.length;
+		if ( n > Integer.MAX_VALUE ) throw new MathCompatibilityException("VoxelMask.threshold: volume too large (" + n + " voxels)");
+
+		long[] bits = new long[(int)((n + 63) >>> 6)];
+		int i = 0;
+		for (double[][] slice : values) {
+			for (double[] column : slice) {
+				for (double v : column) {
+					MathKernels.chkresult("VoxelMask.threshold", v);
+					if ( v > 0 ) bits[i >>> 6] |= 1L << i;		// shift count is taken mod 64
+					i++;
+				}
+			}
+		}
+		return new VoxelMask(bits, (int)n);
+	}
+
+	/*
+	 *  Thresholds the w*h*d voxels of a buffer in ImageStack order (see HasVoxelBuffer), in the same z, x, y
+	 *  order, so the mask equals that of the volume VoxelBuffers.toArray() would build.
+	 */
+	public static VoxelMask threshold(FloatBuffer voxels, int w, int h, int d) throws Exception
+	{
+		if ( voxels == null ) throw new SingularityTreatmentException("VoxelMask.threshold: first argument null value");
+		long n = (long)w * h * d;
+		if ( n > Integer.MAX_VALUE ) throw new MathCompatibilityException("VoxelMask.threshold: volume too large (" + n + " voxels)");
+
+		long[] bits = new long[(int)((n + 63) >>> 6)];
+		FloatBuffer b = voxels.duplicate();
+		float[] slice = new float[w*h], columns = new float[w*h];
+		for (int z=0, i=0; z < d; z++) {
+			VoxelBuffers.nextSlice(b, w, h, slice, columns);
+			for (int k=0; k < columns.length; k++, i++) {
+				double v = columns[k];
+				MathKernels.chkresult("VoxelMask.threshold", v);
+				if ( v > 0 ) bits[i >>> 6] |= 1L << i;		// shift count is taken mod 64
+			}
+		}
+		return new VoxelMask(bits, (int)n);
+	}
+
+	public int length()      { return length; }
+	public int cardinality() { return cardinality; }
+
+	// |this and other|
+	public int andCount(VoxelMask other) throws Exception {
+		chklength("andCount", other);
+		int c = 0;
+		for (int w=0; w < bits.length; w++) c += Long.bitCount(bits[w] & other.bits[w]);
+		return c;
+	}
+
+	// |this or other|
+	public int orCount(VoxelMask other) throws Exception {
+		chklength("orCount", other);
+		int c = 0;
+		for (int w=0; w < bits.length; w++) c += Long.bitCount(bits[w] | other.bits[w]);
+		return c;
+	}
+
+	// |this and not other|
+	public int andNotCount(VoxelMask other) throws Exception {
+		chklength("andNotCount", other);
+		int c = 0;
+		for (int w=0; w < bits.length; w++) c += Long.bitCount(bits[w] & ~other.bits[w]);
+		return c;
+	}
+
+	private void chklength(String methodName, VoxelMask other) throws Exception {
+		if ( other == null ) throw new MathCompatibilityException("VoxelMask." + methodName + ": null argument");
+		if ( other.length != length )
+			throw new MathCompatibilityException("VoxelMask." + methodName + ": lengths differ (" + length + " vs " + other.length + ")");
+	}
+}
@@ -0,0 +1,35 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  Voxels as one flat, contiguous primitive buffer, so that extractors can copy them in bulk
+ *  instead of calling getValue(x,y,z) per voxel.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.adapter;
+
+import java.nio.FloatBuffer;
+
+public interface HasVoxelBuffer extends HasVoxels
+{
+	/*
+	 * Returns a read-only view, positioned at 0, of the getWidth()*getHeight()*getDepth() voxels in
+	 * ImageStack order: voxel (x,y,z) is at index (z*getHeight() + y)*getWidth() + x.
+	 */
+	public FloatBuffer getVoxelBuffer();
+
+	/*
+	 * Returns the voxel size along x, y and z, 1 where it is not known.
+	 */
+	public double[] getSpacing();
+}
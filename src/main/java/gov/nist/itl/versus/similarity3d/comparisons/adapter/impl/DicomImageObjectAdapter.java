@@ -21,6 +21,7 @@ import ij.IJ;
 
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.measure.Calibration;
 import ij.plugin.FolderOpener;
 import ij.process.ImageProcessor;
 
@@ -28,6 +29,7 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -42,6 +44,9 @@ import edu.illinois.ncsa.versus.utility.HasCategory;
 import edu.illinois.ncsa.versus.adapter.Adapter;
 import edu.illinois.ncsa.versus.adapter.FileLoader;
 import edu.illinois.ncsa.versus.adapter.StreamLoader;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramBuilder;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelBuffers;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxels;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
 
@@ -49,16 +54,21 @@ public class DicomImageObjectAdapter
 	implements 
 		Adapter
 		,HasVoxels
+		,HasVoxelBuffer
 		,HasHistogram
 		,HasCategory
 		,FileLoader
 		,StreamLoader
 {	
 	private ImagePlus image;
+	private File file;				// see getFile()
 	private short[] pixels;
 	private int w, h, d;
-	private Double[] histogram;
-	private VolumeFloat v;
+	private long[] counts;			// whole-volume histogram, see init()
+	private Double[] histogram;		// counts boxed on first use
+	private float[] voxels;		// see getVoxelBuffer()
+	private HistogramBuilder histogramBuilder = null;
+	private int histogramThreads = Runtime.getRuntime().availableProcessors();	// for the default builder
 	
 	public DicomImageObjectAdapter()
 	{
@@ -82,6 +92,7 @@ public class DicomImageObjectAdapter
             }
         }
         init();
+        this.file = file;
     }
 
     @Override
@@ -95,6 +106,7 @@ public class DicomImageObjectAdapter
             stream.close();
         }
         load(file);
+        this.file = null;		// a temporary copy
         try {
             file.delete();
         } catch (Exception e) {
@@ -107,6 +119,7 @@ public class DicomImageObjectAdapter
 	{
 		image = FolderOpener.open( dir.getAbsolutePath() );		
 		init();
+		file = null;
 	}
 	
 	public void init()
@@ -117,16 +130,107 @@ public class DicomImageObjectAdapter
 		w = image.getWidth();
 		h = image.getHeight();
 		d = image.getStackSize();
-		histogram =int2Double( p.getHistogram() );
-		if ( d > 1 ) 
-			v = new VolumeFloat(stk);
+		voxels = ( d > 1 ) ? stackToVoxels(stk, w, h, d) : processorToVoxels(p, w, h);
+		histogram = null;
+		if ( histogramBuilder != null ) {
+			Calibration c = image.getCalibration();
+			double intercept = c.getCValue(0.0d);
+			counts = histogramBuilder.build(getVoxelBuffer(), w*h, intercept, c.getCValue(1.0d) - intercept);
+		}
 		else
-			v = new VolumeFloat(p);
+			counts = defaultHistogramBuilder().build(getVoxelBuffer(), w*h);
+	}
+
+	/*
+	 * Bins and range of the histogram built by the next load, in calibrated units (e.g. Hounsfield units
+	 * for CT, which may be negative); for an uncalibrated image these are the raw pixel values. Without
+	 * one, the histogram has ImageJ's bins for the pixel type, over raw values.
+	 */
+	public void setHistogramBuilder(HistogramBuilder b) {
+		histogramBuilder = b;
+	}
+
+	/*
+	 * Threads the default histogram of the next load is counted on (see HistogramBuilder); 1 when loads
+	 * already run on several threads, as in an all-pairs run.
+	 */
+	public void setHistogramThreads(int threads) {
+		histogramThreads = threads;
+	}
+
+	/*
+	 * ImageJ's bins: one per raw value for 8 and 16 bit (and RGB, as luminance), 256 over the data's
+	 * range for float. Unlike ImageProcessor.getHistogram() the counts cover every slice.
+	 */
+	private HistogramBuilder defaultHistogramBuilder()
+	{
+		switch ( image.getBitDepth() ) {
+			case 8:
+			case 24:
+				return new HistogramBuilder(256, 0, 256, histogramThreads);
+			case 16:
+				return new HistogramBuilder(65536, 0, 65536, histogramThreads);
+			default:
+				float lo = Float.POSITIVE_INFINITY, hi = Float.NEGATIVE_INFINITY;
+				for (float v : voxels) {
+					if ( v < lo ) lo = v;
+					if ( v > hi ) hi = v;
+				}
+				if ( !(lo <= hi) || Float.isInfinite(lo) || Float.isInfinite(hi) ) { lo = 0; hi = 0; }
+				return new HistogramBuilder(256, lo, hi > lo ? hi : lo + 1, histogramThreads);
+		}
+	}
+
+	/*
+	 * Copies the slices' pixel arrays into one float[] in ImageStack order, with the raw (uncalibrated)
+	 * pixel values as ImageJ stores them: unsigned 8 and 16 bit, float as is.
+	 */
+	private static float[] stackToVoxels(ImageStack stk, int w, int h, int d)
+	{
+		float[] vox = new float[w*h*d];
+		for (int z=0; z < d; z++)
+			copySlice(stk.getPixels(z+1), stk.getProcessor(z+1), w, h, vox, z*w*h);
+		return vox;
+	}
+
+	private static float[] processorToVoxels(ImageProcessor p, int w, int h)
+	{
+		float[] vox = new float[w*h];
+		copySlice(p.getPixels(), p, w, h, vox, 0);
+		return vox;
+	}
+
+	private static void copySlice(Object pixels, ImageProcessor p, int w, int h, float[] vox, int offset)
+	{
+		int n = w*h;
+		if ( pixels instanceof short[] ) {
+			short[] s = (short[]) pixels;
+			for (int i=0; i < n; i++) vox[offset+i] = s[i] & 0xffff;
+		}
+		else if ( pixels instanceof byte[] ) {
+			byte[] b = (byte[]) pixels;
+			for (int i=0; i < n; i++) vox[offset+i] = b[i] & 0xff;
+		}
+		else if ( pixels instanceof float[] ) {
+			System.arraycopy((float[]) pixels, 0, vox, offset, n);
+		}
+		else {		// e.g. RGB: let the processor convert
+			for (int y=0; y < h; y++)
+				for (int x=0; x < w; x++)
+					vox[offset + y*w + x] = p.getPixelValue(x,y);
+		}
 	}
 	
-	public Double[] getHistogram(){ return histogram; }
-	public int getLength() { return histogram.length; }
+	public Double[] getHistogram() {
+		if ( histogram == null ) histogram = HistogramBuilder.toDouble(counts);
+		return histogram;
+	}
+	public int getLength() { return counts.length; }
+	public long[] getHistogramCounts() { return counts; }
 	
+	// the file the volume was loaded from, so it can be decoded again; null for streams and directories
+	public File getFile() { return file; }
+
 	public short[] getPixels() { return pixels; }
 	public ImagePlus image(){ return image; }
 	public ImageProcessor imageProcessor(){ return image.getProcessor(); }
@@ -138,18 +242,19 @@ public class DicomImageObjectAdapter
 	public int getDepth() { return d; }
 	
 ///////////////////////////////////////////////////	
+	public FloatBuffer getVoxelBuffer() {
+		return FloatBuffer.wrap(voxels).asReadOnlyBuffer();
+	}
+
+	public double[] getSpacing() {
+		Calibration c = image.getCalibration();
+		return new double[] { c.pixelWidth, c.pixelHeight, c.pixelDepth };
+	}
+
 	public double getValue(int x, int y, int z ) {
-		if ( v==null )
-			System.out.println("v==null");
-		Float f = null;
-		try {
-			f = ((Float)v.get(x,y,z));
-		}
-		catch(Exception e){ System.out.println("DEBUG: problem in getValue = [" + e + "]" ); }
-		if ( f == null ) 
+		if ( x < 0 || x >= w || y < 0 || y >= h || z < 0 || z >= d )
 			return 0.0d;
-		else
-			return f.doubleValue();
+		return voxels[(z*h + y)*w + x];
 	}
 	
 	public double getRGBPixel(int row, int col, int slice) {
@@ -162,18 +267,7 @@ public class DicomImageObjectAdapter
 	
 	public double[][][] getValues() 
 	{
-		int w = getWidth();
-		int h = getHeight();
-		int d = getDepth();
-		double[][][] pixels = new double[d][w][h];
-		for (int z=0; z < d; z++) {
-			for (int y=0; y < h; y++) {
-				for (int x=0; x < w; x++) {
-					pixels[z][x][y] = getValue(x,y,z);
-				}
-			}
-		}
-		return pixels;
+		return VoxelBuffers.toArray(getVoxelBuffer(), w, h, d);
 	}
 	
 ///////////////////////////////////////////////////
@@ -197,6 +291,7 @@ public class DicomImageObjectAdapter
 	}
 	
 	public double[][][] to3dPixelArray() {
+		VolumeFloat v = ( d > 1 ) ? new VolumeFloat(imageStack()) : new VolumeFloat(imageProcessor());
 		float[][][] _3dpixels = v.getVolume();
 		int _d=0, _w=0, _h=0;
 		_d = _3dpixels.length;
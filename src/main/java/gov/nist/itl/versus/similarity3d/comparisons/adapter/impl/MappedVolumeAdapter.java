@@ -0,0 +1,171 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  Adapter over a RawVolumeFile. The voxels are memory-mapped read-only, so loading reads only the
+ *  header; pages are read when first touched and are shared through the OS page cache with every
+ *  other process mapping the same file.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.adapter.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.illinois.ncsa.versus.adapter.Adapter;
+import edu.illinois.ncsa.versus.adapter.FileLoader;
+import edu.illinois.ncsa.versus.utility.HasCategory;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelBuffers;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxels;
+
+public class MappedVolumeAdapter
+	implements
+		Adapter
+		,HasVoxels
+		,HasVoxelBuffer
+		,HasHistogram
+		,HasCategory
+		,FileLoader
+{
+	private int w, h, d;
+	private double[] spacing;
+	private Double[] histogram;
+	private String source;			// see RawVolumeFile.write()
+	private FloatBuffer voxels;		// read-only view of the mapping, position 0
+
+	public MappedVolumeAdapter()
+	{
+	}
+
+	public void load(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			ByteBuffer fixed = read(ch, 0, RawVolumeFile.MAGIC.length + 4 + 4 + 3*4 + 3*8 + 4);
+			byte[] magic = new byte[RawVolumeFile.MAGIC.length];
+			fixed.get(magic);
+			if ( !Arrays.equals(magic, RawVolumeFile.MAGIC) ) throw new IOException("Not a raw volume file: " + file);
+			int version = fixed.getInt();
+			if ( version != RawVolumeFile.VERSION ) throw new IOException("Unsupported raw volume version " + version + ": " + file);
+			int type = fixed.getInt();
+			if ( type != RawVolumeFile.FLOAT32 ) throw new IOException("Unsupported raw volume voxel type " + type + ": " + file);
+			w = fixed.getInt();
+			h = fixed.getInt();
+			d = fixed.getInt();
+			spacing = new double[] { fixed.getDouble(), fixed.getDouble(), fixed.getDouble() };
+			int bins = fixed.getInt();
+			if ( w < 0 || h < 0 || d < 0 || bins < 0 ) throw new IOException("Corrupt raw volume header: " + file);
+
+			ByteBuffer rest = read(ch, fixed.capacity(), 8L*bins + 4);
+			histogram = new Double[bins];
+			for (int i=0; i < bins; i++) histogram[i] = rest.getDouble();
+			int keyBytes = rest.getInt();
+			if ( keyBytes < 0 ) throw new IOException("Corrupt raw volume header: " + file);
+			ByteBuffer tail = read(ch, fixed.capacity() + rest.capacity(), keyBytes + 8L);
+			byte[] key = new byte[keyBytes];
+			tail.get(key);
+			source = new String(key, "UTF-8");
+			long dataOffset = tail.getLong();
+
+			// each factor is checked before it is multiplied in, so a corrupt size cannot overflow
+			long bytes = 4L * w;
+			if ( h > 0 && bytes > RawVolumeFile.MAX_VOXEL_BYTES / h ) throw new IOException("Corrupt raw volume header: " + file);
+			bytes *= h;
+			if ( d > 0 && bytes > RawVolumeFile.MAX_VOXEL_BYTES / d ) throw new IOException("Corrupt raw volume header: " + file);
+			bytes *= d;
+			long headerEnd = fixed.capacity() + rest.capacity() + tail.capacity();
+			if ( bytes > RawVolumeFile.MAX_VOXEL_BYTES || dataOffset < headerEnd || dataOffset > ch.size() - bytes )
+				throw new IOException("Corrupt raw volume header: " + file);
+			voxels = ch.map(FileChannel.MapMode.READ_ONLY, dataOffset, bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		}
+		finally {
+			raf.close();		// the mapping stays valid
+		}
+	}
+
+	private static ByteBuffer read(FileChannel ch, long position, long length) throws IOException
+	{
+		if ( length > Integer.MAX_VALUE ) throw new IOException("Corrupt raw volume header");
+		if ( length > ch.size() - position ) throw new IOException("Truncated raw volume file");	// before allocating for a corrupt length
+		ByteBuffer b = ByteBuffer.allocate((int)length).order(ByteOrder.LITTLE_ENDIAN);
+		while ( b.hasRemaining() ) {
+			if ( ch.read(b, position + b.position()) < 0 ) throw new IOException("Truncated raw volume file");
+		}
+		b.flip();
+		return b;
+	}
+
+	public String getSource() { return source; }		// what the volume was made from, "" if not recorded
+
+	public Double[] getHistogram(){ return histogram; }
+	public int getLength() { return histogram.length; }
+
+///////////////////////////////////////////////////
+	public int getWidth() { return w; }
+	public int getHeight(){ return h; }
+	public int getDepth() { return d; }
+
+	public FloatBuffer getVoxelBuffer() {
+		return voxels.duplicate();
+	}
+
+	public double[] getSpacing() {
+		return spacing.clone();
+	}
+
+///////////////////////////////////////////////////
+	public double getValue(int x, int y, int z ) {
+		if ( x < 0 || x >= w || y < 0 || y >= h || z < 0 || z >= d )
+			return 0.0d;
+		return voxels.get((z*h + y)*w + x);
+	}
+
+	public double getRGBPixel(int row, int col, int slice) {
+		return getValue(row,col,slice);
+	}
+
+	public double[][][] getRGBPixels() {
+		return getValues();
+	}
+
+	public double[][][] getValues()
+	{
+		return VoxelBuffers.toArray(voxels, w, h, d);
+	}
+
+	public String getName() {
+		return "Mapped Raw Volume Adapter";
+	}
+
+	public List<String> getSupportedMediaTypes() {
+		List<String> mediaTypes = new ArrayList<String>();
+		mediaTypes.add("application/octet-stream");
+		return mediaTypes;
+	}
+
+	@Override
+	public String getCategory() {
+		return "3D";
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.adapter.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+
+/*
+ * Raw voxel volume, written once from a decoded adapter and memory-mapped by MappedVolumeAdapter.
+ *
+ * Layout (little-endian):
+ *     bytes   "V3DV"
+ *     int     version (2)
+ *     int     voxel type (1 = float32)
+ *     int     width, height, depth
+ *     double  spacing along x, y, z
+ *     int     H, then H doubles: the adapter's histogram
+ *     int     K, then K bytes: the source key, UTF-8 (what the volume was made from, see write())
+ *     long    offset of the voxels, a multiple of 8
+ *     ...     zero padding up to the voxels
+ *     float   width*height*depth voxels in ImageStack order, voxel (x,y,z) at index (z*height + y)*width + x
+ */
+public class RawVolumeFile
+{
+	public final static String SUFFIX = ".v3dv";
+	final static byte[] MAGIC = { 'V', '3', 'D', 'V' };
+	final static int VERSION = 2;
+	final static int FLOAT32 = 1;
+	final static long MAX_VOXEL_BYTES = Integer.MAX_VALUE;		// largest single mapping
+
+	private final static int CHUNK_FLOATS = 256 * 1024;
+
+	public static void write(String fileName, HasVoxelBuffer v, HasHistogram h) throws IOException
+	{
+		write(fileName, v, h, "");
+	}
+
+	/*
+	 * Writes the volume to a temporary file beside fileName and renames it into place, so that a
+	 * reader (possibly another process) never maps a partly written file. source identifies what the
+	 * volume was made from (e.g. file path and histogram settings); MappedVolumeAdapter.getSource()
+	 * returns it, so a reader can tell a file cached for another source from its own.
+	 */
+	public static void write(String fileName, HasVoxelBuffer v, HasHistogram h, String source) throws IOException
+	{
+		long n = (long)v.getWidth() * v.getHeight() * v.getDepth();
+		if ( 4L * n > MAX_VOXEL_BYTES ) throw new IOException("Volume too large for a raw volume file: " + n + " voxels");
+		Double[] histogram = h.getHistogram();
+		double[] spacing = v.getSpacing();
+		byte[] key = source.getBytes("UTF-8");
+
+		int headerBytes = MAGIC.length + 4 + 4 + 3*4 + 3*8 + 4 + 8*histogram.length + 4 + key.length + 8;
+		long dataOffset = (headerBytes + 7) & ~7L;
+
+		ByteBuffer header = ByteBuffer.allocate((int)dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+		header.put(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(FLOAT32);
+		header.putInt(v.getWidth()).putInt(v.getHeight()).putInt(v.getDepth());
+		for (int i=0; i < 3; i++) header.putDouble(spacing[i]);
+		header.putInt(histogram.length);
+		for (Double d : histogram) header.putDouble(d.doubleValue());
+		header.putInt(key.length).put(key);
+		header.putLong(dataOffset);
+		header.clear();
+
+		File target = new File(fileName);
+		File tmp = File.createTempFile(target.getName(), ".tmp", target.getAbsoluteFile().getParentFile());
+		RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+		try {
+			FileChannel ch = raf.getChannel();
+			while ( header.hasRemaining() ) ch.write(header);
+
+			FloatBuffer src = v.getVoxelBuffer();
+			ByteBuffer chunk = ByteBuffer.allocateDirect(4 * CHUNK_FLOATS).order(ByteOrder.LITTLE_ENDIAN);
+			FloatBuffer floats = chunk.asFloatBuffer();
+			float[] buf = new float[CHUNK_FLOATS];
+			while ( src.hasRemaining() ) {
+				int k = Math.min(buf.length, src.remaining());
+				src.get(buf, 0, k);
+				floats.clear();
+				floats.put(buf, 0, k);
+				chunk.clear();
+				chunk.limit(4 * k);
+				while ( chunk.hasRemaining() ) ch.write(chunk);
+			}
+			raf.close();
+			if ( !tmp.renameTo(target) ) {
+				target.delete();
+				if ( !tmp.renameTo(target) ) throw new IOException("Cannot rename " + tmp + " to " + target);
+			}
+		}
+		finally {
+			raf.close();
+			tmp.delete();		// no-op once renamed
+		}
+	}
+}
@@ -23,6 +23,8 @@ import ij.ImagePlus;
 import ij.ImageStack;
 import ij.process.ImageProcessor;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Vector;
 
 import edu.illinois.ncsa.versus.adapter.HasMesh;
@@ -31,7 +33,13 @@ import edu.illinois.ncsa.versus.utility.HasCategory;
 import edu.ncsa.model.Mesh;
 import edu.ncsa.model.MeshAuxiliary.Color;
 import edu.ncsa.model.MeshAuxiliary.Point;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramTransforms;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
+import gov.nist.itl.versus.similarity3d.comparisons.ValidationPolicy;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelBuffers;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxels;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.DicomImageObjectAdapter;
 
 public class VoxelHistogramDescriptor 
@@ -42,34 +50,137 @@ public class VoxelHistogramDescriptor
 {
 	public final String type = this.getClass().toString();
 
-	private double[][][] values;
-	private Double[] histogram;
+	private volatile double[][][] values;	// volatile, so a descriptor is safely visible to other threads; see voxels()
+	private final HasVoxels source;			// where a histogram-only descriptor loads its voxels from, or null
+	private final File sourceFile;			// or the DICOM file it decodes them from again, or null
+	private final int w, h, d;				// dimensions of a histogram-only descriptor
+	private final Double[] histogram;
+	private volatile double[] normalizedHistogram;		// computed on first use, see getNormalizedHistogram()
+	private volatile HistogramTransforms transforms;	// likewise, see getTransforms()
+	private volatile boolean validated;					// see isValidated()
 	private double min_voxel_value = 0.0d;
 	private double max_voxel_value;
 
 	public VoxelHistogramDescriptor() {
+		this.values = null;
+		this.source = null;
+		this.sourceFile = null;
+		this.w = this.h = this.d = 0;
+		this.histogram = null;
 	}
 
 	public VoxelHistogramDescriptor(double[][][] values) {
 		this.values = values;
+		this.source = null;
+		this.sourceFile = null;
+		this.w = this.h = this.d = 0;
+		this.histogram = null;
 	}
 	
 	public VoxelHistogramDescriptor(double[][][] values, HasHistogram a) {
 		this.values = values;
+		this.source = null;
+		this.sourceFile = null;
+		this.w = this.h = this.d = 0;
 		this.histogram =  a.getHistogram() ;
 	}	
+
+	public VoxelHistogramDescriptor(HasVoxelBuffer v, HasHistogram a) {
+		this.values = voxelsToArray(v);
+		this.source = null;
+		this.sourceFile = null;
+		this.w = this.h = this.d = 0;
+		this.histogram = a.getHistogram();
+	}
+
+	/*
+	 * Histogram-only descriptor: holds the histogram and the volume's dimensions, and the voxel volume is
+	 * not built until a voxel accessor is called (see voxels()), so histogram measures never pay for it.
+	 * A DICOM adapter loaded from a file is not kept: the file is decoded again if voxels are needed. A
+	 * MappedVolumeAdapter is kept, as it costs only its header; so is any other adapter with voxels,
+	 * which cannot be reloaded.
+	 */
+	public VoxelHistogramDescriptor(HasHistogram a) {
+		this.values = null;
+		this.histogram = a.getHistogram();
+		File file = ( a instanceof DicomImageObjectAdapter ) ? ((DicomImageObjectAdapter)a).getFile() : null;
+		this.sourceFile = file;
+		this.source = ( file == null && a instanceof HasVoxels ) ? (HasVoxels)a : null;
+		HasVoxels v = ( a instanceof HasVoxels ) ? (HasVoxels)a : null;
+		this.w = ( v != null ) ? v.getWidth() : 0;
+		this.h = ( v != null ) ? v.getHeight() : 0;
+		this.d = ( v != null ) ? v.getDepth() : 0;
+	}
 	
 
 	public VoxelHistogramDescriptor(HasMesh hm) {
 		this.values = voxelsToArray(hm.getMesh());
+		this.source = null;
+		this.sourceFile = null;
+		this.w = this.h = this.d = 0;
+		this.histogram = null;
 	}
 	
 	public VoxelHistogramDescriptor(DicomImageObjectAdapter a) {
 		this.values = voxelsToArray( a.image() );
+		this.source = null;
+		this.sourceFile = null;
+		this.w = this.h = this.d = 0;
+		this.histogram = null;
 	}
 	
 	public Double[] getHistogram(){ return histogram; }	// returns "raw" (unnormalized) histogram
 	public int getLength(){ return histogram.length; }
+
+	/*
+	 * Returns the histogram normalized to relative frequencies, computed once and cached.
+	 * The returned array is shared by every caller and must not be modified.
+	 */
+	public double[] getNormalizedHistogram() throws Exception {
+		return getNormalizedHistogram( ValidationPolicy.STRICT );
+	}
+
+	/*
+	 * As getNormalizedHistogram(), checking the histogram for NaN and infinite bins unless the policy is
+	 * OFF. The check is made once, also when the histogram was first normalized under OFF.
+	 */
+	public double[] getNormalizedHistogram(ValidationPolicy policy) throws Exception {
+		double[] h = normalizedHistogram;
+		if ( h == null ) {
+			MathKernels kernels = new MathKernels( false, policy );
+			h = kernels.normalizeHistogram( kernels.toPrimitive( histogram ) );
+			if ( policy != ValidationPolicy.OFF ) validated = true;
+			normalizedHistogram = h;
+		}
+		else if ( policy != ValidationPolicy.OFF && !validated ) {
+			MathKernels.chkargs( "normalizeHistogram", h );
+			validated = true;
+		}
+		return h;
+	}
+
+	/*
+	 * True once the histogram has been checked for NaN and infinite bins (see getNormalizedHistogram()).
+	 * Under ENTRY_ONLY, a BatchMeasureEvaluator skips the kernels' scan only when both descriptors are.
+	 */
+	public boolean isValidated() {
+		return validated;
+	}
+
+	/*
+	 * Per-bin transforms of the normalized histogram (sqrt, P ln P, ...), each computed on first use and
+	 * kept with the descriptor, so a batch evaluator forms them once per file instead of once per pair.
+	 * They are built on the histogram as already normalized, under whichever policy that was.
+	 */
+	public HistogramTransforms getTransforms() throws Exception {
+		HistogramTransforms t = transforms;
+		if ( t == null ) {
+			double[] P = normalizedHistogram;
+			t = new HistogramTransforms( P != null ? P : getNormalizedHistogram() );
+			transforms = t;
+		}
+		return t;
+	}
 	
 	@Override
 	public String getType() {
@@ -90,19 +201,54 @@ public class VoxelHistogramDescriptor
 	}
 			
 	public double getValue(int x, int y, int z) {
-		return values[z][x][y];
+		return voxels()[z][x][y];
+	}
+
+	private boolean histogramOnly() {
+		return source != null || sourceFile != null;
 	}
 
 	public int getDepth() {
-		return values.length;
+		return histogramOnly() ? d : values.length;
 	}
 
 	public int getHeight() {
-		return values[0][0].length;
+		return histogramOnly() ? h : values[0][0].length;
 	}
 
 	public int getWidth() {
-		return values[0].length;
+		return histogramOnly() ? w : values[0].length;
+	}
+
+	/*
+	 * Returns the voxel volume, loading it from the source (or decoding the source file) on first use.
+	 * The load runs under the descriptor's lock, so concurrent first callers build the volume once.
+	 */
+	private double[][][] voxels() {
+		double[][][] v = values;
+		if ( v == null && histogramOnly() ) {
+			synchronized ( this ) {
+				v = values;
+				if ( v == null ) {
+					HasVoxels a = ( source != null ) ? source : decode( sourceFile );
+					v = ( a instanceof HasVoxelBuffer ) ? voxelsToArray((HasVoxelBuffer)a) : a.getRGBPixels();
+					values = v;
+				}
+			}
+		}
+		return v;
+	}
+
+	private static HasVoxels decode(File file) {
+		DicomImageObjectAdapter a = new DicomImageObjectAdapter();
+		a.setHistogramThreads(1);
+		try {
+			a.load(file);
+		}
+		catch(IOException e) {
+			throw new IllegalStateException("Cannot load the voxels of " + file + ": " + e.getMessage(), e);
+		}
+		return a;
 	}
 
 	@Override
@@ -114,6 +260,7 @@ public class VoxelHistogramDescriptor
 	// Utility methods
 	
 	public Double[] voxelsToArray() {
+		double[][][] values = voxels();
 		int w = getWidth();
 		int h = getHeight();
 		int d = getDepth();
@@ -160,6 +307,14 @@ public class VoxelHistogramDescriptor
         return pixels;
 	}
 	
+	/*
+	 * Fills [z][x][y] from the adapter's flat buffer, one slice at a time, with no per-voxel calls.
+	 */
+	public double[][][] voxelsToArray( HasVoxelBuffer a )
+	{
+		return VoxelBuffers.toArray( a.getVoxelBuffer(), a.getWidth(), a.getHeight(), a.getDepth() );
+	}
+
 	public double[][][] voxelsToArray( ImagePlus im ) 
 	{
 		ImageProcessor ip;
@@ -22,6 +22,7 @@ import ij.ImagePlus;
 import ij.ImageStack;
 import ij.process.ImageProcessor;
 
+import java.nio.FloatBuffer;
 import java.util.Vector;
 
 import edu.illinois.ncsa.versus.descriptor.Descriptor;
@@ -29,6 +30,10 @@ import edu.illinois.ncsa.versus.utility.HasCategory;
 import edu.ncsa.model.Mesh;
 import edu.ncsa.model.MeshAuxiliary.Color;
 import edu.ncsa.model.MeshAuxiliary.Point;
+import gov.nist.itl.versus.similarity3d.comparisons.ContingencyTable;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelBuffers;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelMask;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
 
 public class VoxelToArrayFeature 
 	implements 
@@ -37,23 +42,44 @@ public class VoxelToArrayFeature
 {
 	public final String type = this.getClass().toString();
 
-	private double[][][] values;
+	private volatile double[][][] values;		// volatile, so a descriptor is safely visible to other threads; see voxels()
+	private final FloatBuffer buffer;			// voxels of a buffer-backed feature, in ImageStack order, or null
+	private final int w, h, d;					// dimensions of a buffer-backed feature
+	private volatile VoxelMask voxelMask;		// computed on first use, see getVoxelMask()
+	private volatile int[] labels;				// computed on first use, see getLabels()
 
 	public VoxelToArrayFeature() {
+		this((double[][][])null);
 	}
 
 	public VoxelToArrayFeature(double[][][] values) {
 		this.values = values;
+		this.buffer = null;
+		this.w = this.h = this.d = 0;
 	}
 	
 	public VoxelToArrayFeature(Mesh mesh) {
+		this((double[][][])null);
 		this.values = voxelsToArray(mesh);
 	}
 	
 	public VoxelToArrayFeature(ImagePlus im) {
+		this((double[][][])null);
 		this.values = voxelsToArray(im);
 	}
 
+	/*
+	 * Buffer-backed feature: holds the adapter's voxel buffer, from which the mask and labels are built
+	 * directly; the [z][x][y] volume is only built if a voxel accessor is called (see voxels()).
+	 */
+	public VoxelToArrayFeature(HasVoxelBuffer a) {
+		this.values = null;
+		this.buffer = a.getVoxelBuffer();
+		this.w = a.getWidth();
+		this.h = a.getHeight();
+		this.d = a.getDepth();
+	}
+
 	@Override
 	public String getType() {
 		return type;
@@ -64,6 +90,31 @@ public class VoxelToArrayFeature
 	}
 	
 	public int getLength(){ return getValues().length; }
+
+	/*
+	 * Returns the voxels binarized as value > 0, computed once and cached.
+	 */
+	public VoxelMask getVoxelMask() throws Exception {
+		VoxelMask m = voxelMask;
+		if ( m == null ) {
+			m = ( buffer != null ) ? VoxelMask.threshold( buffer, w, h, d ) : VoxelMask.threshold( values );
+			voxelMask = m;
+		}
+		return m;
+	}
+
+	/*
+	 * Returns the voxels truncated to int labels, in voxelsToArray() order, computed once and cached.
+	 * The returned array is shared and must not be modified.
+	 */
+	public int[] getLabels() throws Exception {
+		int[] l = labels;
+		if ( l == null ) {
+			l = ( buffer != null ) ? ContingencyTable.labels( buffer, w, h, d ) : ContingencyTable.labels( values );
+			labels = l;
+		}
+		return l;
+	}
 	public double getValue(int i) {
 		if ( i >=0 && i < getLength() ) {
 			Double[] vals = getValues();
@@ -73,19 +124,37 @@ public class VoxelToArrayFeature
 	}
 			
 	public double getValue(int x, int y, int z) {
-		return values[z][x][y];
+		return voxels()[z][x][y];
 	}
 
 	public int getDepth() {
-		return values.length;
+		return ( buffer != null ) ? d : values.length;
 	}
 
 	public int getHeight() {
-		return values[0][0].length;
+		return ( buffer != null ) ? h : values[0][0].length;
 	}
 
 	public int getWidth() {
-		return values[0].length;
+		return ( buffer != null ) ? w : values[0].length;
+	}
+
+	/*
+	 * Returns the voxel volume, building it from the buffer on first use. The build runs under the
+	 * feature's lock, so concurrent first callers build the volume once.
+	 */
+	private double[][][] voxels() {
+		double[][][] v = values;
+		if ( v == null && buffer != null ) {
+			synchronized ( this ) {
+				v = values;
+				if ( v == null ) {
+					v = VoxelBuffers.toArray( buffer, w, h, d );
+					values = v;
+				}
+			}
+		}
+		return v;
 	}
 
 	@Override
@@ -97,6 +166,7 @@ public class VoxelToArrayFeature
 	// Utility methods
 	
 	public Double[] voxelsToArray() {
+		double[][][] values = voxels();
 		int w = getWidth();
 		int h = getHeight();
 		int d = getDepth();
@@ -143,6 +213,14 @@ public class VoxelToArrayFeature
         return pixels;
 	}
 	
+	/*
+	 * Fills [z][x][y] from the adapter's flat buffer, one slice at a time, with no per-voxel calls.
+	 */
+	public double[][][] voxelsToArray( HasVoxelBuffer a )
+	{
+		return VoxelBuffers.toArray( a.getVoxelBuffer(), a.getWidth(), a.getHeight(), a.getDepth() );
+	}
+
 	public double[][][] voxelsToArray( ImagePlus im ) 
 	{
 		ImageProcessor ip;
@@ -26,7 +26,6 @@ import edu.illinois.ncsa.versus.descriptor.Descriptor;
 import edu.illinois.ncsa.versus.extract.Extractor;
 import edu.illinois.ncsa.versus.utility.HasCategory;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
-import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxels;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.DicomImageObjectAdapter;
 import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
 
@@ -55,13 +54,11 @@ public class VoxelHistogramExtractor
 		}
 	}	
 	
+	/*
+	 * Histogram-only: the voxels are read from the adapter only if a voxel accessor is called.
+	 */
 	public VoxelHistogramDescriptor extract(HasHistogram adapter) {
-		VoxelHistogramDescriptor v = null;
-		if ( (adapter instanceof HasVoxels)==true && (adapter instanceof HasHistogram)==true ) {
-			v = new VoxelHistogramDescriptor( ((HasVoxels)adapter).getRGBPixels(), adapter);
-		}
-
-		return v; 
+		return new VoxelHistogramDescriptor(adapter);
 	}
 	
 	public VoxelHistogramDescriptor extract(HasMesh adapter) {
@@ -25,6 +25,7 @@ import edu.illinois.ncsa.versus.adapter.HasMesh;
 import edu.illinois.ncsa.versus.descriptor.Descriptor;
 import edu.illinois.ncsa.versus.extract.Extractor;
 import edu.illinois.ncsa.versus.utility.HasCategory;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxels;
 import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.DicomImageObjectAdapter;
 import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
@@ -55,6 +56,9 @@ public class VoxelToArrayFeatureExtractor
 	
 	public VoxelToArrayFeature extract(HasVoxels adapter) {
 		VoxelToArrayFeature v = null;
+		if ( adapter instanceof HasVoxelBuffer )
+			v = new VoxelToArrayFeature((HasVoxelBuffer)adapter);
+		else
 			v = new VoxelToArrayFeature(adapter.getRGBPixels());
 		return v; 
 	}
@@ -0,0 +1,288 @@
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import edu.illinois.ncsa.versus.descriptor.Descriptor;
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.GramMatrix;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramTransforms;
+import gov.nist.itl.versus.similarity3d.comparisons.ValidationPolicy;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.BatchMeasureEvaluator;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.SymmetricMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsRegistry;
+
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *  @version 1.0
+ *
+ */
+
+/*
+ * Compares every ordered pair of a file list on a pool of worker threads.
+ *
+ * The N x N pair matrix is cut into tileSize x tileSize tiles and only the tiles on or above the diagonal
+ * are scheduled. For a pair (i,j) with i < j the full measure batch is evaluated once; (j,i) re-evaluates
+ * only the measures that are not SymmetricMeasures and mirrors the others. The diagonal (i,i) is evaluated
+ * once.
+ *
+ * One set of measure instances, built per run, is shared by all workers, so the measures must be
+ * thread-safe (as every measure in measure.impl is), and so must the DescriptorSource. Pairs are handed
+ * to the PairSink on the calling thread, tile by tile in submission order, so the output order depends
+ * only on the file list and tile size, not on the number of threads or on timing. At most 2 * threads
+ * tiles are in flight, which bounds the results held waiting for output. Measure timings go to the
+ * MetricsRegistry given, through the batch evaluators, and each Result carries its measure's own time
+ * (see BatchMeasureEvaluator.Result.getNanos()); mirrored symmetric results cost nothing, so they are not
+ * recorded again and their time is 0.
+ *
+ * With gram set, each tile also stacks its row and column histograms and multiplies them once into a
+ * GramMatrix (a tile per worker, so the product of the whole run is blocked and spread over the pool);
+ * INNER_PRODUCT, COSINE and FIDELITY are finished from it, within about 2 * bins * 2^-53 relative of
+ * their kernels (see GramMatrix), and the other measures are evaluated per pair as usual. Tiles of 32 to
+ * 128 files make the products pay off. A gram tile fetches each of its descriptors once and holds them
+ * until it is done.
+ */
+public class AllPairsEngine
+{
+	private final Class<? extends Measure>[] measureClasses;
+	private final int threads;
+	private final int tileSize;
+	private final MetricsRegistry metrics;
+	private final boolean exact;
+	private final boolean gram;
+	private final ValidationPolicy validation;
+
+	public AllPairsEngine(Class<? extends Measure>[] measureClasses, int threads, int tileSize)
+	{
+		this(measureClasses, threads, tileSize, MetricsRegistry.NONE, true);
+	}
+
+	public AllPairsEngine(Class<? extends Measure>[] measureClasses, int threads, int tileSize, MetricsRegistry metrics)
+	{
+		this(measureClasses, threads, tileSize, metrics, true);
+	}
+
+	// exact: see BatchMeasureEvaluator
+	public AllPairsEngine(Class<? extends Measure>[] measureClasses, int threads, int tileSize, MetricsRegistry metrics, boolean exact)
+	{
+		this(measureClasses, threads, tileSize, metrics, exact, false);
+	}
+
+	// gram: finish the measures a GramMatrix covers from one per tile
+	public AllPairsEngine(Class<? extends Measure>[] measureClasses, int threads, int tileSize, MetricsRegistry metrics, boolean exact, boolean gram)
+	{
+		this(measureClasses, threads, tileSize, metrics, exact, gram, ValidationPolicy.STRICT);
+	}
+
+	// validation: see BatchMeasureEvaluator
+	public AllPairsEngine(Class<? extends Measure>[] measureClasses, int threads, int tileSize, MetricsRegistry metrics, boolean exact, boolean gram, ValidationPolicy validation)
+	{
+		if ( threads < 1 )  throw new IllegalArgumentException("threads must be >= 1: " + threads);
+		if ( tileSize < 1 ) throw new IllegalArgumentException("tileSize must be >= 1: " + tileSize);
+		this.measureClasses = measureClasses.clone();
+		this.threads  = threads;
+		this.tileSize = tileSize;
+		this.metrics  = metrics;
+		this.exact    = exact;
+		this.gram     = gram;
+		this.validation = validation;
+	}
+
+	public interface DescriptorSource {
+		public Descriptor descriptor(String fileName) throws Exception;
+	}
+
+	public interface PairSink {
+		/*
+		 * Either results (one per measure, in the order of the measure classes) or, when a descriptor could
+		 * not be obtained, error is set.
+		 */
+		public void pair(String file1, String file2, BatchMeasureEvaluator.Result[] results, Exception error) throws Exception;
+	}
+
+	public void run(final String[] files, final DescriptorSource source, PairSink sink) throws Exception
+	{
+		// the full batch, and the batch used for mirrored pairs
+		Measure[] all = new Measure[measureClasses.length];
+		ArrayList<Measure> asymmetric = new ArrayList<Measure>();
+		boolean[] symmetric = new boolean[all.length];
+		for (int k=0; k < all.length; k++) {
+			all[k] = measureClasses[k].newInstance();
+			symmetric[k] = all[k] instanceof SymmetricMeasure;
+			if ( !symmetric[k] ) asymmetric.add(all[k]);
+		}
+		Batches batches = new Batches(new BatchMeasureEvaluator(all, metrics, exact, validation),
+				new BatchMeasureEvaluator(asymmetric.toArray(new Measure[asymmetric.size()]), metrics, exact, validation), symmetric);
+
+		int n = files.length;
+		int blocks = (n + tileSize - 1) / tileSize;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		LinkedList<Future<List<PairOutcome>>> inFlight = new LinkedList<Future<List<PairOutcome>>>();
+		try {
+			for (int bi=0; bi < blocks; bi++) {
+			for (int bj=bi; bj < blocks; bj++) {
+				if ( inFlight.size() >= 2 * threads ) emit(inFlight.removeFirst(), files, sink);
+				inFlight.addLast( pool.submit( new Tile(files, source, batches, bi * tileSize, bj * tileSize) ) );
+			}}
+			while ( !inFlight.isEmpty() ) emit(inFlight.removeFirst(), files, sink);
+		}
+		finally {
+			for (Future<List<PairOutcome>> f : inFlight) f.cancel(true);
+			pool.shutdownNow();
+		}
+	}
+
+	private static void emit(Future<List<PairOutcome>> tile, String[] files, PairSink sink) throws Exception
+	{
+		List<PairOutcome> outcomes;
+		try {
+			outcomes = tile.get();
+		}
+		catch(ExecutionException e) {
+			Throwable c = e.getCause();
+			if ( c instanceof Exception ) throw (Exception)c;
+			throw e;
+		}
+		for (PairOutcome p : outcomes)
+			sink.pair(files[p.i], files[p.j], p.results, p.error);
+	}
+
+	private static class PairOutcome {
+		final int i, j;
+		final BatchMeasureEvaluator.Result[] results;
+		final Exception error;
+		PairOutcome(int i, int j, BatchMeasureEvaluator.Result[] results, Exception error) {
+			this.i = i; this.j = j; this.results = results; this.error = error;
+		}
+	}
+
+	private static class Batches {
+		final BatchMeasureEvaluator full, mirror;
+		final boolean[] symmetric;
+		Batches(BatchMeasureEvaluator full, BatchMeasureEvaluator mirror, boolean[] symmetric) {
+			this.full = full; this.mirror = mirror; this.symmetric = symmetric;
+		}
+	}
+
+	private class Tile implements Callable<List<PairOutcome>>
+	{
+		private final String[] files;
+		private final DescriptorSource source;
+		private final Batches batches;
+		private final int row0, col0;
+
+		Tile(String[] files, DescriptorSource source, Batches batches, int row0, int col0) {
+			this.files = files; this.source = source; this.batches = batches; this.row0 = row0; this.col0 = col0;
+		}
+
+		@Override
+		public List<PairOutcome> call() throws Exception
+		{
+			BatchMeasureEvaluator full   = batches.full;
+			BatchMeasureEvaluator mirror = batches.mirror;
+			boolean[] symmetric = batches.symmetric;
+
+			int n = files.length;
+			int rowEnd = Math.min(row0 + tileSize, n);
+			int colEnd = Math.min(col0 + tileSize, n);
+			List<PairOutcome> out = new ArrayList<PairOutcome>();
+
+			GramMatrix products = null;
+			if ( gram && full.usesGram() ) {
+				fetch(rowEnd, colEnd);
+				HistogramTransforms[] rows = transforms(rowDescriptors);
+				HistogramTransforms[] cols = ( row0 == col0 ) ? rows : transforms(colDescriptors);
+				products = new GramMatrix(rows, row0, cols, col0, full.gramTerms());
+			}
+
+			for (int i=row0; i < rowEnd; i++) {
+			for (int j=Math.max(col0, i); j < colEnd; j++) {		// upper triangle, diagonal included
+				Descriptor di, dj;
+				try {
+					di = descriptor(i, rowDescriptors, rowErrors, row0);
+					dj = descriptor(j, colDescriptors, colErrors, col0);
+				}
+				catch(Exception e) {
+					out.add(new PairOutcome(i, j, null, e));
+					if ( i != j ) out.add(new PairOutcome(j, i, null, e));
+					continue;
+				}
+
+				BatchMeasureEvaluator.Result[] r = full.evaluate(di, dj, products, i, j);
+				out.add(new PairOutcome(i, j, r, null));
+				if ( i == j ) continue;
+
+				BatchMeasureEvaluator.Result[] a = mirror.evaluate(dj, di, products, j, i);
+				BatchMeasureEvaluator.Result[] rji = new BatchMeasureEvaluator.Result[r.length];
+				for (int k=0, m=0; k < r.length; k++) {
+					if ( symmetric[k] ) rji[k] = new BatchMeasureEvaluator.Result(r[k].measure, r[k].status, r[k].similarity, r[k].error);	// mirrored, time 0
+					else                rji[k] = a[m++];
+				}
+				out.add(new PairOutcome(j, i, rji, null));
+			}}
+			return out;
+		}
+
+		// the tile's descriptors, fetched once (gram tiles only)
+		private Descriptor[] rowDescriptors, colDescriptors;
+		private Exception[] rowErrors, colErrors;
+
+		private void fetch(int rowEnd, int colEnd) {
+			rowDescriptors = new Descriptor[rowEnd - row0];
+			rowErrors = new Exception[rowDescriptors.length];
+			for (int i=row0; i < rowEnd; i++) {
+				try { rowDescriptors[i - row0] = source.descriptor(files[i]); }
+				catch(Exception e) { rowErrors[i - row0] = e; }
+			}
+			if ( row0 == col0 ) {
+				colDescriptors = rowDescriptors;
+				colErrors = rowErrors;
+				return;
+			}
+			colDescriptors = new Descriptor[colEnd - col0];
+			colErrors = new Exception[colDescriptors.length];
+			for (int j=col0; j < colEnd; j++) {
+				try { colDescriptors[j - col0] = source.descriptor(files[j]); }
+				catch(Exception e) { colErrors[j - col0] = e; }
+			}
+		}
+
+		private Descriptor descriptor(int k, Descriptor[] fetched, Exception[] errors, int from) throws Exception {
+			if ( fetched == null ) return source.descriptor(files[k]);
+			if ( errors[k - from] != null ) throw errors[k - from];
+			return fetched[k - from];
+		}
+
+		// null where the descriptor is missing or holds no usable histogram
+		private HistogramTransforms[] transforms(Descriptor[] d) {
+			HistogramTransforms[] t = new HistogramTransforms[d.length];
+			for (int k=0; k < d.length; k++) {
+				if ( !(d[k] instanceof VoxelHistogramDescriptor) ) continue;
+				try {
+					((VoxelHistogramDescriptor)d[k]).getNormalizedHistogram(validation);
+					t[k] = ((VoxelHistogramDescriptor)d[k]).getTransforms();
+				}
+				catch(Exception e) {
+					// left to the measures, which report it per pair
+				}
+			}
+			return t;
+		}
+	}
+}
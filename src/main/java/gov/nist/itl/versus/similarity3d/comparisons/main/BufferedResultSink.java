@@ -0,0 +1,95 @@
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *  @version 1.0
+ *
+ */
+
+/*
+ * A ResultSink writing to one file through a single buffered writer kept open for the whole run.
+ *
+ * Text reaches the file when flushChars characters have been buffered, and at the latest flushMillis after it
+ * was appended (checked on each append and by a daemon timer, so a stalled run still shows its results), and
+ * on flush()/close(). flushMillis <= 0 disables the time-based flush.
+ */
+public class BufferedResultSink implements ResultSink
+{
+	private final Writer out;
+	private final int flushChars;
+	private final long flushMillis;
+	private final Timer timer;
+	private long pending;				// characters appended since the last flush
+	private long firstPending = -1;		// time of the oldest unflushed append, -1 if none
+	private boolean closed;
+
+	public BufferedResultSink(String fileName, boolean append, int flushChars, long flushMillis) throws IOException
+	{
+		if ( flushChars < 1 ) throw new IllegalArgumentException("flushChars must be >= 1: " + flushChars);
+		this.out = new BufferedWriter(new FileWriter(fileName, append), Math.min(flushChars, 1 << 20));
+		this.flushChars = flushChars;
+		this.flushMillis = flushMillis;
+		if ( flushMillis > 0 ) {
+			timer = new Timer("BufferedResultSink", true);
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					try { flushIfDue(); } catch(IOException e) { Main.o("Error: problem flushing results " + e.getMessage()); }
+				}
+			}, flushMillis, flushMillis);
+		}
+		else {
+			timer = null;
+		}
+	}
+
+	@Override
+	public synchronized void append(CharSequence text) throws IOException
+	{
+		if ( closed ) throw new IOException("BufferedResultSink is closed");
+		out.append(text);
+		pending += text.length();
+		if ( firstPending < 0 ) firstPending = System.currentTimeMillis();
+		if ( pending >= flushChars ) flush(); else flushIfDue();
+	}
+
+	@Override
+	public synchronized void flush() throws IOException
+	{
+		if ( closed ) return;
+		out.flush();
+		pending = 0;
+		firstPending = -1;
+	}
+
+	@Override
+	public synchronized void close() throws IOException
+	{
+		if ( closed ) return;
+		closed = true;
+		if ( timer != null ) timer.cancel();
+		out.close();
+	}
+
+	private synchronized void flushIfDue() throws IOException
+	{
+		if ( flushMillis > 0 && firstPending >= 0 && System.currentTimeMillis() - firstPending >= flushMillis )
+			flush();
+	}
+}
@@ -0,0 +1,152 @@
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.illinois.ncsa.versus.descriptor.Descriptor;
+
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *  @version 1.0
+ *
+ */
+
+/*
+ * Descriptors extracted during a run, keyed by file path.
+ *
+ * The most recently used descriptors (up to maxEntries) are held strongly, in LRU order. When the soft
+ * tier is enabled, descriptors evicted from the strong tier are kept behind SoftReferences, so they stay
+ * available until the JVM actually needs the memory (large volumes) instead of being re-loaded and
+ * re-extracted on the next use. get(key, loader) also makes concurrent callers asking for the same missing
+ * key wait for a single load instead of each loading it.
+ */
+public class DescriptorCache
+{
+	private final int maxEntries;
+	private final boolean softTier;
+	private final LinkedHashMap<String,Descriptor> strong;
+	private final HashMap<String,SoftReference<Descriptor>> soft = new HashMap<String,SoftReference<Descriptor>>();
+	private final HashSet<String> loading = new HashSet<String>();
+
+	private long hits;
+	private long misses;
+
+	public DescriptorCache(int maxEntries, boolean softTier)
+	{
+		if ( maxEntries < 0 ) throw new IllegalArgumentException("maxEntries must be >= 0: " + maxEntries);
+		this.maxEntries = maxEntries;
+		this.softTier   = softTier;
+		this.strong     = new LinkedHashMap<String,Descriptor>(16, 0.75f, true) {	// access-order, i.e. LRU
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String,Descriptor> eldest) {
+				if ( size() <= DescriptorCache.this.maxEntries ) return false;
+				demote(eldest.getKey(), eldest.getValue());
+				return true;
+			}
+		};
+	}
+
+	/*
+	 * Returns the cached descriptor for the given key, or null if it was never put or has been reclaimed.
+	 */
+	public synchronized Descriptor get(String key)
+	{
+		Descriptor d = lookup(key);
+		if ( d != null ) hits++; else misses++;
+		return d;
+	}
+
+	/*
+	 * Returns the cached descriptor for the given key, loading and caching it on a miss. A caller that
+	 * finds the key being loaded by another thread waits for that load. A failed load is not cached.
+	 */
+	public Descriptor get(String key, Loader loader) throws Exception
+	{
+		synchronized (this) {
+			for (;;) {
+				Descriptor d = lookup(key);
+				if ( d != null ) { hits++; return d; }
+				if ( loading.add(key) ) break;
+				wait();
+			}
+			misses++;
+		}
+		Descriptor d = null;
+		try {
+			d = loader.load(key);
+			return d;
+		}
+		finally {
+			synchronized (this) {
+				loading.remove(key);
+				put(key, d);
+				notifyAll();
+			}
+		}
+	}
+
+	public interface Loader {
+		public Descriptor load(String key) throws Exception;
+	}
+
+	public synchronized void put(String key, Descriptor d)
+	{
+		if ( d == null ) return;
+		soft.remove(key);
+		if ( maxEntries == 0 )
+			demote(key, d);
+		else
+			strong.put(key, d);
+	}
+
+	public synchronized void clear()
+	{
+		strong.clear();
+		soft.clear();
+	}
+
+	// number of entries currently reachable (strong entries plus soft entries not yet reclaimed)
+	public synchronized int size()
+	{
+		int n = strong.size();
+		for (Iterator<SoftReference<Descriptor>> it = soft.values().iterator(); it.hasNext(); ) {
+			if ( it.next().get() == null ) it.remove(); else n++;
+		}
+		return n;
+	}
+
+	public synchronized long getHits()   { return hits; }
+	public synchronized long getMisses() { return misses; }
+
+	private Descriptor lookup(String key)
+	{
+		Descriptor d = strong.get(key);
+		if ( d == null && softTier ) {
+			SoftReference<Descriptor> ref = soft.remove(key);
+			if ( ref != null ) {
+				d = ref.get();
+				if ( d != null ) put(key, d);		// promote back to the strong tier
+			}
+		}
+		return d;
+	}
+
+	private void demote(String key, Descriptor d)
+	{
+		if ( softTier ) soft.put(key, new SoftReference<Descriptor>(d));
+	}
+}
@@ -2,8 +2,12 @@ package gov.nist.itl.versus.similarity3d.comparisons.main;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.HashMap;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import gov.nist.itl.versus.similarity3d.comparisons.main.IO;
 import gov.nist.itl.versus.similarity3d.comparisons.main.Sys;
 import edu.illinois.ncsa.versus.adapter.Adapter;
@@ -12,6 +16,20 @@ import edu.illinois.ncsa.versus.descriptor.Descriptor;
 import edu.illinois.ncsa.versus.extract.Extractor;
 import edu.illinois.ncsa.versus.measure.Measure;
 import edu.illinois.ncsa.versus.measure.Similarity;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramBuilder;
+import gov.nist.itl.versus.similarity3d.comparisons.ValidationPolicy;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxels;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.DicomImageObjectAdapter;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.MappedVolumeAdapter;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.RawVolumeFile;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.BatchMeasureEvaluator;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.Metrics;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsMXBean;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsRegistry;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsRegistry.Stage;
 
 /**
  * This software was developed at the National Institute of Standards and
@@ -37,7 +55,7 @@ import edu.illinois.ncsa.versus.measure.Similarity;
 public class Main 
 {
 	protected String resultsFileName 	= "results.txt";
-	protected String configFileName  	= "config.txt";  // lines: adapter, extractor, descriptor, mode=(inline|allpairs)
+	protected String configFileName  	= "config.txt";  // lines: adapter, extractor, descriptor, mode=(inline|allpairs), then optional key=value lines
 	protected String filesFileName   	= "files.txt";
 	protected String measuresFileName	= "measures.txt"; 
 	protected String[] fileNames;
@@ -45,15 +63,36 @@ public class Main
 	protected String adapterName;
 	protected String extractorName;
 	protected String descriptorName;
-	protected String measureName;
 	
 	protected String operatingMode="inline";	// inline | allpairs
-	
-	protected Adapter 		a = null;
-	protected Extractor 	x = null;
-	protected Descriptor 	d1 = null, d2=null; 
-	protected File 			f1 = null, f2=null;
+	protected int	 cacheEntries=16;			// descriptors held strongly (config: cache.entries=N)
+	protected boolean cacheSoft=true;			// keep evicted descriptors softly reachable (config: cache.soft=true|false)
+	protected DescriptorCache descriptors = new DescriptorCache(cacheEntries, cacheSoft);
+	protected int	 threads=Runtime.getRuntime().availableProcessors();	// allpairs worker threads (config: allpairs.threads=N)
+	protected int	 tileSize=8;				// allpairs files per tile side (config: allpairs.tile=N)
+	protected boolean allPairsGram=false;		// allpairs: inner product, cosine and fidelity from a Gram matrix per tile, to ~2*bins*2^-53 relative (config: allpairs.gram=true|false)
+	protected int	 flushChars=64*1024;		// results buffered before writing (config: output.flushchars=N)
+	protected long	 flushMillis=5000;			// longest time results stay buffered (config: output.flushms=N, 0=off)
+	protected ResultSink	sink;				// opened on first output, closed by closeOutput()
+	protected boolean textOutput=true;			// write results.txt (config: output.text=true|false)
+	protected String matrixFileName=null;		// also write a binary ResultMatrixFile (config: output.matrix=path)
+	protected ResultMatrixFile matrix;			// opened on first result, closed by closeOutput()
+	protected HashMap<String,Integer> fileIndex;	// file name -> row/column of the matrix
+	protected int	 histogramBins=0;				// whole-volume histogram bins, 0 for the adapter's default (config: histogram.bins=N)
+	protected double histogramMin=0, histogramMax=0;	// its range, calibrated units (config: histogram.range=min,max)
+	protected int	 histogramThreads=0;			// threads counting one volume's histogram, 0 to share the cores among the workers (config: histogram.threads=N)
+	protected ValidationPolicy validation=ValidationPolicy.STRICT;	// when histograms are scanned for NaN/infinity (config: validation=strict|entry_only|off)
+	protected boolean histogramExact=true;		// false: log and ratio terms from cached transforms, a few ulps per bin, up to ~5e-8 off on identical histograms (see HistogramSweep) (config: histogram.exact=true|false)
+	protected boolean voxelStream=false;		// inline pairs compare adapters' voxel buffers chunk by chunk (config: voxel.stream=true|false)
+	protected String volumeCache=null;			// directory of RawVolumeFiles reused across runs (config: volume.cache=dir)
+	protected MetricsRegistry metrics = new Metrics();	// per-stage timings and counters (config: metrics.registry=class)
+	protected boolean metricsJmx=true;			// expose the registry as an MXBean (config: metrics.jmx=true|false)
+	protected boolean pipelineServices=true;	// resolve adapter and extractor among the registered services (config: pipeline.services=true|false)
+	protected PipelineFactory pipeline;			// built once from the config, see pipeline()
+	protected StringBuilder	outputBuffer = new StringBuilder();
+
 	protected Measure[] 	measures;
+	protected BatchMeasureEvaluator evaluator;
 	protected IO 			io = new IO();
 	protected String 		SEP = "\t";
 	protected String 		EOL = "\n";
@@ -74,6 +113,10 @@ public class Main
 				m.inline();
 			else
 				m.allPairs();
+		m.closeOutput();
+		o("descriptor cache: hits=" + m.descriptors.getHits() + ", misses=" + m.descriptors.getMisses());
+		for (String line : m.metrics.summary().split("\\r?\\n"))
+			if ( line.length() > 0 ) o("metrics: " + line);
 		o("done.");
 	}
 	
@@ -88,6 +131,7 @@ public class Main
 	{
 		try {
 			loadConfig(configFileName);
+			registerMetrics();
 			loadFiles(filesFileName);
 			loadMeasures(measuresFileName);
 		}
@@ -100,11 +144,107 @@ public class Main
 			BufferedReader br = io.openR(configFile);
 			String[] cfg = io.readAllLines(br);
 			io.close(br);
-			if ( cfg.length != 4 ) return;
+			if ( cfg.length < 4 ) return;
 			adapterName 	= cfg[0];
 			extractorName	= cfg[1];
 			descriptorName	= cfg[2];
-			operatingMode  	= cfg[3];			 
+			operatingMode  	= cfg[3];
+			for (int i=4; i < cfg.length; i++) loadOption(cfg[i]);
+			descriptors = new DescriptorCache(cacheEntries, cacheSoft);
+			pipeline = new PipelineFactory(adapterName, extractorName, pipelineServices);
+		}
+
+		// the adapter and extractor classes are resolved once, not per file
+		public synchronized PipelineFactory pipeline() throws Exception {
+			if ( pipeline == null ) pipeline = new PipelineFactory(adapterName, extractorName, pipelineServices);
+			return pipeline;
+		}
+
+		// optional config lines after the first four, as key=value
+		public void loadOption(String line) throws Exception {
+			if ( line == null || line.trim().length()==0 ) return;
+			int eq = line.indexOf('=');
+			if ( eq < 0 ) throw new Exception("Unexpected config line (expected key=value): " + line);
+			String key = line.substring(0, eq).trim();
+			String val = line.substring(eq+1).trim();
+			if ( key.compareTo("cache.entries")==0 )
+				cacheEntries = Integer.parseInt(val);
+			else
+			if ( key.compareTo("cache.soft")==0 )
+				cacheSoft = Boolean.parseBoolean(val);
+			else
+			if ( key.compareTo("allpairs.threads")==0 )
+				threads = Integer.parseInt(val);
+			else
+			if ( key.compareTo("allpairs.tile")==0 )
+				tileSize = Integer.parseInt(val);
+			else
+			if ( key.compareTo("allpairs.gram")==0 )
+				allPairsGram = Boolean.parseBoolean(val);
+			else
+			if ( key.compareTo("output.flushchars")==0 )
+				flushChars = Integer.parseInt(val);
+			else
+			if ( key.compareTo("output.flushms")==0 )
+				flushMillis = Long.parseLong(val);
+			else
+			if ( key.compareTo("output.text")==0 )
+				textOutput = Boolean.parseBoolean(val);
+			else
+			if ( key.compareTo("output.matrix")==0 )
+				matrixFileName = val;
+			else
+			if ( key.compareTo("histogram.bins")==0 )
+				histogramBins = Integer.parseInt(val);
+			else
+			if ( key.compareTo("histogram.threads")==0 )
+				histogramThreads = Integer.parseInt(val);
+			else
+			if ( key.compareTo("histogram.range")==0 ) {
+				String[] r = val.split(",");
+				histogramMin = Double.parseDouble(r[0].trim());
+				histogramMax = Double.parseDouble(r[1].trim());
+			}
+			else
+			if ( key.compareTo("validation")==0 ) {
+				validation = ValidationPolicy.parse(val);
+			}
+			else
+			if ( key.compareTo("histogram.exact")==0 )
+				histogramExact = Boolean.parseBoolean(val);
+			else
+			if ( key.compareTo("voxel.stream")==0 )
+				voxelStream = Boolean.parseBoolean(val);
+			else
+			if ( key.compareTo("volume.cache")==0 )
+				volumeCache = val;
+			else
+			if ( key.compareTo("metrics.registry")==0 )
+				metrics = (MetricsRegistry)Class.forName(val).newInstance();
+			else
+			if ( key.compareTo("metrics.jmx")==0 )
+				metricsJmx = Boolean.parseBoolean(val);
+			else
+			if ( key.compareTo("pipeline.services")==0 )
+				pipelineServices = Boolean.parseBoolean(val);
+			else
+				throw new Exception("Unknown config option: " + key);
+		}
+
+		public final static String METRICS_MBEAN = "gov.nist.itl.versus.similarity3d:type=Metrics";
+
+		// a registry that is not a MetricsMXBean is only reported by the summary at the end of main()
+		public void registerMetrics() {
+			if ( !metricsJmx || !(metrics instanceof MetricsMXBean) ) return;
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				ObjectName name = new ObjectName(METRICS_MBEAN);
+				if ( server.isRegistered(name) ) server.unregisterMBean(name);	// an earlier run in this JVM
+				server.registerMBean(metrics, name);
+			}
+			catch(Exception e) {
+				o("Error: could not register metrics MBean: " + e.getMessage() );
+			}
 		}
 		
 		public void loadFiles(String fileListing) throws Exception {
@@ -124,7 +264,8 @@ public class Main
 			for (int i=0; i < len; i++) {
 				measures[i] = (Measure)Class.forName(measureNames[i]).newInstance();
 			}
-		}	
+			evaluator = new BatchMeasureEvaluator(measures, metrics, histogramExact, validation);
+		}
 	
 //////////////////////////////////////////////////////////////////	
 // Comparisons
@@ -142,58 +283,127 @@ public class Main
 		}
 	}
 	
+	/*
+	 * All ordered pairs, on allpairs.threads workers. Symmetric measures are computed once per unordered
+	 * pair; results are written grouped by tile (see AllPairsEngine), in an order that does not vary
+	 * between runs.
+	 */
 	public void allPairs()
 	{
-		if ( fileNames == null || fileNames.length==0 ) return;		
-		ArrayList<Pair<String,Exception>> results = null;
-		
-		for( String file1: fileNames ) {
-		for( String file2: fileNames ) {
-			results = cmp(file1, file2);
-			output(results, file1, file2);
-		}}		
+		if ( fileNames == null || fileNames.length==0 ) return;
+
+		@SuppressWarnings("unchecked")
+		Class<? extends Measure>[] measureClasses = new Class[measures.length];
+		for (int i=0; i < measures.length; i++) measureClasses[i] = measures[i].getClass();
+
+		AllPairsEngine engine = new AllPairsEngine(measureClasses, threads, tileSize, metrics, histogramExact, allPairsGram, validation);
+		try {
+			engine.run(fileNames,
+				new AllPairsEngine.DescriptorSource() {
+					public Descriptor descriptor(String fileName) throws Exception {
+						return Main.this.descriptor(fileName, "a");
+					}
+				},
+				new AllPairsEngine.PairSink() {
+					public void pair(String file1, String file2, BatchMeasureEvaluator.Result[] batch, Exception error) {
+						if ( error != null ) {
+							metrics.failure(error);
+							o("Error: booted out of entire comparison loop for given file-pair(" + file1 + "," + file2 + ", error=" + error.getMessage() + ")" );
+							return;
+						}
+						output(results(batch, file1, file2), file1, file2);
+					}
+				});
+		}
+		catch(Exception e) {
+			o("Error: all-pairs comparison stopped: " + e.getMessage() );
+		}
 	}
 	
 //////////////////////////////////////////////////////////////////
 // Output
 //////////////////////////////////////////////////////////////////
 	
+	// output() is only called from the thread running the comparisons, so one builder is reused
 	public void output(ArrayList<Pair<String,Exception>> results, String f1, String f2) {
-		String s = "";
+		if ( !textOutput ) return;
+		outputBuffer.setLength(0);
 			for (Pair<String,Exception> p: results) {
-				s += outputResult(p, f1, f2);
+				outputResult(outputBuffer, p, f1, f2);
 			}
-			output(s);
+			output(outputBuffer);
 	}
 	
-	public void output(String s) {
+	public void output(CharSequence s) {
+		long t0 = System.nanoTime();
 		try {
-			PrintWriter pw = io.open(resultsFileName, true);
-			io.out(pw,  s);
-			io.close(pw);
+			if ( sink == null ) sink = new BufferedResultSink(resultsFileName, true, flushChars, flushMillis);
+			sink.append(s);
 		}
 		catch(Exception e) {
 			o("Error: problem outputting results " + e.getMessage() );
 		}		
+		metrics.stage(Stage.WRITE, System.nanoTime() - t0);
+	}
+
+	// writes one pair of the binary matrix; results that raised stay NaN
+	public void outputMatrix(BatchMeasureEvaluator.Result[] batch, String f1, String f2) {
+		if ( matrixFileName == null ) return;
+		long t0 = System.nanoTime();
+		try {
+			if ( matrix == null ) {
+				String[] names = new String[measures.length];
+				for (int k=0; k < names.length; k++) names[k] = measures[k].getName();
+				fileIndex = new HashMap<String,Integer>();
+				for (int i=fileNames.length-1; i >= 0; i--) fileIndex.put(fileNames[i], i);	// first occurrence wins
+				matrix = ResultMatrixFile.create(matrixFileName, fileNames, names);
+			}
+			int i = fileIndex.get(f1), j = fileIndex.get(f2);
+			for (int k=0; k < batch.length; k++) {
+				if ( batch[k].error == null && batch[k].similarity != null )
+					matrix.put(k, i, j, batch[k].similarity.getValue());
+			}
+		}
+		catch(Exception e) {
+			o("Error: problem outputting result matrix " + e.getMessage() );
+			if ( matrix == null ) matrixFileName = null;	// could not be created, do not retry on every pair
+		}
+		metrics.stage(Stage.WRITE, System.nanoTime() - t0);
+	}
+
+	// flushes and releases the results files; output() reopens them if called again
+	public void closeOutput() {
+		try {
+			if ( sink != null ) sink.close();
+			if ( matrix != null ) matrix.close();
+		}
+		catch(Exception e) {
+			o("Error: problem closing results " + e.getMessage() );
+		}
+		sink = null;
+		matrix = null;
 	}
 	
 	public String outputResult(Pair<String,Exception> result, String f1, String f2 ) {
-		String s = "";
+		return outputResult(new StringBuilder(), result, f1, f2).toString();
+	}
+
+	public StringBuilder outputResult(StringBuilder s, Pair<String,Exception> result, String f1, String f2 ) {
 		
-		  s += f1 + SEP;
-		  s += f2 + SEP;
+		  s.append(f1).append(SEP);
+		  s.append(f2).append(SEP);
 		  if ( result.a != null && result.b == null ) { 
-			  s += result.a + SEP;
-			  s += "None"   + EOL;
+			  s.append(result.a).append(SEP);
+			  s.append("None").append(EOL);
 		  }
 		  else
 		  if ( result.a != null && result.b != null ) { 
-			  s += "None" + SEP;
-			  s += result.b.getMessage()   + EOL;
+			  s.append("None").append(SEP);
+			  s.append(result.b.getMessage()).append(EOL);
 		  }
 		  else {
-			  s += "Unknown" + SEP;
-			  s += "Unknown" + EOL;
+			  s.append("Unknown").append(SEP);
+			  s.append("Unknown").append(EOL);
 		  }
 		return s;
 	}
@@ -214,60 +424,179 @@ public class Main
 	
 	public ArrayList<Pair<String,Exception>> cmp( String fileName1, String fileName2 ) 
 	{
-		Pair<String, Exception> result = null;
 		ArrayList<Pair<String,Exception>> results = new ArrayList<Pair<String,Exception>>();
-		Similarity r = null;
 		
 		try {
-			a = (Adapter)	Class.forName(adapterName).newInstance();
-			x = (Extractor)	Class.forName(extractorName).newInstance();	
-			f1 = new File(fileName1);
-			if ( a instanceof FileLoader ) 
-				((FileLoader)a).load(f1);
-			else 
-				throw new Exception("(a1): Unexpected adapter type");			
-			d1 = (Descriptor)x.extract(a);
-			f2 = new File(fileName2);
-			if ( a instanceof FileLoader ) 
-				((FileLoader)a).load(f2);
-			else 
-				throw new Exception("(a2): Unexpected adapter type");			
-			d2 = (Descriptor)x.extract(a);
-			
-			a = null;
-			x = null;
-			f1= null;
-			f2= null;
-			String timeStamp = "";
-			
-			for (Measure m: measures) {				
-				try {
-					measureName = m.getName();
-					
-					sys.beginTiming();
+			if ( voxelStream ) return cmpStreaming(fileName1, fileName2);
 
-						r = m.compare(d1, d2);
-					
-					timeStamp = sys.endTiming();
-					
-					o("comparison: (measure,f1,f2,result)=(" + measureName + "," + fileName1 + "," + fileName2 + "," + ((r!=null)?r.getValue():"null") + ")" );
-					result = new Pair<String,Exception>(measureName + SEP + r.getValue() + SEP + timeStamp, null );
-					
-				}
-				catch(Exception e) {
-					o("Error: problem during measurement of : " + measureName + SEP + "error=" + e.getMessage() + ")" );
-					result = new Pair<String,Exception>(measureName, e);
-				}				
-				results.add( result );
-			}			
+			Descriptor d1 = descriptor(fileName1, "a1");
+			Descriptor d2 = descriptor(fileName2, "a2");
+
+			// all measures are evaluated together (histogram measures share one sweep of the pair);
+			// each reports its own time, with its share of whatever it shared.
+			BatchMeasureEvaluator.Result[] batch = evaluator.evaluate(d1, d2);
+			results = results(batch, fileName1, fileName2);
 		}
 		catch(Exception e) {
+			metrics.failure(e);
 			o("Error: booted out of entire comparison loop for given file-pair(" + fileName1 + "," + fileName2 + ", error=" + e.getMessage() + ")" );
-			result = new Pair<String,Exception>(null,e);
 		}
 		return results;
 	}
 
+	/*
+	 * Compares the two files' voxel buffers chunk by chunk, without extracting descriptors. With
+	 * volume.cache the buffers are memory-mapped, so only a chunk of each volume is on the heap.
+	 */
+	public ArrayList<Pair<String,Exception>> cmpStreaming( String fileName1, String fileName2 ) throws Exception
+	{
+		Adapter a1 = adapter(fileName1, "a1");
+		Adapter a2 = adapter(fileName2, "a2");
+		if ( !(a1 instanceof HasVoxelBuffer) || !(a2 instanceof HasVoxelBuffer) )
+			throw new Exception("voxel.stream needs adapters with a voxel buffer");
+
+		BatchMeasureEvaluator.Result[] batch = evaluator.evaluateStreaming((HasVoxelBuffer)a1, (HasVoxelBuffer)a2);
+		return results(batch, fileName1, fileName2);
+	}
+
+	/*
+	 * One line per measure: its name, value and own time on the pair in ms, with fractions of a ms, as
+	 * recorded in the MetricsRegistry.
+	 */
+	public ArrayList<Pair<String,Exception>> results( BatchMeasureEvaluator.Result[] batch, String fileName1, String fileName2 )
+	{
+		metrics.count(MetricsRegistry.PAIRS, 1);
+		outputMatrix(batch, fileName1, fileName2);
+		ArrayList<Pair<String,Exception>> results = new ArrayList<Pair<String,Exception>>();
+		Pair<String, Exception> result = null;
+		Similarity r = null;
+		String measureName = null;
+
+		for (int i=0; i < batch.length; i++) {
+			BatchMeasureEvaluator.Result br = batch[i];
+			try {
+				measureName = br.measure.getName();
+				if ( br.error != null ) throw br.error;
+				r = br.similarity;
+
+				o("comparison: (measure,f1,f2,result)=(" + measureName + "," + fileName1 + "," + fileName2 + "," + ((r!=null)?r.getValue():"null") + ")" );
+				result = new Pair<String,Exception>(measureName + SEP + r.getValue() + SEP + (br.getNanos() / 1e6), null );
+
+			}
+			catch(Exception e) {
+				o("Error: problem during measurement of : " + measureName + SEP + "error=" + e.getMessage() + ")" );
+				result = new Pair<String,Exception>(measureName, e);
+			}
+			results.add( result );
+		}
+		return results;
+	}
+
+	/*
+	 * Returns the descriptor of the given file, loading and extracting it only if it is not cached.
+	 * Safe to call from several threads: each load uses a new adapter and its thread's extractor.
+	 * Histogram descriptors are normalized here, once, so that time is reported as Stage.NORMALIZE.
+	 */
+	public Descriptor descriptor( final String fileName, final String tag ) throws Exception
+	{
+		return descriptors.get( new File(fileName).getAbsolutePath(), new DescriptorCache.Loader() {
+			public Descriptor load(String key) throws Exception {
+				Adapter   a = adapter(fileName, tag);
+				Extractor x = pipeline().extractor();
+				long t0 = System.nanoTime();
+				Descriptor d = (Descriptor)x.extract(a);
+				metrics.stage(Stage.EXTRACT, System.nanoTime() - t0);
+				if ( d instanceof VoxelHistogramDescriptor ) {
+					t0 = System.nanoTime();
+					try {
+						((VoxelHistogramDescriptor)d).getNormalizedHistogram(validation);		// cached by the descriptor
+					}
+					catch(Exception e) {
+						// reported by the measures that need it
+					}
+					metrics.stage(Stage.NORMALIZE, System.nanoTime() - t0);
+				}
+				return d;
+			}
+		});
+	}
+
+	/*
+	 * Loads the file with the configured adapter. With a volume cache, a decoded volume is also written
+	 * there as a RawVolumeFile, and later loads (in this run or the next) map that file instead of
+	 * decoding again, as long as it is not older than the source file and was written for the same source
+	 * key (path and histogram settings, recorded in the file).
+	 * Mapping is timed as Stage.LOAD, decoding as Stage.DECODE and caching as Stage.WRITE.
+	 */
+	public Adapter adapter( String fileName, String tag ) throws Exception
+	{
+		File source = new File(fileName);
+		File raw = null;
+		String key = null;
+		if ( volumeCache != null ) {
+			key = source.getAbsolutePath() + "|" + histogramBins + "|" + histogramMin + "|" + histogramMax;	// the file holds the histogram too
+			raw = new File(volumeCache, source.getName() + "-" + Integer.toHexString(key.hashCode()) + RawVolumeFile.SUFFIX);
+			if ( raw.isFile() && raw.lastModified() >= source.lastModified() ) {
+				try {
+					long t0 = System.nanoTime();
+					MappedVolumeAdapter m = new MappedVolumeAdapter();
+					m.load(raw);
+					if ( !key.equals(m.getSource()) ) throw new IOException("written for " + m.getSource());
+					metrics.stage(Stage.LOAD, System.nanoTime() - t0);
+					loaded(raw, m);
+					return m;
+				}
+				catch(IOException e) {
+					o("(" + tag + "): ignoring cached volume " + raw + ": " + e.getMessage());
+				}
+			}
+		}
+
+		long t0 = System.nanoTime();
+		Adapter a = pipeline().newAdapter();
+		if ( a instanceof DicomImageObjectAdapter ) {
+			DicomImageObjectAdapter dicom = (DicomImageObjectAdapter)a;
+			dicom.setHistogramThreads(histogramThreads());
+			if ( histogramBins > 0 )
+				dicom.setHistogramBuilder(new HistogramBuilder(histogramBins, histogramMin, histogramMax, histogramThreads()));
+		}
+		if ( a instanceof FileLoader )
+			((FileLoader)a).load(source);
+		else
+			throw new Exception("(" + tag + "): Unexpected adapter type");
+		metrics.stage(Stage.DECODE, System.nanoTime() - t0);
+		loaded(source, a);
+
+		if ( raw != null && a instanceof HasVoxelBuffer && a instanceof HasHistogram ) {
+			t0 = System.nanoTime();
+			try {
+				raw.getAbsoluteFile().getParentFile().mkdirs();
+				RawVolumeFile.write(raw.getPath(), (HasVoxelBuffer)a, (HasHistogram)a, key);
+			}
+			catch(IOException e) {
+				o("(" + tag + "): could not cache volume " + raw + ": " + e.getMessage());
+			}
+			metrics.stage(Stage.WRITE, System.nanoTime() - t0);
+		}
+		return a;
+	}
+
+	// histogram.threads, or the cores left to each loading thread: all of them inline, a share in all-pairs runs
+	protected int histogramThreads() {
+		if ( histogramThreads > 0 ) return histogramThreads;
+		int loaders = isInline() ? 1 : Math.max(1, threads);
+		return Math.max(1, Runtime.getRuntime().availableProcessors() / loaders);
+	}
+
+	private void loaded(File file, Adapter a) {
+		metrics.count(MetricsRegistry.FILES, 1);
+		metrics.count(MetricsRegistry.BYTES_READ, file.length());
+		if ( a instanceof HasVoxels ) {
+			HasVoxels v = (HasVoxels)a;
+			metrics.count(MetricsRegistry.VOXELS, (long)v.getWidth() * v.getHeight() * v.getDepth());
+		}
+	}
+
 	
 	class Pair<A,B> {
 		public final A a;
@@ -0,0 +1,121 @@
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import edu.illinois.ncsa.versus.adapter.Adapter;
+import edu.illinois.ncsa.versus.extract.Extractor;
+
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *  @version 1.0
+ *
+ */
+
+/*
+ * Builds the adapter and extractor of the configured pipeline.
+ *
+ * The classes are resolved once, when the factory is created: with services, among the providers registered
+ * under META-INF/services (by class name or simple class name), otherwise, or when no provider matches, with
+ * Class.forName. Loading a file then costs a constructor call, with no class lookup.
+ *
+ * An adapter holds the file it loaded (and descriptors may keep it as their source), so newAdapter() returns
+ * a new instance every time. Extractors keep no per-file state, so extractor() hands each thread one instance
+ * that it reuses for every file it extracts. A factory may be shared by all workers.
+ */
+public class PipelineFactory
+{
+	private final Constructor<? extends Adapter> adapter;
+	private final Constructor<? extends Extractor> extractor;
+	private final ThreadLocal<Extractor> extractors = new ThreadLocal<Extractor>() {
+		@Override
+		protected Extractor initialValue() {
+			try {
+				return newInstance(extractor);
+			}
+			catch(Exception e) {
+				throw new IllegalStateException("Cannot create extractor " + extractor.getDeclaringClass().getName() + ": " + e.getMessage(), e);
+			}
+		}
+	};
+
+	public PipelineFactory(String adapterName, String extractorName, boolean services) throws Exception
+	{
+		this( resolve(Adapter.class, adapterName, services), resolve(Extractor.class, extractorName, services) );
+	}
+
+	public PipelineFactory(Class<? extends Adapter> adapterClass, Class<? extends Extractor> extractorClass) throws Exception
+	{
+		this.adapter   = adapterClass.getConstructor();
+		this.extractor = extractorClass.getConstructor();
+	}
+
+	public Class<? extends Adapter> getAdapterClass()     { return adapter.getDeclaringClass(); }
+	public Class<? extends Extractor> getExtractorClass() { return extractor.getDeclaringClass(); }
+
+	public Adapter newAdapter() throws Exception {
+		return newInstance(adapter);
+	}
+
+	// this thread's extractor
+	public Extractor extractor() {
+		return extractors.get();
+	}
+
+	private static <T> T newInstance(Constructor<? extends T> c) throws Exception {
+		try {
+			return c.newInstance();
+		}
+		catch(InvocationTargetException e) {
+			Throwable t = e.getCause();
+			if ( t instanceof Exception ) throw (Exception)t;
+			throw e;
+		}
+	}
+
+	/*
+	 * The class of the given service named name, a fully qualified or, for a registered provider, simple class name.
+	 */
+	public static <S> Class<? extends S> resolve(Class<S> service, String name, boolean services) throws Exception
+	{
+		if ( name == null ) throw new Exception("No " + service.getSimpleName() + " configured");
+		name = name.trim();
+		if ( services ) {
+			Iterator<S> providers = ServiceLoader.load(service).iterator();
+			while ( hasNext(providers) ) {
+				S p;
+				try {
+					p = providers.next();
+				}
+				catch(ServiceConfigurationError e) {
+					continue;		// a provider that cannot be loaded here; try the others
+				}
+				Class<?> c = p.getClass();
+				if ( c.getName().equals(name) || c.getSimpleName().equals(name) ) return c.asSubclass(service);
+			}
+		}
+		return Class.forName(name).asSubclass(service);
+	}
+
+	// false also when the registrations cannot be read
+	private static boolean hasNext(Iterator<?> providers) {
+		try {
+			return providers.hasNext();
+		}
+		catch(ServiceConfigurationError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *  @version 1.0
+ *
+ */
+
+/*
+ * Binary, memory-mapped matrix of the results of a run: one dense N x N block of float64 per measure.
+ *
+ * Layout (big-endian, as written by DataOutputStream):
+ *     bytes   "V3DM"
+ *     int     version (1)
+ *     int     N, number of files
+ *     int     M, number of measures
+ *     long    offset of the first block, a multiple of 8
+ *     UTF     N file names, then M measure names (DataOutputStream.writeUTF)
+ *     ...     zero padding up to the first block
+ *     double  M blocks of N*N values; block k, row i, column j holds measure k of (file i, file j)
+ *
+ * A cell with no value (the measure raised, or the pair was not compared) holds NaN; the measures never
+ * produce NaN themselves. Cell (k,i,j) is at offset + 8*((k*N + i)*N + j), so the file can be mapped and
+ * addressed directly by other tools.
+ */
+public class ResultMatrixFile
+{
+	private final static byte[] MAGIC = { 'V', '3', 'D', 'M' };
+	private final static int VERSION = 1;
+	private final static int CHUNK_BYTES = 1 << 30;		// largest region mapped at once
+
+	private final RandomAccessFile file;
+	private final String[] files;
+	private final String[] measures;
+	private final long dataOffset;
+	private final int rowsPerChunk;
+	private final MappedByteBuffer[][] maps;	// [measure][row / rowsPerChunk]
+	private final DoubleBuffer[][] chunks;		// views of maps
+	private final boolean writable;
+
+	private ResultMatrixFile(RandomAccessFile file, String[] files, String[] measures, long dataOffset, boolean writable) throws IOException
+	{
+		this.file = file;
+		this.files = files;
+		this.measures = measures;
+		this.dataOffset = dataOffset;
+		this.writable = writable;
+
+		int n = files.length;
+		long rowBytes = 8L * Math.max(n, 1);
+		if ( rowBytes > CHUNK_BYTES ) throw new IOException("Too many files for a result matrix: " + n);
+		this.rowsPerChunk = (int)(CHUNK_BYTES / rowBytes);
+		int perMeasure = (n + rowsPerChunk - 1) / rowsPerChunk;
+		this.maps   = new MappedByteBuffer[measures.length][perMeasure];
+		this.chunks = new DoubleBuffer[measures.length][perMeasure];
+
+		FileChannel ch = file.getChannel();
+		FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+		for (int k=0; k < measures.length; k++) {
+			for (int c=0; c < perMeasure; c++) {
+				int rows = Math.min(rowsPerChunk, n - c * rowsPerChunk);
+				long pos = dataOffset + 8L * ((long)k * n + (long)c * rowsPerChunk) * n;
+				maps[k][c]   = ch.map(mode, pos, 8L * rows * n);
+				chunks[k][c] = maps[k][c].asDoubleBuffer();
+			}
+		}
+	}
+
+	/*
+	 * Creates (or truncates) the file and fills every cell with NaN.
+	 */
+	public static ResultMatrixFile create(String fileName, String[] files, String[] measures) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream names = new DataOutputStream(bytes);
+		for (String f : files)    names.writeUTF(f);
+		for (String m : measures) names.writeUTF(m);
+		names.flush();
+
+		long headerBytes = MAGIC.length + 4 + 4 + 4 + 8 + bytes.size();
+		long dataOffset = (headerBytes + 7) & ~7L;
+		long n = files.length;
+
+		RandomAccessFile raf = new RandomAccessFile(fileName, "rw");
+		try {
+			raf.setLength(0);
+			raf.write(MAGIC);
+			raf.writeInt(VERSION);
+			raf.writeInt(files.length);
+			raf.writeInt(measures.length);
+			raf.writeLong(dataOffset);
+			raf.write(bytes.toByteArray());
+			raf.setLength(dataOffset + 8L * measures.length * n * n);
+
+			ResultMatrixFile m = new ResultMatrixFile(raf, files.clone(), measures.clone(), dataOffset, true);
+			double[] nan = new double[files.length];
+			Arrays.fill(nan, Double.NaN);
+			for (DoubleBuffer[] perMeasure : m.chunks)
+				for (DoubleBuffer b : perMeasure)
+					for (b.clear(); b.hasRemaining(); ) b.put(nan, 0, Math.min(nan.length, b.remaining()));
+			return m;
+		}
+		catch(IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/*
+	 * Opens an existing file for reading.
+	 */
+	public static ResultMatrixFile open(String fileName) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+		try {
+			byte[] magic = new byte[MAGIC.length];
+			raf.readFully(magic);
+			if ( !Arrays.equals(magic, MAGIC) ) throw new IOException("Not a result matrix file: " + fileName);
+			int version = raf.readInt();
+			if ( version != VERSION ) throw new IOException("Unsupported result matrix version " + version + ": " + fileName);
+			String[] files    = new String[raf.readInt()];
+			String[] measures = new String[raf.readInt()];
+			long dataOffset   = raf.readLong();
+
+			byte[] h = new byte[(int)(dataOffset - raf.getFilePointer())];
+			raf.readFully(h);
+			DataInputStream names = new DataInputStream(new ByteArrayInputStream(h));
+			for (int i=0; i < files.length; i++)    files[i]    = names.readUTF();
+			for (int k=0; k < measures.length; k++) measures[k] = names.readUTF();
+
+			return new ResultMatrixFile(raf, files, measures, dataOffset, false);
+		}
+		catch(IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	public String[] getFiles()    { return files.clone(); }
+	public String[] getMeasures() { return measures.clone(); }
+
+	public void put(int measure, int i, int j, double value) {
+		chunks[measure][i / rowsPerChunk].put((i % rowsPerChunk) * files.length + j, value);
+	}
+
+	public double get(int measure, int i, int j) {
+		return chunks[measure][i / rowsPerChunk].get((i % rowsPerChunk) * files.length + j);
+	}
+
+	public void close() throws IOException {
+		if ( writable )
+			for (MappedByteBuffer[] perMeasure : maps)
+				for (MappedByteBuffer b : perMeasure) b.force();
+		file.close();
+	}
+}
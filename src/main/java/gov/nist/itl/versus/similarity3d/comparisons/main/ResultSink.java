@@ -0,0 +1,28 @@
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.io.IOException;
+
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *  @version 1.0
+ *
+ */
+
+/*
+ * Destination of the result text of a run. Opened once per run and closed at its end.
+ */
+public interface ResultSink
+{
+	public void append(CharSequence text) throws IOException;
+	public void flush() throws IOException;
+	public void close() throws IOException;
+}
@@ -47,20 +47,26 @@ public class Sys
 		}
 		
 		public void startTimer() {
-			startTime = System.currentTimeMillis();
+			startTime = System.nanoTime();
 			timerRunning = true;
 		}
 		
 		public void stopTimer() {
-			stopTime = System.currentTimeMillis();
+			stopTime = System.nanoTime();
 			timerRunning = false;
 		}
 		
 		public long getElapsedTime() 
+		{
+			return getElapsedNanos() / 1000000L;
+		}
+		
+		// monotonic, unaffected by wall-clock changes
+		public long getElapsedNanos()
 		{
 			long elapsedTime = 0;
 			if ( timerRunning ) {
-				elapsedTime = (System.currentTimeMillis() - startTime);
+				elapsedTime = (System.nanoTime() - startTime);
 			}
 			else {
 				elapsedTime = (stopTime - startTime);
@@ -0,0 +1,416 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  Evaluates a fixed set of Measures on a descriptor pair.
+ *
+ *  When both descriptors are VoxelHistogramDescriptors, the cached normalized histograms are used and
+ *  every HistogramMeasure in the set is finished from a single HistogramSweep over the pair, instead of
+ *  each measure re-walking the bins; the per-histogram terms come from the descriptors' cached
+ *  HistogramTransforms, and a pair of mostly empty histograms is walked over its non-empty bins only.
+ *  Values are bit-identical to Measure.compare, unless the evaluator is built inexact: its cached log,
+ *  ratio and root terms differ per bin by a few ulps, which cancellation can turn into large relative
+ *  errors on near-identical histograms (see HistogramSweep).
+ *  A term that fails only sends the measures using it back to their own kernels (see HistogramSweep);
+ *  if the sweep itself raises, every histogram measure falls back that way.
+ *  Given a GramMatrix holding the pair (see AllPairsEngine), the measures it covers are finished from
+ *  its dot products instead, within about 2 * bins * 2^-53 relative, and only the rest are swept.
+ *  Likewise, for a pair of equally sized VoxelToArrayFeatures every ContingencyMeasure is finished from
+ *  one ContingencyTable. Other measures, and other descriptor pairs, go through Measure.compare.
+ *  evaluateStreaming() compares two adapters' voxel buffers chunk by chunk instead, for volumes too
+ *  large to hold as descriptors; only StreamingVoxelMeasures can be finished that way.
+ *
+ *  Histograms are scanned for NaN and infinite bins as the evaluator's ValidationPolicy says (STRICT
+ *  unless given); the measures' own kernels, used for every fallback, always scan.
+ *  Shared sweeps and tables run on quiet MathKernels: a measure whose value is NaN or infinite gets
+ *  only its MeasureStatus, with no exception built for that pair. Its Result then holds one exception
+ *  per measure and status, built the first time and shared by every later pair with that outcome. It
+ *  has the type Measure.compare would raise, a message naming the measure and an empty stack trace.
+ *
+ *  Each measure's time on each pair goes to the evaluator's MetricsRegistry, a shared sweep, table or
+ *  stream split evenly across the measures finished from it, as does the whole evaluation
+ *  (Stage.MEASURE) and the class of every exception in the results.
+ *
+ *  An evaluator keeps no per-pair state, so with thread-safe measures (as in measure.impl) one instance
+ *  may evaluate pairs from many threads at once.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.measure;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.illinois.ncsa.versus.descriptor.Descriptor;
+import edu.illinois.ncsa.versus.measure.Measure;
+import edu.illinois.ncsa.versus.measure.Similarity;
+import edu.illinois.ncsa.versus.measure.SimilarityNumber;
+import gov.nist.itl.versus.similarity3d.comparisons.ContingencyTable;
+import gov.nist.itl.versus.similarity3d.comparisons.GramMatrix;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramEquation;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramSweep;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramTransforms;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
+import gov.nist.itl.versus.similarity3d.comparisons.MeasureStatus;
+import gov.nist.itl.versus.similarity3d.comparisons.ValidationPolicy;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelCounter;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.ImageCompatibilityException;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.SWIndependenceException;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsRegistry;
+
+public class BatchMeasureEvaluator
+{
+	private final Measure[] measures;
+	private final HistogramEquation[] equations;	// null where the measure is not a HistogramMeasure
+	private final int terms;
+	private final boolean anyHistogram;
+	private final boolean anyGram;
+	private final boolean anyContingency;
+	private final boolean streamContingency;	// some StreamingVoxelMeasure needs the streamed table
+	private final MetricsRegistry metrics;
+	private final boolean exact;
+	private final ValidationPolicy validation;
+	private final AtomicReferenceArray<Exception> statusErrors;	// [measure * MeasureStatus.COUNT + status]
+
+	public BatchMeasureEvaluator(Measure[] measures) {
+		this(measures, MetricsRegistry.NONE);
+	}
+
+	public BatchMeasureEvaluator(Measure[] measures, MetricsRegistry metrics) {
+		this(measures, metrics, true);
+	}
+
+	public BatchMeasureEvaluator(Measure[] measures, MetricsRegistry metrics, boolean exact) {
+		this(measures, metrics, exact, ValidationPolicy.STRICT);
+	}
+
+	public BatchMeasureEvaluator(Measure[] measures, MetricsRegistry metrics, boolean exact, ValidationPolicy validation) {
+		if ( validation == null ) throw new IllegalArgumentException("validation policy must not be null");
+		this.measures  = measures.clone();
+		this.metrics   = metrics;
+		this.exact     = exact;
+		this.validation = validation;
+		this.statusErrors = new AtomicReferenceArray<Exception>(measures.length * MeasureStatus.COUNT);
+		this.equations = new HistogramEquation[measures.length];
+		boolean any = false, anyTable = false, streamTable = false, gram = false;
+		for (int i=0; i < measures.length; i++) {
+			if ( measures[i] instanceof HistogramMeasure ) {
+				equations[i] = ((HistogramMeasure)measures[i]).getEquation();
+				any = true;
+				gram |= equations[i] != null && GramMatrix.supports(equations[i]);
+			}
+			anyTable |= measures[i] instanceof ContingencyMeasure;
+			streamTable |= measures[i] instanceof StreamingVoxelMeasure && ((StreamingVoxelMeasure)measures[i]).usesContingency();
+		}
+		this.terms = HistogramSweep.termsFor(equations);
+		this.anyHistogram = any;
+		this.anyGram = gram;
+		this.anyContingency = anyTable;
+		this.streamContingency = streamTable;
+	}
+
+	public BatchMeasureEvaluator(Class<? extends Measure>[] measureClasses) throws Exception {
+		this( instantiate(measureClasses) );
+	}
+
+	public BatchMeasureEvaluator(Class<? extends Measure>[] measureClasses, MetricsRegistry metrics) throws Exception {
+		this( instantiate(measureClasses), metrics );
+	}
+
+	private static Measure[] instantiate(Class<? extends Measure>[] measureClasses) throws Exception {
+		Measure[] m = new Measure[measureClasses.length];
+		for (int i=0; i < m.length; i++) m[i] = measureClasses[i].newInstance();
+		return m;
+	}
+
+	public Measure[] getMeasures() {
+		return measures.clone();
+	}
+
+	/*
+	 *  Returns one Result per measure, in the order the measures were given.
+	 */
+	public Result[] evaluate(Descriptor d1, Descriptor d2)
+	{
+		return evaluate(d1, d2, null, -1, -1);
+	}
+
+	// true when some measure can be finished from a GramMatrix
+	public boolean usesGram() {
+		return anyGram;
+	}
+
+	// the products a GramMatrix needs for the measures of this evaluator
+	public int gramTerms() {
+		return GramMatrix.termsFor(equations);
+	}
+
+	/*
+	 *  As evaluate(d1, d2), for the pair (row,col) of the run gram was built for; gram may be null, or not
+	 *  hold the pair.
+	 */
+	public Result[] evaluate(Descriptor d1, Descriptor d2, GramMatrix gram, int row, int col)
+	{
+		long start = System.nanoTime();
+		Result[] results = new Result[measures.length];
+		long[] nanos = new long[measures.length];
+
+		if ( anyGram && gram != null && gram.has(row, col) ) {
+			evaluateGram(gram, row, col, results, nanos);
+		}
+		if ( anyHistogram
+				&& d1 instanceof VoxelHistogramDescriptor && d2 instanceof VoxelHistogramDescriptor
+				&& ((VoxelHistogramDescriptor)d1).getLength() == ((VoxelHistogramDescriptor)d2).getLength() ) {
+			evaluateHistograms((VoxelHistogramDescriptor)d1, (VoxelHistogramDescriptor)d2, results, nanos);
+		}
+		if ( anyContingency && d1 instanceof VoxelToArrayFeature && d2 instanceof VoxelToArrayFeature ) {
+			VoxelToArrayFeature v1 = (VoxelToArrayFeature)d1, v2 = (VoxelToArrayFeature)d2;
+			if ( v1.getHeight() == v2.getHeight() && v1.getWidth() == v2.getWidth() && v1.getDepth() == v2.getDepth() )
+				evaluateContingency(v1, v2, results, nanos);
+		}
+
+		for (int i=0; i < measures.length; i++) {
+			if ( results[i] == null ) {
+				long t = System.nanoTime();
+				results[i] = compare(measures[i], d1, d2);
+				nanos[i] = System.nanoTime() - t;
+			}
+		}
+		record(results, nanos, start);
+		return results;
+	}
+
+	private void record(Result[] results, long[] nanos, long start)
+	{
+		for (int i=0; i < results.length; i++) {
+			results[i].nanos = nanos[i];
+			metrics.measure(measures[i].getName(), nanos[i]);
+			if ( results[i].error != null ) metrics.failure(results[i].error);
+		}
+		metrics.stage(MetricsRegistry.Stage.MEASURE, System.nanoTime() - start);
+	}
+
+	// adds shared/k to each of the k measures flagged in finished
+	private static void apportion(long shared, boolean[] finished, long[] nanos)
+	{
+		int k = 0;
+		for (boolean f : finished) if ( f ) k++;
+		if ( k == 0 ) return;
+		for (int i=0; i < finished.length; i++) if ( finished[i] ) nanos[i] += shared / k;
+	}
+
+	private void evaluateGram(GramMatrix gram, int p, int q, Result[] results, long[] nanos)
+	{
+		MathKernels kernels = new MathKernels(true);
+		boolean[] finished = new boolean[measures.length];
+		for (int i=0; i < measures.length; i++) {
+			HistogramEquation eq = equations[i];
+			if ( eq == null || !gram.covers(eq) ) continue;
+			long t = System.nanoTime();
+			try {
+				results[i] = new Result(measures[i], new SimilarityNumber(gram.value(kernels, eq, p, q)), null);
+			}
+			catch(Exception e) {
+				results[i] = failed(i, e);
+			}
+			nanos[i] = System.nanoTime() - t;
+			finished[i] = true;
+		}
+		apportion(gram.getNanos() / Math.max(1, gram.getPairs()), finished, nanos);
+	}
+
+	private void evaluateHistograms(VoxelHistogramDescriptor d1, VoxelHistogramDescriptor d2, Result[] results, long[] nanos)
+	{
+		// the equations not already finished from a GramMatrix
+		int terms = this.terms;
+		boolean any = false, done = false;
+		for (int i=0; i < measures.length; i++) {
+			if ( equations[i] == null ) continue;
+			if ( results[i] == null ) any = true; else done = true;
+		}
+		if ( !any ) return;
+		if ( done ) {
+			HistogramEquation[] rest = new HistogramEquation[measures.length];
+			for (int i=0; i < measures.length; i++) if ( results[i] == null ) rest[i] = equations[i];
+			terms = HistogramSweep.termsFor(rest);
+		}
+
+		long start = System.nanoTime();
+		HistogramTransforms tP, tQ;
+		try {
+			d1.getNormalizedHistogram(validation);
+			d2.getNormalizedHistogram(validation);
+			tP = d1.getTransforms();
+			tQ = d2.getTransforms();
+		}
+		catch(Exception e) {
+			return;		// let each measure report its own failure
+		}
+		// the kernels' entry scan is skipped under ENTRY_ONLY only if both histograms have had theirs
+		ValidationPolicy policy = validation;
+		if ( policy == ValidationPolicy.ENTRY_ONLY && !(d1.isValidated() && d2.isValidated()) ) policy = ValidationPolicy.STRICT;
+		MathKernels kernels = new MathKernels(true, policy);
+		double[] P = tP.getHistogram(), Q = tQ.getHistogram();
+
+		HistogramSweep sweep = new HistogramSweep(kernels, exact);
+		boolean swept;
+		try {
+			sweep.sweep(tP, tQ, terms);
+			swept = true;
+		}
+		catch(Exception e) {
+			swept = false;
+		}
+		long shared = System.nanoTime() - start;
+
+		boolean[] finished = new boolean[measures.length];
+		for (int i=0; i < measures.length; i++) {
+			HistogramEquation eq = equations[i];
+			if ( eq == null || results[i] != null ) continue;
+			long t = System.nanoTime();
+			try {
+				double v = swept ? sweep.value(eq) : eq.compute(kernels, P, Q);
+				results[i] = new Result(measures[i], new SimilarityNumber(v), null);
+			}
+			catch(Exception e) {
+				results[i] = failed(i, e);
+			}
+			nanos[i] = System.nanoTime() - t;
+			finished[i] = true;
+		}
+		apportion(shared, finished, nanos);
+	}
+
+	private void evaluateContingency(VoxelToArrayFeature d1, VoxelToArrayFeature d2, Result[] results, long[] nanos)
+	{
+		long start = System.nanoTime();
+		MathKernels kernels = new MathKernels(true);
+		ContingencyTable table;
+		try {
+			table = ContingencyTable.build(d1.getLabels(), d2.getLabels());
+		}
+		catch(Exception e) {
+			return;		// let each measure report its own failure
+		}
+		long shared = System.nanoTime() - start;
+
+		boolean[] finished = new boolean[measures.length];
+		for (int i=0; i < measures.length; i++) {
+			if ( !(measures[i] instanceof ContingencyMeasure) ) continue;
+			long t = System.nanoTime();
+			try {
+				double v = ((ContingencyMeasure)measures[i]).compute(kernels, table);
+				results[i] = new Result(measures[i], new SimilarityNumber(v), null);
+			}
+			catch(Exception e) {
+				results[i] = failed(i, e);
+			}
+			nanos[i] = System.nanoTime() - t;
+			finished[i] = true;
+		}
+		apportion(shared, finished, nanos);
+	}
+
+	/*
+	 *  Returns one Result per measure, in the order the measures were given, reading both volumes once,
+	 *  VoxelCounter.CHUNK voxels at a time, so neither is held whole. Measures that are not
+	 *  StreamingVoxelMeasures get an SWIndependenceException.
+	 */
+	public Result[] evaluateStreaming(HasVoxelBuffer a1, HasVoxelBuffer a2)
+	{
+		long start = System.nanoTime();
+		Result[] results = new Result[measures.length];
+		long[] nanos = new long[measures.length];
+		VoxelCounter counts = new VoxelCounter(streamContingency);
+		Exception error = null;
+		try {
+			if ( a1.getWidth() != a2.getWidth() )   throw new ImageCompatibilityException("Volumes must have the same width");
+			if ( a1.getHeight() != a2.getHeight() ) throw new ImageCompatibilityException("Volumes must have the same height");
+			if ( a1.getDepth() != a2.getDepth() )   throw new ImageCompatibilityException("Volumes must have the same depth");
+			counts.count(a1.getVoxelBuffer(), a2.getVoxelBuffer());
+		}
+		catch(Exception e) {
+			error = e;
+		}
+		long shared = System.nanoTime() - start;
+
+		boolean[] finished = new boolean[measures.length];
+		for (int i=0; i < measures.length; i++) {
+			if ( !(measures[i] instanceof StreamingVoxelMeasure) )
+				results[i] = new Result(measures[i], null, new SWIndependenceException("Measure cannot compare streamed volumes: " + measures[i].getName()));
+			else if ( error != null )
+				results[i] = new Result(measures[i], null, error);
+			else {
+				long t = System.nanoTime();
+				try {
+					results[i] = new Result(measures[i], ((StreamingVoxelMeasure)measures[i]).compare(counts), null);
+				}
+				catch(Exception e) {
+					results[i] = new Result(measures[i], null, e);
+				}
+				nanos[i] = System.nanoTime() - t;
+				finished[i] = true;
+			}
+		}
+		apportion(shared, finished, nanos);
+		record(results, nanos, start);
+		return results;
+	}
+
+	// a quiet kernel failure becomes the measure's shared exception for that status
+	private Result failed(int i, Exception e)
+	{
+		if ( !(e instanceof MeasureStatus.Failure) ) return new Result(measures[i], null, e);
+		int status = ((MeasureStatus.Failure)e).getStatus();
+		int slot = i * MeasureStatus.COUNT + status;
+		Exception error = statusErrors.get(slot);
+		if ( error == null ) {
+			error = MeasureStatus.exception(status, measures[i].getName());
+			error.setStackTrace(new StackTraceElement[0]);
+			if ( !statusErrors.compareAndSet(slot, null, error) ) error = statusErrors.get(slot);
+		}
+		return new Result(measures[i], status, null, error);
+	}
+
+	private static Result compare(Measure m, Descriptor d1, Descriptor d2) {
+		try {
+			return new Result(m, m.compare(d1, d2), null);
+		}
+		catch(Exception e) {
+			return new Result(m, null, e);
+		}
+	}
+
+	/*
+	 *  Outcome of one measure: either a similarity or the exception it raised, and its MeasureStatus.
+	 */
+	public static class Result {
+		public final Measure measure;
+		public final int status;
+		public final Similarity similarity;
+		public final Exception error;
+		private long nanos;		// set once by the evaluator that made the Result, see getNanos()
+		public Result(Measure measure, Similarity similarity, Exception error) {
+			this(measure, MeasureStatus.of(error), similarity, error);
+		}
+		public Result(Measure measure, int status, Similarity similarity, Exception error) {
+			this.measure = measure; this.status = status; this.similarity = similarity; this.error = error;
+		}
+		/*
+		 *  The measure's own time on the pair in ns, including its share of a sweep, table or stream it was
+		 *  finished from, as recorded in the evaluator's MetricsRegistry; 0 for a Result made elsewhere.
+		 */
+		public long getNanos() { return nanos; }
+	}
+}
@@ -0,0 +1,27 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  A Measure over two VoxelToArrayFeatures whose value is a function of their ContingencyTable.
+ *  Lets BatchMeasureEvaluator build the table once per pair for all such measures.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.measure;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.ContingencyTable;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
+
+public interface ContingencyMeasure extends Measure {
+	public double compute(MathKernels kernels, ContingencyTable table) throws Exception;
+}
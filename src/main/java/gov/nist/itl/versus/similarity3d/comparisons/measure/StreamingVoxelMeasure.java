@@ -0,0 +1,29 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  A voxel Measure that can be finished from the counts of a VoxelCounter, so BatchMeasureEvaluator can
+ *  compare two volumes streamed chunk by chunk instead of two VoxelToArrayFeatures held whole.
+ *  The result is the same as compare(Descriptor, Descriptor) on the whole volumes.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.measure;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+import edu.illinois.ncsa.versus.measure.SimilarityNumber;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelCounter;
+
+public interface StreamingVoxelMeasure extends Measure {
+	public boolean usesContingency();		// whether compare(VoxelCounter) reads counts.table()
+	public SimilarityNumber compare(VoxelCounter counts) throws Exception;
+}
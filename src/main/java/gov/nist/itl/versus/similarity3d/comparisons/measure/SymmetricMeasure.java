@@ -0,0 +1,24 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  Marker for a Measure whose compare(a,b) and compare(b,a) give the same result, value bits or exception
+ *  alike. AllPairsEngine computes such a measure once per unordered pair and mirrors it.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.measure;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+
+public interface SymmetricMeasure extends Measure {
+}
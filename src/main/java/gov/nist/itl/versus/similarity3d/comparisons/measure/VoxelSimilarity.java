@@ -0,0 +1,96 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  All the voxel-based indices of one VoxelToArrayFeature pair, from a single ContingencyTable and a
+ *  single VoxelMask overlap count (or from one VoxelCounter). Each index holds either its value,
+ *  bit-identical to the measure of the same name, or the exception that measure would raise.
+ *  As a SimilarityNumber its value is the Adjusted Rand Index, or NaN when that index failed.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.measure;
+
+import edu.illinois.ncsa.versus.measure.SimilarityNumber;
+import gov.nist.itl.versus.similarity3d.comparisons.ContingencyTable;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelCounter;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelMask;
+
+public class VoxelSimilarity extends SimilarityNumber
+{
+	public enum Index {
+		ADJUSTED_RAND,					// AdjustedRandIndexMeasure
+		RAND,							// RandIndexMeasure
+		TOTAL_ERROR_RATE_EVALUATION,	// TotalErrorRateEvaluationMeasure
+		TOTAL_ERROR_RATE_TEST,			// TotalErrorRateTestMeasure
+		DICE,							// DiceVoxelMeasure
+		JACCARD							// JaccardVoxelMeasure
+	}
+
+	private final double[] values;
+	private final Exception[] errors;
+
+	private VoxelSimilarity(double[] values, Exception[] errors) {
+		super( errors[Index.ADJUSTED_RAND.ordinal()] == null ? values[Index.ADJUSTED_RAND.ordinal()] : Double.NaN );
+		this.values = values;
+		this.errors = errors;
+	}
+
+	/*
+	 *  Computes every index; an index that cannot be computed holds its exception, and the others are kept.
+	 */
+	public static VoxelSimilarity compute(MathKernels kernels, ContingencyTable table, VoxelMask m1, VoxelMask m2) throws Exception
+	{
+		return compute(kernels, table, m1.andCount(m2), m1.cardinality(), m2.cardinality());
+	}
+
+	public static VoxelSimilarity compute(MathKernels kernels, VoxelCounter counts) throws Exception
+	{
+		return compute(kernels, counts.table(), counts.overlap(), counts.size1(), counts.size2());
+	}
+
+	private static VoxelSimilarity compute(MathKernels kernels, ContingencyTable table, long overlap, long size1, long size2) throws Exception
+	{
+		Index[] indices = Index.values();
+		double[] values = new double[indices.length];
+		Exception[] errors = new Exception[indices.length];
+		for (Index i : indices) {
+			try {
+				switch (i) {
+					case ADJUSTED_RAND:               values[i.ordinal()] = kernels.pixel_measure_ari(table); break;
+					case RAND:                        values[i.ordinal()] = kernels.pixel_measure_ri(table); break;
+					case TOTAL_ERROR_RATE_EVALUATION: values[i.ordinal()] = kernels.pixel_measure_tee(overlap, size1, size2); break;
+					case TOTAL_ERROR_RATE_TEST:       values[i.ordinal()] = kernels.pixel_measure_tet(overlap, size1, size2); break;
+					case DICE:                        values[i.ordinal()] = kernels.pixel_measure_dice(overlap, size1, size2); break;
+					case JACCARD:                     values[i.ordinal()] = kernels.pixel_measure_jaccard(overlap, size1, size2); break;
+				}
+			}
+			catch(Exception e) {
+				errors[i.ordinal()] = e;
+			}
+		}
+		return new VoxelSimilarity(values, errors);
+	}
+
+	/*
+	 *  Returns the index, or raises the exception its measure would have raised.
+	 */
+	public double get(Index i) throws Exception {
+		if ( errors[i.ordinal()] != null ) throw errors[i.ordinal()];
+		return values[i.ordinal()];
+	}
+
+	public Exception getError(Index i) {
+		return errors[i.ordinal()];
+	}
+}
@@ -29,17 +29,20 @@ import edu.illinois.ncsa.versus.measure.SimilarityPercentage;
 import edu.illinois.ncsa.versus.utility.HasCategory;
 import edu.illinois.ncsa.versus.utility.HasHelp;
 import edu.illinois.ncsa.versus.utility.HelpProvider;
-import gov.nist.itl.versus.similarity3d.comparisons.MathOpsE;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramEquation;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
 import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
 import gov.nist.itl.versus.similarity3d.comparisons.exception.ImageCompatibilityException;
 import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
 import gov.nist.itl.versus.similarity3d.comparisons.exception.SWIndependenceException;
 import gov.nist.itl.versus.similarity3d.comparisons.exception.SingularityTreatmentException;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.HistogramMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.SymmetricMeasure;
 
 
-public class ChebyshevLInfMeasure implements Measure, HasCategory, HasHelp
+public class ChebyshevLInfMeasure implements Measure, HasCategory, HasHelp, HistogramMeasure, SymmetricMeasure
 {
-	private MathOpsE ops = new MathOpsE();
+	private final MathKernels kernels = new MathKernels();
 
 		@Override
 		public SimilarityPercentage normalize(Similarity similarity) {
@@ -61,22 +64,19 @@ public class ChebyshevLInfMeasure implements Measure, HasCategory, HasHelp
 							throw new ImageCompatibilityException("Features must have the same length");
 					}
 					
-					Double[] normHist1 = ops.normalizeHistogram( feature1.getHistogram() );
+					double[] normHist1 = feature1.getNormalizedHistogram();
 					
 						if ( normHist1 == null ) 
 							throw new MathCompatibilityException("Histogram normalization failed for VoxelToArrayFeature histogram1");					
 					
-					Double[] normHist2 = ops.normalizeHistogram( feature1.getHistogram() );
+					double[] normHist2 = feature2.getNormalizedHistogram();
 					
 						if ( normHist2 == null ) 
 							throw new MathCompatibilityException("Histogram normalization failed for VoxelToArrayFeature histogram2");
 
-					Double measurement  = ops.histogram_measure_chebyshev( normHist1, normHist2 );
+					double measurement  = kernels.histogram_measure_chebyshev( normHist1, normHist2 );
 									
-						if ( measurement == null ) 
-							throw new SingularityTreatmentException("Received null measurement value");	
-							
-					SimilarityNumber result = new SimilarityNumber(measurement.doubleValue());
+					SimilarityNumber result = new SimilarityNumber(measurement);
 				
 						if ( result == null )
 							throw new SingularityTreatmentException("Received null SimilarityNumber comparison result");							
@@ -139,6 +139,11 @@ public class ChebyshevLInfMeasure implements Measure, HasCategory, HasHelp
 			return ChebyshevLInfMeasure.class;
 		}	
 		
+		@Override
+		public HistogramEquation getEquation() {
+			return HistogramEquation.CHEBYSHEV;
+		}
+		
 		@Override
 		public String getCategory() {
 			return "3D Lp Minkowski Family";
@@ -29,15 +29,19 @@ import edu.illinois.ncsa.versus.measure.SimilarityPercentage;
 import edu.illinois.ncsa.versus.utility.HasCategory;
 import edu.illinois.ncsa.versus.utility.HasHelp;
 import edu.illinois.ncsa.versus.utility.HelpProvider;
-import gov.nist.itl.versus.similarity3d.comparisons.MathOpsE;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelCounter;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelMask;
 import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
 import gov.nist.itl.versus.similarity3d.comparisons.exception.ImageCompatibilityException;
 import gov.nist.itl.versus.similarity3d.comparisons.exception.SWIndependenceException;
 import gov.nist.itl.versus.similarity3d.comparisons.exception.SingularityTreatmentException;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.StreamingVoxelMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.SymmetricMeasure;
 
-public class JaccardVoxelMeasure implements Measure, HasCategory, HasHelp
+public class JaccardVoxelMeasure implements Measure, HasCategory, HasHelp, SymmetricMeasure, StreamingVoxelMeasure
 {
-	private MathOpsE ops = new MathOpsE();
+	private final MathKernels kernels = new MathKernels();
 
 		@Override
 		public SimilarityPercentage normalize(Similarity similarity) {
@@ -67,21 +71,12 @@ public class JaccardVoxelMeasure implements Measure, HasCategory, HasHelp
 				throw new ImageCompatibilityException("Features must have the same depth");
 			}
 
-			Double[] va1 = feature1.voxelsToArray();
-				
-				if ( va1 == null ) 
-						throw new SWIndependenceException("failed to create object for VoxelToArrayFeature voxel array1");
-			
-			Double[] va2 = feature2.voxelsToArray();
-			
-				if ( va2 == null ) 
-						throw new SWIndependenceException("failed to create object for VoxelToArrayFeature voxel array2");
+			VoxelMask vm1 = feature1.getVoxelMask();
+			VoxelMask vm2 = feature2.getVoxelMask();
 			
-			Double measurement = ops.pixel_measure_jaccard_nD(va1, va2 );	
-				if ( measurement == null ) 
-					throw new SingularityTreatmentException("Received null measurement value");	
+			double measurement = kernels.pixel_measure_jaccard( vm1, vm2 );
 					
-			SimilarityNumber result = new SimilarityNumber(measurement.doubleValue());
+			SimilarityNumber result = new SimilarityNumber(measurement);
 					
 				if ( result == null )
 					throw new SingularityTreatmentException("Received null SimilarityNumber comparison value");							
@@ -90,6 +85,19 @@ public class JaccardVoxelMeasure implements Measure, HasCategory, HasHelp
 		}
 
 	
+		@Override
+		public boolean usesContingency() {
+			return false;
+		}
+
+		/**
+		 * Finishes the measure from the counts of two volumes streamed through a VoxelCounter.
+		 */
+		@Override
+		public SimilarityNumber compare(VoxelCounter counts) throws Exception {
+			return new SimilarityNumber( kernels.pixel_measure_jaccard( counts.overlap(), counts.size1(), counts.size2() ) );
+		}
+
 		@Override
 		public SimilarityNumber compare(Descriptor feature1, Descriptor feature2)	throws Exception {
 
@@ -0,0 +1,26 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  The Measure implementations.
+ *
+ *  Every Measure in this package is safe to call from many threads at once: its only field is a final,
+ *  stateless MathKernels, and each compare() keeps its intermediate values in locals. One instance of
+ *  each measure can therefore serve a whole pool of comparison threads.
+ *  The descriptors they read (VoxelHistogramDescriptor, VoxelToArrayFeature) are immutable once
+ *  constructed; the arrays they derive on first use (normalized histogram, voxel mask, labels) may be
+ *  computed more than once under contention, but are published through volatile fields and are
+ *  never modified afterwards.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.measure.impl;
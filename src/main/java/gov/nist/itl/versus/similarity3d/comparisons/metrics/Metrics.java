@@ -0,0 +1,206 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *	description:	In-memory MetricsRegistry: a total time and event count per stage, named counters, failures
+ *					per exception class and a latency histogram per measure. Every update is a few atomic adds,
+ *					with no lock, so workers do not contend on it.
+ *
+ *					A latency histogram has 4 buckets per power of two of nanoseconds, so the reported
+ *					percentiles (the upper bound of the bucket holding that rank) are within 25% of the
+ *					exact value; count, mean and max are exact.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.metrics;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Metrics implements MetricsRegistry, MetricsMXBean
+{
+	private final AtomicLongArray stageNanos  = new AtomicLongArray(Stage.values().length);
+	private final AtomicLongArray stageCounts = new AtomicLongArray(Stage.values().length);
+	private final ConcurrentMap<String,AtomicLong> counters = new ConcurrentHashMap<String,AtomicLong>();
+	private final ConcurrentMap<String,AtomicLong> failures = new ConcurrentHashMap<String,AtomicLong>();
+	private final ConcurrentMap<String,Histogram> latencies = new ConcurrentHashMap<String,Histogram>();
+
+	public void stage(Stage stage, long nanos) {
+		stageNanos.addAndGet(stage.ordinal(), nanos);
+		stageCounts.incrementAndGet(stage.ordinal());
+	}
+
+	public void measure(String measure, long nanos) {
+		Histogram h = latencies.get(measure);
+		if ( h == null ) {
+			Histogram fresh = new Histogram();
+			h = latencies.putIfAbsent(measure, fresh);
+			if ( h == null ) h = fresh;
+		}
+		h.add(nanos);
+	}
+
+	public void count(String counter, long delta) {
+		add(counters, counter, delta);
+	}
+
+	public void failure(Throwable e) {
+		add(failures, e.getClass().getSimpleName(), 1);
+	}
+
+	private static void add(ConcurrentMap<String,AtomicLong> map, String key, long delta) {
+		AtomicLong c = map.get(key);
+		if ( c == null ) {
+			AtomicLong fresh = new AtomicLong();
+			c = map.putIfAbsent(key, fresh);
+			if ( c == null ) c = fresh;
+		}
+		c.addAndGet(delta);
+	}
+
+	// MetricsMXBean
+
+	public Map<String,Long> getStageNanos()  { return stages(stageNanos); }
+	public Map<String,Long> getStageCounts() { return stages(stageCounts); }
+	public Map<String,Long> getCounters()    { return snapshot(counters); }
+	public Map<String,Long> getFailures()    { return snapshot(failures); }
+
+	public Map<String,Latency> getMeasureLatencies() {
+		Map<String,Latency> m = new TreeMap<String,Latency>();
+		for (Map.Entry<String,Histogram> e : latencies.entrySet()) m.put(e.getKey(), e.getValue().latency());
+		return m;
+	}
+
+	public void reset() {
+		for (int i=0; i < stageNanos.length(); i++) {
+			stageNanos.set(i, 0);
+			stageCounts.set(i, 0);
+		}
+		counters.clear();
+		failures.clear();
+		latencies.clear();
+	}
+
+	public String getSummary() {
+		return summary();
+	}
+
+	/*
+	 * One line per stage, counter, failure type and measure; times in milliseconds.
+	 */
+	public String summary()
+	{
+		StringBuilder s = new StringBuilder();
+		for (Stage st : Stage.values()) {
+			long n = stageCounts.get(st.ordinal());
+			if ( n == 0 ) continue;
+			s.append(String.format("stage   %-10s %10d events %12.1f ms%n", st, n, stageNanos.get(st.ordinal()) / 1e6));
+		}
+		for (Map.Entry<String,Long> e : getCounters().entrySet())
+			s.append(String.format("counter %-22s %14d%n", e.getKey(), e.getValue()));
+		for (Map.Entry<String,Long> e : getFailures().entrySet())
+			s.append(String.format("failure %-22s %14d%n", e.getKey(), e.getValue()));
+		for (Map.Entry<String,Latency> e : getMeasureLatencies().entrySet()) {
+			Latency l = e.getValue();
+			s.append(String.format("measure %-40s n=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f max=%.3f ms%n", e.getKey(), l.getCount(),
+					l.getMeanNanos() / 1e6, l.getP50Nanos() / 1e6, l.getP90Nanos() / 1e6, l.getP99Nanos() / 1e6, l.getMaxNanos() / 1e6));
+		}
+		return s.toString();
+	}
+
+	private static Map<String,Long> stages(AtomicLongArray a) {
+		Map<String,Long> m = new TreeMap<String,Long>();
+		for (Stage st : Stage.values()) m.put(st.name(), a.get(st.ordinal()));
+		return m;
+	}
+
+	private static Map<String,Long> snapshot(ConcurrentMap<String,AtomicLong> map) {
+		Map<String,Long> m = new TreeMap<String,Long>();
+		for (Map.Entry<String,AtomicLong> e : map.entrySet()) m.put(e.getKey(), e.getValue().get());
+		return m;
+	}
+
+	/*
+	 * Summary of one measure's latencies, as JMX shows it.
+	 */
+	public static class Latency {
+		private final long count, meanNanos, p50Nanos, p90Nanos, p99Nanos, maxNanos;
+
+		@ConstructorProperties({ "count", "meanNanos", "p50Nanos", "p90Nanos", "p99Nanos", "maxNanos" })
+		public Latency(long count, long meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+			this.count = count;
+			this.meanNanos = meanNanos;
+			this.p50Nanos = p50Nanos;
+			this.p90Nanos = p90Nanos;
+			this.p99Nanos = p99Nanos;
+			this.maxNanos = maxNanos;
+		}
+
+		public long getCount()     { return count; }
+		public long getMeanNanos() { return meanNanos; }
+		public long getP50Nanos()  { return p50Nanos; }
+		public long getP90Nanos()  { return p90Nanos; }
+		public long getP99Nanos()  { return p99Nanos; }
+		public long getMaxNanos()  { return maxNanos; }
+	}
+
+	// values 0..3 have a bucket each; above, 4 buckets per power of two
+	final static class Histogram {
+		private final static int BUCKETS = 4 * 62;
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong count = new AtomicLong(), sum = new AtomicLong(), max = new AtomicLong();
+
+		void add(long nanos) {
+			if ( nanos < 0 ) nanos = 0;
+			buckets.incrementAndGet(bucket(nanos));
+			count.incrementAndGet();
+			sum.addAndGet(nanos);
+			long m;
+			while ( nanos > (m = max.get()) && !max.compareAndSet(m, nanos) ) ;
+		}
+
+		static int bucket(long v) {
+			if ( v < 4 ) return (int)v;
+			int e = 63 - Long.numberOfLeadingZeros(v);		// >= 2
+			return 4 * (e - 1) + (int)((v >>> (e - 2)) & 3);
+		}
+
+		static long upper(int b) {
+			if ( b < 4 ) return b;
+			int e = b / 4 + 1;
+			return ((4L + b % 4 + 1) << (e - 2)) - 1;
+		}
+
+		// upper bound of the bucket holding the q-quantile, capped at the exact max
+		private long quantile(long[] b, long n, double q) {
+			long rank = (long)Math.ceil(q * n), seen = 0;
+			for (int i=0; i < b.length; i++) {
+				seen += b[i];
+				if ( seen >= rank && seen > 0 ) return Math.min(upper(i), max.get());
+			}
+			return max.get();
+		}
+
+		Latency latency() {
+			long[] b = new long[BUCKETS];
+			long n = 0;
+			for (int i=0; i < BUCKETS; i++) n += (b[i] = buckets.get(i));
+			if ( n == 0 ) return new Latency(0, 0, 0, 0, 0, 0);
+			return new Latency(n, sum.get() / n, quantile(b, n, 0.50), quantile(b, n, 0.90), quantile(b, n, 0.99), max.get());
+		}
+	}
+}
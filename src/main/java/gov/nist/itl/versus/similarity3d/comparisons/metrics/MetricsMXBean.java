@@ -0,0 +1,31 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  JMX view of a Metrics registry, registered by Main as gov.nist.itl.versus.similarity3d:type=Metrics
+ *  (config: metrics.jmx=true|false). Times are in nanoseconds.
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.metrics;
+
+import java.util.Map;
+
+public interface MetricsMXBean {
+	public Map<String,Long> getStageNanos();		// total time per stage
+	public Map<String,Long> getStageCounts();		// timed events per stage
+	public Map<String,Long> getCounters();
+	public Map<String,Long> getFailures();			// exception class -> count
+	public Map<String,Metrics.Latency> getMeasureLatencies();
+	public String getSummary();
+	public void reset();
+}
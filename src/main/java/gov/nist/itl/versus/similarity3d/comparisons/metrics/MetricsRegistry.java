@@ -0,0 +1,52 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ *
+ *  @version 1.0
+ *
+ *  Receives the timings and counts of a comparison run. Implementations must be thread-safe: all-pairs
+ *  workers report concurrently. Metrics is the in-memory implementation; NONE discards everything.
+ *  Main picks the implementation from its config (metrics.registry=class name).
+ */
+
+package gov.nist.itl.versus.similarity3d.comparisons.metrics;
+
+public interface MetricsRegistry {
+
+	public enum Stage {
+		LOAD,		// mapping a cached RawVolumeFile
+		DECODE,		// reading and decoding a source file with the configured adapter
+		EXTRACT,	// adapter to descriptor
+		NORMALIZE,	// histogram normalization
+		MEASURE,	// evaluating a measure batch on one pair
+		WRITE		// writing results and cached volumes
+	}
+
+	// counters
+	public final static String PAIRS		= "pairs";			// file pairs compared
+	public final static String FILES		= "files";			// files loaded
+	public final static String BYTES_READ	= "bytes.read";		// size of the files loaded
+	public final static String VOXELS		= "voxels";			// voxels in the volumes loaded
+
+	public void stage(Stage stage, long nanos);
+	public void measure(String measure, long nanos);	// one measure on one pair
+	public void count(String counter, long delta);
+	public void failure(Throwable e);					// counted by exception class
+	public String summary();
+
+	public final static MetricsRegistry NONE = new MetricsRegistry() {
+		public void stage(Stage stage, long nanos) {}
+		public void measure(String measure, long nanos) {}
+		public void count(String counter, long delta) {}
+		public void failure(Throwable e) {}
+		public String summary() { return ""; }
+	};
+}
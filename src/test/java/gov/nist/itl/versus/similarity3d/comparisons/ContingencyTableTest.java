@@ -0,0 +1,120 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          ContingencyTable
+ * description   Checks the contingency-table Rand indices against the dense MathOpsE equations.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.util.Random;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+import org.junit.Test;
+
+/**
+ * ContingencyTable Test
+ */
+public class ContingencyTableTest extends junit.framework.TestCase
+{
+	private static MathOpsE mopsE = new MathOpsE();
+	private static MathKernels kernels = new MathKernels();
+
+	public ContingencyTableTest(){}
+
+	private static double[][][] volume( Random r, int d, int w, int h, int labels, int offset )
+	{
+		return volume( r, d, w, h, labels, offset, 1 );
+	}
+
+	private static double[][][] volume( Random r, int d, int w, int h, int labels, int offset, int stride )
+	{
+		double[][][] v = new double[d][w][h];
+		for (int z=0; z < d; z++)
+			for (int x=0; x < w; x++)
+				for (int y=0; y < h; y++)
+					v[z][x][y] = offset + r.nextInt(labels) * stride + r.nextDouble() * 0.99;	// truncated to the label
+		return v;
+	}
+
+	private static Double[] flatten( double[][][] v, int shift, int stride )
+	{
+		int n = 0;
+		for (double[][] s : v) for (double[] c : s) n += c.length;
+		Double[] a = new Double[n];
+		int i = 0;
+		for (double[][] s : v) for (double[] c : s) for (double x : c) a[i++] = (double)(((int)x + shift) / stride);
+		return a;
+	}
+
+	private static ContingencyTable table( double[][][] v1, double[][][] v2 ) throws Exception {
+		return ContingencyTable.build( ContingencyTable.labels(v1), ContingencyTable.labels(v2) );
+	}
+
+	private static void compare( double[][][] v1, double[][][] v2, int shift1, int shift2 ) throws Exception
+	{
+		compare( v1, v2, shift1, shift2, 1 );
+	}
+
+	// MathOpsE needs small labels >= 0, so it is given (label + shift) / stride; the indices depend only on
+	// which voxels share a label, not on the label values
+	private static void compare( double[][][] v1, double[][][] v2, int shift1, int shift2, int stride ) throws Exception
+	{
+		ContingencyTable t = table( v1, v2 );
+		Double[] a1 = flatten( v1, shift1, stride ), a2 = flatten( v2, shift2, stride );
+		assertEquals( Double.doubleToLongBits( mopsE.pixel_measure_ari_nD( a1, a2 ) ), Double.doubleToLongBits( kernels.pixel_measure_ari( t ) ) );
+		assertEquals( Double.doubleToLongBits( mopsE.pixel_measure_ri_nD( a1, a2 ) ),  Double.doubleToLongBits( kernels.pixel_measure_ri( t ) ) );
+	}
+
+	@Test
+	public void testDenseTable() throws Exception {
+		Random r = new Random( 3 );
+		int[][] shapes = { {1,3,3}, {1,4,4}, {3,7,5}, {4,16,16} };
+		for (int[] s : shapes)
+			for (int labels : new int[] { 2, 5, 40 })
+				compare( volume( r, s[0], s[1], s[2], labels, 0 ), volume( r, s[0], s[1], s[2], labels, 0 ), 0, 0 );
+	}
+
+	@Test
+	public void testHashedTable() throws Exception {
+		Random r = new Random( 5 );
+		// label ranges of about 4000 x 3000 cells are counted sparsely
+		compare( volume( r, 3, 20, 20, 40, 0, 100 ), volume( r, 3, 20, 20, 30, 0, 100 ), 0, 0, 100 );
+		compare( volume( r, 2, 30, 30, 20, -2000, 200 ), volume( r, 2, 30, 30, 25, -2000, 200 ), 2000, 2000, 200 );
+	}
+
+	@Test
+	public void testNegativeLabels() throws Exception {
+		Random r = new Random( 7 );
+		double[][][] v1 = volume( r, 2, 8, 8, 6, -1030 ), v2 = volume( r, 2, 8, 8, 9, -3 );
+		compare( v1, v2, 1030, 3 );
+	}
+
+	@Test
+	public void testSingleLabel() throws Exception {
+		double[][][] v = new double[1][3][3];
+		ContingencyTable t = table( v, v );
+		assertEquals( 1.0, kernels.pixel_measure_ri( t ) );
+		try { kernels.pixel_measure_ari( t ); fail( "0/0 accepted" ); }
+		catch(Exception e) {}
+	}
+
+	@Test
+	public void testLengthMismatch() throws Exception {
+		try { ContingencyTable.build( new int[3], new int[4] ); fail( "length mismatch accepted" ); }
+		catch(MathCompatibilityException e) {}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( ContingencyTableTest.class );
+	}
+}
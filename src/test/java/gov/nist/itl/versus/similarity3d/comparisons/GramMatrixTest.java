@@ -0,0 +1,167 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          GramMatrix
+ * description   Checks the blocked products against plain dot products, and the measures finished from them
+ *               against the kernels.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * GramMatrix Test
+ */
+public class GramMatrixTest extends junit.framework.TestCase
+{
+	private static MathKernels kernels = new MathKernels();
+
+	public GramMatrixTest(){}
+
+	private static HistogramTransforms randomHistogram( Random r, int len )
+	{
+		double[] h = new double[len];
+		for ( int i=0; i < len; i++ ) h[i] = ( r.nextInt(4) == 0 ) ? 0 : r.nextInt(5000);
+		try {
+			return new HistogramTransforms( kernels.normalizeHistogram(h) );
+		}
+		catch( Exception e ) {
+			throw new IllegalStateException( e );
+		}
+	}
+
+	@Test
+	public void testMultiply() throws Exception {
+		Random r = new Random( 11L );
+		int rows = 5, cols = 7, len = 3 * GramMatrix.K_BLOCK + 17;
+		double[] a = new double[rows * len], b = new double[cols * len], c = new double[rows * cols];
+		for ( int i=0; i < a.length; i++ ) a[i] = r.nextDouble();
+		for ( int i=0; i < b.length; i++ ) b[i] = r.nextDouble();
+		GramMatrix.multiplyTransposed( a, rows, b, cols, len, c );
+		for ( int i=0; i < rows; i++ ) for ( int j=0; j < cols; j++ ) {
+			double plain = 0d;
+			for ( int k=0; k < len; k++ ) plain += a[i * len + k] * b[j * len + k];
+			assertEquals( plain, c[i * cols + j], 1e-12 * plain );
+			assertEquals( Double.doubleToLongBits( GramMatrix.dot(a, i * len, b, j * len, len) ), Double.doubleToLongBits( c[i * cols + j] ) );
+			assertEquals( Double.doubleToLongBits( GramMatrix.dot(b, j * len, a, i * len, len) ), Double.doubleToLongBits( c[i * cols + j] ) );
+		}
+	}
+
+	@Test
+	public void testEquations() throws Exception {
+		Random r = new Random( 12L );
+		int len = 1500;
+		HistogramTransforms[] rows = new HistogramTransforms[6], cols = new HistogramTransforms[5];
+		for ( int i=0; i < rows.length; i++ ) rows[i] = randomHistogram( r, len );
+		for ( int j=0; j < cols.length; j++ ) cols[j] = randomHistogram( r, len );
+		cols[1] = rows[2];									// identical histograms
+		double[] one = new double[len], other = new double[len];
+		one[0] = 1;  other[1] = 1;
+		rows[4] = new HistogramTransforms( one );			// disjoint from cols[3]
+		cols[3] = new HistogramTransforms( other );
+		rows[5] = null;										// left out
+		cols[4] = new HistogramTransforms( new double[len + 1] );
+
+		HistogramEquation[] all = HistogramEquation.values();
+		GramMatrix g = new GramMatrix( rows, 10, cols, 20, GramMatrix.termsFor(all) );
+		int covered = 0;
+		for ( HistogramEquation eq : all ) {
+			assertEquals( GramMatrix.supports(eq), g.covers(eq) );
+			if ( !g.covers(eq) ) continue;
+			covered++;
+			for ( int i=0; i < 5; i++ ) for ( int j=0; j < 4; j++ ) {
+				assertTrue( g.has(10 + i, 20 + j) && g.has(20 + j, 10 + i) );
+				double[] P = rows[i].getHistogram(), Q = cols[j].getHistogram();
+				String where = eq + " (" + i + "," + j + ")";
+				double expected;
+				try { expected = eq.compute(kernels, P, Q); }
+				catch( Exception e ) {
+					try { g.value(kernels, eq, 10 + i, 20 + j); fail( where + ": expected " + e.getClass().getSimpleName() ); }
+					catch( Exception x ) { assertEquals( where, e.getClass(), x.getClass() ); }
+					continue;
+				}
+				double v = g.value( kernels, eq, 10 + i, 20 + j );
+				assertEquals( where, expected, v, bound(len) * Math.abs(expected) );
+				assertEquals( where, Double.doubleToLongBits(v), Double.doubleToLongBits( g.value(kernels, eq, 20 + j, 10 + i) ) );
+			}
+		}
+		assertEquals( 3, covered );
+		assertTrue( !g.has(15, 20) && !g.has(10, 24) && !g.has(9, 20) );
+		try {
+			g.value( kernels, HistogramEquation.CANBERRA, 10, 20 );
+			fail( "expected IllegalStateException" );
+		}
+		catch( IllegalStateException e ) {}
+	}
+
+	// the documented distance from the kernels, relative
+	private static double bound( int len )
+	{
+		return 2 * len * Math.pow( 2, -53 );
+	}
+
+	@Test
+	public void testNearIdentical() throws Exception {
+		Random r = new Random( 13L );
+		int len = 4096;
+		HistogramEquation[] all = HistogramEquation.values();
+		for ( HistogramEquation eq : new HistogramEquation[]{ HistogramEquation.EUCLIDEAN, HistogramEquation.SQUARED_EUCLIDEAN,
+				HistogramEquation.HELLINGER, HistogramEquation.MATUSITA, HistogramEquation.BHATTACHARYYA } )
+			assertTrue( eq.toString(), !GramMatrix.supports(eq) );
+		for ( int t=0; t < 10; t++ ) {
+			double[] raw = new double[len], near = new double[len];
+			for ( int i=0; i < len; i++ ) {
+				raw[i] = ( r.nextInt(4) == 0 ) ? 0 : 1 + r.nextInt(5000);
+				near[i] = raw[i] * ( 1 + ((t % 2 == 0) ? 0 : 1e-9 * r.nextGaussian()) );
+			}
+			HistogramTransforms[] h = { new HistogramTransforms( kernels.normalizeHistogram(raw) ),
+					new HistogramTransforms( kernels.normalizeHistogram(near) ) };
+			GramMatrix g = new GramMatrix( h, 0, h, 0, GramMatrix.termsFor(all) );
+			for ( HistogramEquation eq : all ) {
+				if ( !g.covers(eq) ) continue;
+				double expected = eq.compute( kernels, h[0].getHistogram(), h[1].getHistogram() );
+				assertEquals( eq.toString(), expected, g.value(kernels, eq, 0, 1), bound(len) * Math.abs(expected) );
+			}
+		}
+	}
+
+	@Test
+	public void testQuiet() throws Exception {
+		double[] big = new double[64];
+		big[0] = 1e200;
+		HistogramTransforms[] h = { new HistogramTransforms(big) };
+		GramMatrix g = new GramMatrix( h, 0, h, 0, GramMatrix.PRODUCTS );
+		assertTrue( !g.covers(HistogramEquation.FIDELITY) );
+		int status = MeasureStatus.OK;
+		try {
+			kernels.histogram_measure_inner_product( big, big );
+		}
+		catch( Exception e ) {
+			status = MeasureStatus.of( e );
+		}
+		assertEquals( MeasureStatus.SINGULAR, status );
+		try {
+			g.value( new MathKernels(true), HistogramEquation.INNER_PRODUCT, 0, 0 );	// overflows
+			fail( "expected MeasureStatus.Failure" );
+		}
+		catch( MeasureStatus.Failure e ) {
+			assertEquals( status, e.getStatus() );
+		}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( GramMatrixTest.class );
+	}
+}
@@ -0,0 +1,119 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          HistogramBuilder
+ * description   Checks whole-volume histograms against a direct count, for any number of threads.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * HistogramBuilder Test
+ */
+public class HistogramBuilderTest extends junit.framework.TestCase
+{
+	public HistogramBuilderTest(){}
+
+	// unsigned 16 bit pixels, as ImageJ stores them
+	private static float[] volume( Random r, int n )
+	{
+		float[] v = new float[n];
+		for (int i=0; i < n; i++) v[i] = r.nextInt(65536);
+		return v;
+	}
+
+	@Test
+	public void testRawBins() throws Exception {
+		Random r = new Random( 15 );
+		float[] v = volume(r, 7*5*3);
+		long[] expected = new long[65536];
+		for (float f : v) expected[(int)f]++;
+		long[] counts = new HistogramBuilder(65536, 0, 65536).build(FloatBuffer.wrap(v), 7*5);
+		assertEquals( expected.length, counts.length );
+		for (int i=0; i < expected.length; i++) assertEquals( expected[i], counts[i] );
+	}
+
+	@Test
+	public void testThreadsAgree() throws Exception {
+		Random r = new Random( 16 );
+		int w = 512, h = 512, d = 24;		// enough voxels for several threads
+		float[] v = volume(r, w*h*d);
+		FloatBuffer buf = FloatBuffer.wrap(v);
+		long[] one = new HistogramBuilder(1000, 0, 65536, 1).build(buf, w*h);
+		for (int threads : new int[] { 2, 3, 4, 7 }) {
+			long[] many = new HistogramBuilder(1000, 0, 65536, threads).build(buf, w*h);
+			for (int i=0; i < one.length; i++) assertEquals( one[i], many[i] );
+		}
+		assertEquals( 0, buf.position() );
+		long total = 0;
+		for (long c : one) total += c;
+		assertEquals( (long)v.length, total );
+	}
+
+	@Test
+	public void testConcurrentBuildsShareThePool() throws Exception {
+		Random r = new Random( 17 );
+		int w = 256, h = 256, d = 48;
+		final FloatBuffer buf = FloatBuffer.wrap(volume(r, w*h*d)).asReadOnlyBuffer();
+		final int slice = w*h;
+		final long[] one = new HistogramBuilder(1000, 0, 65536, 1).build(buf, slice);
+		final int cores = Runtime.getRuntime().availableProcessors();
+		final boolean[] ok = new boolean[2 * cores + 1];
+		Thread[] callers = new Thread[ok.length];
+		for (int c=0; c < callers.length; c++) {
+			final int k = c;
+			callers[c] = new Thread() {
+				public void run() {
+					long[] many = new HistogramBuilder(1000, 0, 65536, 8).build(buf, slice);
+					ok[k] = java.util.Arrays.equals(one, many);
+				}
+			};
+			callers[c].start();
+		}
+		for (Thread t : callers) t.join();
+		for (boolean b : ok) assertTrue( b );
+		int pooled = 0;
+		for (Thread t : Thread.getAllStackTraces().keySet())
+			if ( "HistogramBuilder".equals(t.getName()) ) pooled++;
+		assertTrue( "pool threads: " + pooled, pooled <= cores );
+	}
+
+	@Test
+	public void testCalibratedRange() throws Exception {
+		// signed 16 bit CT stored unsigned: HU = raw - 32768, histogram of [-1024, 3072) HU in 4 HU bins
+		float[] v = { 32768 - 2000, 32768 - 1024, 32768 - 1021, 32768 - 1020, 32768, 32768 + 3071, 32768 + 3072, 32768 + 9000, Float.NaN };
+		long[] counts = new HistogramBuilder(1024, -1024, 3072).build(FloatBuffer.wrap(v), v.length, -32768, 1);
+		long[] expected = new long[1024];
+		expected[0] = 3;		// -2000 (clamped), -1024, -1021
+		expected[1] = 1;		// -1020
+		expected[256] = 1;		// 0
+		expected[1023] = 3;		// 3071, 3072 and 9000 (clamped)
+		for (int i=0; i < expected.length; i++) assertEquals( "bin " + i, expected[i], counts[i] );
+	}
+
+	@Test
+	public void testInvalidArguments() throws Exception {
+		try { new HistogramBuilder(0, 0, 1); fail("bins"); } catch(IllegalArgumentException e) {}
+		try { new HistogramBuilder(10, 1, 1); fail("range"); } catch(IllegalArgumentException e) {}
+		try { new HistogramBuilder(10, 0, 1, 0); fail("threads"); } catch(IllegalArgumentException e) {}
+		try { new HistogramBuilder(10, 0, 1).build(FloatBuffer.wrap(new float[5]), 2); fail("slices"); } catch(IllegalArgumentException e) {}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( HistogramBuilderTest.class );
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          HistogramSweep
+ * description   Checks that one shared sweep finishes every equation exactly as its own kernel does.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.util.Random;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+import org.junit.Test;
+
+/**
+ * HistogramSweep Test
+ */
+public class HistogramSweepTest extends junit.framework.TestCase
+{
+	private static MathKernels kernels = new MathKernels();
+
+	public HistogramSweepTest(){}
+
+	private static String outcome( HistogramSweep s, HistogramEquation eq )
+	{
+		try {
+			return Long.toHexString( Double.doubleToLongBits( s.value(eq) ) );
+		}
+		catch( Exception e ) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static String outcome( HistogramEquation eq, double[] P, double[] Q )
+	{
+		try {
+			return Long.toHexString( Double.doubleToLongBits( eq.compute(kernels, P, Q) ) );
+		}
+		catch( Exception e ) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static void compareAll( double[] raw1, double[] raw2 ) throws Exception
+	{
+		double[] P = kernels.normalizeHistogram( raw1 );
+		double[] Q = kernels.normalizeHistogram( raw2 );
+		HistogramEquation[] all = HistogramEquation.values();
+		HistogramSweep s = new HistogramSweep( kernels );
+		s.sweep( P, Q, HistogramSweep.termsFor(all) );
+		for ( HistogramEquation eq : all ) {
+			assertEquals( eq.toString(), outcome(eq, P, Q), outcome(s, eq) );
+		}
+	}
+
+	private static double[] randomHistogram( Random r, int len )
+	{
+		double[] h = new double[len];
+		for ( int i=0; i < len; i++ ) h[i] = ( r.nextInt(4) == 0 ) ? 0 : r.nextInt(5000);
+		return h;
+	}
+
+	@Test
+	public void testAllEquations() throws Exception {
+		assertEquals( 62, HistogramEquation.values().length );
+		Random r = new Random( 1234L );
+		for ( int t=0; t < 40; t++ ) {
+			int len = 1 + r.nextInt(4096);
+			compareAll( randomHistogram(r, len), randomHistogram(r, len) );
+		}
+		double[] h = randomHistogram( r, 512 );
+		compareAll( h, h.clone() );
+	}
+
+	@Test
+	public void testTransformsExact() throws Exception {
+		Random r = new Random( 2021L );
+		HistogramEquation[] all = HistogramEquation.values();
+		for ( int t=0; t < 20; t++ ) {
+			int len = 1 + r.nextInt(4096);
+			double[] P = kernels.normalizeHistogram( randomHistogram(r, len) );
+			double[] Q = kernels.normalizeHistogram( randomHistogram(r, len) );
+			HistogramSweep s = new HistogramSweep( kernels );
+			s.sweep( new HistogramTransforms(P), new HistogramTransforms(Q), HistogramSweep.termsFor(all) );
+			for ( HistogramEquation eq : all ) {
+				assertEquals( eq.toString(), outcome(eq, P, Q), outcome(s, eq) );
+			}
+		}
+	}
+
+	@Test
+	public void testTransformsInexact() throws Exception {
+		Random r = new Random( 2022L );
+		HistogramEquation[] all = HistogramEquation.values();
+		for ( int t=0; t < 20; t++ ) {
+			int len = 1 + r.nextInt(4096);
+			double[] P = kernels.normalizeHistogram( randomHistogram(r, len) );
+			double[] Q = kernels.normalizeHistogram( randomHistogram(r, len) );
+			HistogramSweep s = new HistogramSweep( kernels, false );
+			s.sweep( new HistogramTransforms(P), new HistogramTransforms(Q), HistogramSweep.termsFor(all) );
+			for ( HistogramEquation eq : all ) {
+				double expected, got;
+				try { expected = eq.compute(kernels, P, Q); } catch( Exception e ) { expected = Double.NaN; }
+				try { got = s.value(eq); } catch( Exception e ) { got = Double.NaN; }
+				if ( Double.isNaN(expected) ) assertTrue( eq.toString(), Double.isNaN(got) );
+				else assertEquals( eq.toString(), expected, got, 1e-12 + 1e-9 * Math.abs(expected) );
+			}
+		}
+	}
+
+	@Test
+	public void testTransformsInexactNearIdentical() throws Exception {
+		Random r = new Random( 2023L );
+		HistogramEquation[] all = HistogramEquation.values();
+		for ( int t=0; t < 20; t++ ) {
+			int len = 1 + r.nextInt(4096);
+			double[] raw = randomHistogram( r, len ), near = raw.clone();
+			for ( int i=0; i < len; i++ ) near[i] *= 1 + ( (t % 2 == 0) ? 0 : 1e-6 * r.nextGaussian() );
+			double[] P = kernels.normalizeHistogram( raw );
+			double[] Q = kernels.normalizeHistogram( near );
+			HistogramSweep s = new HistogramSweep( kernels, false );
+			s.sweep( new HistogramTransforms(P), new HistogramTransforms(Q), HistogramSweep.termsFor(all) );
+			for ( HistogramEquation eq : all ) {
+				double expected, got;
+				try { expected = eq.compute(kernels, P, Q); } catch( Exception e ) { expected = Double.NaN; }
+				try { got = s.value(eq); } catch( Exception e ) { got = Double.NaN; }
+				if ( Double.isNaN(expected) ) assertTrue( eq.toString(), Double.isNaN(got) );
+				else assertEquals( eq.toString(), expected, got, 5e-8 + 1e-9 * Math.abs(expected) );
+			}
+		}
+	}
+
+	// value bits, or the MeasureStatus of the failure; a quiet failure must be the shared instance
+	private static String status( HistogramSweep s, HistogramEquation eq, boolean quiet )
+	{
+		try {
+			return Long.toHexString( Double.doubleToLongBits( s.value(eq) ) );
+		}
+		catch( Exception e ) {
+			int status = MeasureStatus.of( e );
+			if ( quiet && e instanceof MeasureStatus.Failure ) assertTrue( e == MeasureStatus.failure(status) );
+			else assertTrue( eq.toString(), !(e instanceof MeasureStatus.Failure) );
+			return MeasureStatus.name( status );
+		}
+	}
+
+	@Test
+	public void testQuietKernels() throws Exception {
+		Random r = new Random( 2024L );
+		HistogramEquation[] all = HistogramEquation.values();
+		int failures = 0;
+		for ( int t=0; t < 20; t++ ) {
+			int len = 2 + r.nextInt(1024);
+			double[] a = randomHistogram( r, len ), b = randomHistogram( r, len );
+			for ( int i=0; i < len; i++ ) {
+				if ( r.nextBoolean() ) a[i] = 0; else b[i] = 0;		// mostly disjoint: many singular terms
+			}
+			a[0] = b[0] = 1;
+			double[] P = kernels.normalizeHistogram( a ), Q = kernels.normalizeHistogram( b );
+			HistogramSweep loud  = new HistogramSweep( kernels );
+			HistogramSweep quiet = new HistogramSweep( new MathKernels(true) );
+			loud.sweep( new HistogramTransforms(P), new HistogramTransforms(Q), HistogramSweep.termsFor(all) );
+			quiet.sweep( new HistogramTransforms(P), new HistogramTransforms(Q), HistogramSweep.termsFor(all) );
+			for ( HistogramEquation eq : all ) {
+				String expected = status( loud, eq, false );
+				assertEquals( eq.toString(), expected, status(quiet, eq, true) );
+				if ( expected.equals("SINGULAR") || expected.equals("UNDEFINED") ) failures++;
+			}
+		}
+		assertTrue( failures > 0 );
+		assertEquals( MeasureStatus.SINGULAR, MeasureStatus.of(Double.NEGATIVE_INFINITY) );
+		assertEquals( MeasureStatus.UNDEFINED, MeasureStatus.of(MeasureStatus.exception(MeasureStatus.UNDEFINED, "x")) );
+	}
+
+	// a CT-like histogram: wide, with only a narrow band and a few outliers non-empty
+	private static double[] sparseHistogram( Random r, int len, int from, int width )
+	{
+		double[] h = new double[len];
+		for ( int i=from; i < from + width; i++ ) h[i] = ( r.nextInt(6) == 0 ) ? 0 : r.nextInt(5000);
+		for ( int k=0; k < 5; k++ ) h[r.nextInt(len)] = 1 + r.nextInt(10);
+		return h;
+	}
+
+	@Test
+	public void testSparse() throws Exception {
+		Random r = new Random( 2200L );
+		HistogramEquation[] all = HistogramEquation.values();
+		for ( int t=0; t < 20; t++ ) {
+			int len = 256 + r.nextInt(65536 - 256);
+			int w = 1 + r.nextInt(200);
+			double[] P = kernels.normalizeHistogram( sparseHistogram(r, len, r.nextInt(len - w), w) );
+			double[] Q = kernels.normalizeHistogram( sparseHistogram(r, len, r.nextInt(len - w), w) );
+			HistogramTransforms tP = new HistogramTransforms(P), tQ = new HistogramTransforms(Q);
+			assertTrue( tP.sparse().size() + tQ.sparse().size() < HistogramSweep.SPARSE_DENSITY * 2 * len );
+			assertTrue( java.util.Arrays.equals( P, tP.sparse().toDense() ) );
+			HistogramSweep s = new HistogramSweep( kernels );
+			s.sweep( tP, tQ, HistogramSweep.termsFor(all) );
+			for ( HistogramEquation eq : all ) {
+				assertEquals( eq.toString(), outcome(eq, P, Q), outcome(s, eq) );
+			}
+		}
+	}
+
+	@Test
+	public void testMissingTerms() throws Exception {
+		HistogramSweep s = new HistogramSweep( kernels );
+		double[] h = kernels.normalizeHistogram( new double[]{ 1, 2, 3 } );
+		s.sweep( h, h, HistogramSweep.BASIC );
+		assertEquals( kernels.histogram_measure_cosine(h, h), s.value(HistogramEquation.COSINE), 0.0 );
+		try {
+			s.value( HistogramEquation.KULLBACK_LEIBLER );
+			fail( "expected MathCompatibilityException" );
+		}
+		catch( MathCompatibilityException e ) {}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( HistogramSweepTest.class );
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          MathKernels
+ * description   Checks the single-pass primitive kernels against the boxed MathOpsE equations.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Random;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+import org.junit.Test;
+
+/**
+ * MathKernels Test
+ */
+public class MathKernelsTest extends junit.framework.TestCase
+{
+	private static MathOpsE mopsE = new MathOpsE();
+	private static MathKernels kernels = new MathKernels();
+
+	public MathKernelsTest(){}
+
+	// every kernel must return the same bits (or fail with the same exception type) as MathOpsE
+	private static void compareAll( double[] raw1, double[] raw2 ) throws Exception
+	{
+		double[] p = kernels.normalizeHistogram( raw1 );
+		double[] q = kernels.normalizeHistogram( raw2 );
+		Double[] bp = mopsE.normalizeHistogram( box(raw1) );
+		Double[] bq = mopsE.normalizeHistogram( box(raw2) );
+		for ( int i=0; i < p.length; i++ ) {
+			assertEquals( "normalizeHistogram bin " + i, Double.doubleToLongBits(bp[i]), Double.doubleToLongBits(p[i]) );
+		}
+
+		int count = 0;
+		for ( Method k : MathKernels.class.getMethods() ) {
+			if ( !k.getName().startsWith("histogram_measure_") || k.getParameterTypes().length != 2 )
+				continue;
+			Method b = MathOpsE.class.getMethod( k.getName(), Double[].class, Double[].class );
+			assertEquals( k.getName(), outcome(b, mopsE, bp, bq), outcome(k, kernels, p, q) );
+			count++;
+		}
+		assertEquals( "histogram kernels", 62, count );
+	}
+
+	private static String outcome( Method m, Object target, Object p, Object q ) throws Exception
+	{
+		try {
+			Double d = (Double) m.invoke( target, p, q );
+			return Long.toHexString( Double.doubleToLongBits(d) );
+		}
+		catch( InvocationTargetException e ) {
+			return e.getCause().getClass().getSimpleName();
+		}
+	}
+
+	private static Double[] box( double[] a )
+	{
+		Double[] b = new Double[a.length];
+		for ( int i=0; i < a.length; i++ ) b[i] = a[i];
+		return b;
+	}
+
+	private static double[] randomHistogram( Random r, int len, int zeroOneIn )
+	{
+		double[] h = new double[len];
+		for ( int i=0; i < len; i++ ) h[i] = ( r.nextInt(zeroOneIn) == 0 ) ? 0 : r.nextInt(5000);
+		return h;
+	}
+
+	@Test
+	public void testRandomHistograms() throws Exception {
+		Random r = new Random( 20131105L );
+		for ( int t=0; t < 50; t++ ) {
+			int len = 1 + r.nextInt(4096);
+			compareAll( randomHistogram(r, len, 4), randomHistogram(r, len, 4) );
+		}
+	}
+
+	@Test
+	public void testDenseHistograms() throws Exception {
+		Random r = new Random( 42L );
+		compareAll( randomHistogram(r, 65536, Integer.MAX_VALUE), randomHistogram(r, 65536, Integer.MAX_VALUE) );
+	}
+
+	@Test
+	public void testIdenticalHistograms() throws Exception {
+		double[] h = randomHistogram( new Random(7L), 256, 3 );
+		compareAll( h, h.clone() );
+	}
+
+	@Test
+	public void testDisjointHistograms() throws Exception {
+		double[] h1 = new double[64];
+		double[] h2 = new double[64];
+		for ( int i=0; i < 32; i++ ) h1[i] = i + 1;
+		for ( int i=32; i < 64; i++ ) h2[i] = i + 1;
+		compareAll( h1, h2 );
+	}
+
+	@Test
+	public void testSingleBin() throws Exception {
+		compareAll( new double[]{ 3 }, new double[]{ 5 } );
+	}
+
+	@Test
+	public void testEmptyHistogram() throws Exception {
+		double[] h = new double[16];
+		compareAll( h, h.clone() );
+	}
+
+	@Test
+	public void testLengthMismatch() throws Exception {
+		try {
+			kernels.histogram_measure_euclidean( new double[3], new double[4] );
+			fail( "expected MathCompatibilityException" );
+		}
+		catch( MathCompatibilityException e ) {}
+	}
+
+	private static String[] outcomes( MathKernels kernels, double[] p, double[] q ) throws Exception
+	{
+		Method[] ms = MathKernels.class.getMethods();
+		java.util.ArrayList<String> r = new java.util.ArrayList<String>();
+		for ( Method k : ms ) {
+			if ( k.getName().startsWith("histogram_measure_") && k.getParameterTypes().length == 2 )
+				r.add( k.getName() + "=" + outcome(k, kernels, p, q) );
+		}
+		java.util.Collections.sort( r );
+		return r.toArray( new String[r.size()] );
+	}
+
+	@Test
+	public void testValidationPolicies() throws Exception {
+		Random r = new Random( 23L );
+		double[] p = kernels.normalizeHistogram( randomHistogram(r, 300, 4) );
+		double[] q = kernels.normalizeHistogram( randomHistogram(r, 300, 4) );
+		double[] bad = q.clone();
+		bad[0] = Double.NaN;		// first, so no other term can fail before it is met
+		String[] valid = outcomes( kernels, p, q ), invalid = outcomes( kernels, p, bad );
+		assertEquals( ValidationPolicy.STRICT, kernels.getValidationPolicy() );
+		for ( ValidationPolicy v : ValidationPolicy.values() ) {
+			MathKernels k = new MathKernels( false, v );
+			assertEquals( v, k.getValidationPolicy() );
+			assertTrue( v.toString(), java.util.Arrays.equals(valid, outcomes(k, p, q)) );
+			assertTrue( v.toString(), java.util.Arrays.equals(invalid, outcomes(k, p, bad)) );
+			try {
+				k.histogram_measure_euclidean( new double[3], new double[4] );
+				fail( "expected MathCompatibilityException" );
+			}
+			catch( MathCompatibilityException e ) {}
+		}
+		assertEquals( ValidationPolicy.ENTRY_ONLY, ValidationPolicy.parse(" entry-only") );
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( MathKernelsTest.class );
+	}
+}
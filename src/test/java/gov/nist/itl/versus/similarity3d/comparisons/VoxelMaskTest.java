@@ -0,0 +1,109 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          VoxelMask
+ * description   Checks the bitset voxel measures against the boxed MathOpsE equations.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons;
+
+import java.util.Random;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.MathCompatibilityException;
+import gov.nist.itl.versus.similarity3d.comparisons.exception.SingularityTreatmentException;
+import org.junit.Test;
+
+/**
+ * VoxelMask Test
+ */
+public class VoxelMaskTest extends junit.framework.TestCase
+{
+	private static MathOpsE mopsE = new MathOpsE();
+	private static MathKernels kernels = new MathKernels();
+
+	public VoxelMaskTest(){}
+
+	private static double[][][] volume( Random r, int d, int w, int h, double density )
+	{
+		double[][][] v = new double[d][w][h];
+		for (int z=0; z < d; z++)
+			for (int x=0; x < w; x++)
+				for (int y=0; y < h; y++)
+					v[z][x][y] = r.nextDouble() < density ? r.nextInt(255) + 1 : -r.nextInt(3);
+		return v;
+	}
+
+	// same z, x, y order as VoxelToArrayFeature.voxelsToArray()
+	private static Double[] flatten( double[][][] v )
+	{
+		int n = 0;
+		for (double[][] s : v) for (double[] c : s) n += c.length;
+		Double[] a = new Double[n];
+		int i = 0;
+		for (double[][] s : v) for (double[] c : s) for (double x : c) a[i++] = x;
+		return a;
+	}
+
+	private static void compareAll( double[][][] v1, double[][][] v2 ) throws Exception
+	{
+		VoxelMask m1 = VoxelMask.threshold( v1 ), m2 = VoxelMask.threshold( v2 );
+		Double[] a1 = flatten( v1 ), a2 = flatten( v2 );
+		assertEquals( Double.doubleToLongBits( mopsE.pixel_measure_dice_nD( a1, a2 ) ),    Double.doubleToLongBits( kernels.pixel_measure_dice( m1, m2 ) ) );
+		assertEquals( Double.doubleToLongBits( mopsE.pixel_measure_jaccard_nD( a1, a2 ) ), Double.doubleToLongBits( kernels.pixel_measure_jaccard( m1, m2 ) ) );
+		assertEquals( Double.doubleToLongBits( mopsE.pixel_measure_tee_nD( a1, a2 ) ),     Double.doubleToLongBits( kernels.pixel_measure_tee( m1, m2 ) ) );
+		assertEquals( Double.doubleToLongBits( mopsE.pixel_measure_tet_nD( a1, a2 ) ),     Double.doubleToLongBits( kernels.pixel_measure_tet( m1, m2 ) ) );
+	}
+
+	@Test
+	public void testRandomVolumes() throws Exception {
+		Random r = new Random( 9 );
+		int[][] shapes = { {1,1,1}, {1,1,63}, {1,1,64}, {1,1,65}, {3,7,5}, {4,16,16}, {2,33,31} };
+		for (int[] s : shapes)
+			for (double density : new double[] { 0.05, 0.5, 0.95 })
+				compareAll( volume( r, s[0], s[1], s[2], density ), volume( r, s[0], s[1], s[2], density ) );
+	}
+
+	@Test
+	public void testEmptyMasks() throws Exception {
+		Random r = new Random( 4 );
+		double[][][] empty = new double[2][5][7];
+		double[][][] full  = volume( r, 2, 5, 7, 1.0 );
+		compareAll( empty, empty );
+		compareAll( empty, full );
+		compareAll( full, empty );
+		compareAll( full, full );
+	}
+
+	@Test
+	public void testThreshold() throws Exception {
+		double[][][] v = { { { 1.0, 0.0, -0.0, -2.0, Double.MIN_VALUE } } };
+		VoxelMask m = VoxelMask.threshold( v );
+		assertEquals( 5, m.length() );
+		assertEquals( 2, m.cardinality() );
+		try { VoxelMask.threshold( new double[][][] { { { Double.NaN } } } ); fail( "NaN accepted" ); }
+		catch(Exception e) { assertFalse( e instanceof MathCompatibilityException ); }
+		try { VoxelMask.threshold( null ); fail( "null accepted" ); }
+		catch(SingularityTreatmentException e) {}
+	}
+
+	@Test
+	public void testLengthMismatch() throws Exception {
+		VoxelMask a = VoxelMask.threshold( new double[1][1][64] );
+		VoxelMask b = VoxelMask.threshold( new double[1][1][65] );
+		try { a.andCount( b ); fail( "length mismatch accepted" ); }
+		catch(MathCompatibilityException e) {}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( VoxelMaskTest.class );
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          MappedVolumeAdapter
+ * description   Checks that a volume written with RawVolumeFile maps back with the same voxels, spacing and histogram.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.adapter.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
+import gov.nist.itl.versus.similarity3d.comparisons.extract.impl.VoxelToArrayFeatureExtractor;
+import org.junit.Test;
+
+/**
+ * MappedVolumeAdapter Test
+ */
+public class MappedVolumeAdapterTest extends junit.framework.TestCase
+{
+	public MappedVolumeAdapterTest(){}
+
+	// voxels in ImageStack order
+	static class Volume implements HasVoxelBuffer, HasHistogram {
+		final float[] v;
+		final int w, h, d;
+		Volume( float[] v, int w, int h, int d ) { this.v = v; this.w = w; this.h = h; this.d = d; }
+		public int getWidth()  { return w; }
+		public int getHeight() { return h; }
+		public int getDepth()  { return d; }
+		public double getValue( int x, int y, int z ) { return v[(z*h + y)*w + x]; }
+		public double[][][] getValues() {
+			double[][][] p = new double[d][w][h];
+			for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int x=0; x < w; x++) p[z][x][y] = getValue(x,y,z);
+			return p;
+		}
+		public double getRGBPixel( int row, int col, int slice ) { return getValue(row,col,slice); }
+		public double[][][] getRGBPixels() { return getValues(); }
+		public FloatBuffer getVoxelBuffer() { return FloatBuffer.wrap(v).asReadOnlyBuffer(); }
+		public double[] getSpacing() { return new double[] { 0.5, 0.75, 2.5 }; }
+		public Double[] getHistogram() { return new Double[] { 3.0, 0.0, 7.0 }; }
+		public int getLength() { return 3; }
+		public String getName() { return "test volume"; }
+		public List<String> getSupportedMediaTypes() { return new ArrayList<String>(); }
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Random r = new Random( 14 );
+		int[][] shapes = { {1,1,1}, {3,1,2}, {5,7,3}, {16,9,4} };
+		VoxelToArrayFeatureExtractor x = new VoxelToArrayFeatureExtractor();
+		for (int[] s : shapes) {
+			int w = s[0], h = s[1], d = s[2];
+			float[] v = new float[w*h*d];
+			for (int i=0; i < v.length; i++) v[i] = r.nextFloat() * 4096 - 1024;
+			Volume source = new Volume(v, w, h, d);
+
+			File f = File.createTempFile("volume", RawVolumeFile.SUFFIX);
+			try {
+				RawVolumeFile.write(f.getPath(), source, source);
+				MappedVolumeAdapter m = new MappedVolumeAdapter();
+				m.load(f);
+
+				assertEquals( w, m.getWidth() );
+				assertEquals( h, m.getHeight() );
+				assertEquals( d, m.getDepth() );
+				for (int i=0; i < 3; i++) assertEquals( source.getSpacing()[i], m.getSpacing()[i], 0.0 );
+				assertEquals( source.getLength(), m.getLength() );
+				for (int i=0; i < m.getLength(); i++) assertEquals( source.getHistogram()[i], m.getHistogram()[i] );
+
+				FloatBuffer b = m.getVoxelBuffer();
+				assertEquals( v.length, b.remaining() );
+				for (int i=0; i < v.length; i++) assertEquals( v[i], b.get(), 0.0f );
+				for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int xx=0; xx < w; xx++)
+					assertEquals( source.getValue(xx,y,z), m.getValue(xx,y,z), 0.0 );
+
+				VoxelToArrayFeature direct = x.extract( source );
+				VoxelToArrayFeature mapped = x.extract( m );
+				for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int xx=0; xx < w; xx++)
+					assertEquals( direct.getValue(xx,y,z), mapped.getValue(xx,y,z), 0.0 );
+			}
+			finally {
+				f.delete();
+			}
+		}
+	}
+
+	@Test
+	public void testBadMagic() throws Exception {
+		File f = File.createTempFile("volume", RawVolumeFile.SUFFIX);
+		try {
+			FileOutputStream out = new FileOutputStream(f);
+			out.write(new byte[128]);
+			out.close();
+			try {
+				new MappedVolumeAdapter().load(f);
+				fail( "expected IOException" );
+			}
+			catch(IOException e) {
+			}
+		}
+		finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testSourceKey() throws Exception {
+		Volume source = new Volume(new float[] { 1, 2, 3, 4, 5, 6 }, 3, 2, 1);
+		File f = File.createTempFile("volume", RawVolumeFile.SUFFIX);
+		try {
+			RawVolumeFile.write(f.getPath(), source, source, "/data/a.dcm|4096|-1024.0|3072.0");
+			MappedVolumeAdapter m = new MappedVolumeAdapter();
+			m.load(f);
+			assertEquals( "/data/a.dcm|4096|-1024.0|3072.0", m.getSource() );
+			assertEquals( 6.0, m.getValue(2,1,0), 0.0 );
+			RawVolumeFile.write(f.getPath(), source, source);
+			m.load(f);
+			assertEquals( "", m.getSource() );
+		}
+		finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testOverflowingSize() throws Exception {
+		Volume source = new Volume(new float[] { 1, 2, 3, 4, 5, 6 }, 3, 2, 1);
+		File f = File.createTempFile("volume", RawVolumeFile.SUFFIX);
+		try {
+			for (int[] size : new int[][] { {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE}, {1 << 30, 1 << 30, 16}, {3, 2, 2} }) {
+				RawVolumeFile.write(f.getPath(), source, source);
+				java.io.RandomAccessFile raf = new java.io.RandomAccessFile(f, "rw");
+				java.nio.ByteBuffer dims = java.nio.ByteBuffer.allocate(12).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+				dims.putInt(size[0]).putInt(size[1]).putInt(size[2]);
+				raf.seek(RawVolumeFile.MAGIC.length + 4 + 4);
+				raf.write(dims.array());
+				raf.close();
+				try {
+					new MappedVolumeAdapter().load(f);
+					fail( "expected IOException" );
+				}
+				catch(IOException e) {
+				}
+			}
+		}
+		finally {
+			f.delete();
+		}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( MappedVolumeAdapterTest.class );
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          VoxelBuffer
+ * description   Checks that descriptors built from a HasVoxelBuffer hold the same voxels as from getValue(x,y,z).
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxels;
+import gov.nist.itl.versus.similarity3d.comparisons.extract.impl.VoxelHistogramExtractor;
+import gov.nist.itl.versus.similarity3d.comparisons.extract.impl.VoxelToArrayFeatureExtractor;
+import org.junit.Test;
+
+/**
+ * VoxelBuffer Test
+ */
+public class VoxelBufferTest extends junit.framework.TestCase
+{
+	public VoxelBufferTest(){}
+
+	// voxels in ImageStack order, served through getValue(x,y,z) only
+	static class Voxels implements HasVoxels {
+		final float[] v;
+		final int w, h, d;
+		Voxels( float[] v, int w, int h, int d ) { this.v = v; this.w = w; this.h = h; this.d = d; }
+		public int getWidth()  { return w; }
+		public int getHeight() { return h; }
+		public int getDepth()  { return d; }
+		public double getValue( int x, int y, int z ) { return v[(z*h + y)*w + x]; }
+		public double[][][] getValues() {
+			double[][][] p = new double[d][w][h];
+			for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int x=0; x < w; x++) p[z][x][y] = getValue(x,y,z);
+			return p;
+		}
+		public double getRGBPixel( int row, int col, int slice ) { return getValue(row,col,slice); }
+		public double[][][] getRGBPixels() { return getValues(); }
+		public String getName() { return "test voxels"; }
+		public List<String> getSupportedMediaTypes() { return new ArrayList<String>(); }
+	}
+
+	static class Buffered extends Voxels implements HasVoxelBuffer, HasHistogram {
+		Buffered( float[] v, int w, int h, int d ) { super(v, w, h, d); }
+		public FloatBuffer getVoxelBuffer() { return FloatBuffer.wrap(v).asReadOnlyBuffer(); }
+		public double[] getSpacing() { return new double[] { 1, 1, 1 }; }
+		public Double[] getHistogram() { return new Double[] { 1.0 }; }
+		public int getLength() { return 1; }
+	}
+
+	@Test
+	public void testSameVoxels() throws Exception {
+		Random r = new Random( 13 );
+		int[][] shapes = { {1,1,1}, {3,1,2}, {5,7,3}, {16,9,4} };
+		VoxelToArrayFeatureExtractor x = new VoxelToArrayFeatureExtractor();
+		for (int[] s : shapes) {
+			int w = s[0], h = s[1], d = s[2];
+			float[] v = new float[w*h*d];
+			for (int i=0; i < v.length; i++) v[i] = r.nextInt(4096) - 1024;
+			VoxelToArrayFeature direct   = x.extract( new Voxels(v, w, h, d) );
+			VoxelToArrayFeature buffered = x.extract( new Buffered(v, w, h, d) );
+			assertEquals( direct.getWidth(),  buffered.getWidth() );
+			assertEquals( direct.getHeight(), buffered.getHeight() );
+			assertEquals( direct.getDepth(),  buffered.getDepth() );
+			for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int xx=0; xx < w; xx++)
+				assertEquals( direct.getValue(xx,y,z), buffered.getValue(xx,y,z) );
+			Buffered b = new Buffered(v, w, h, d);
+			VoxelHistogramDescriptor hist = new VoxelHistogramDescriptor( b, b );
+			assertEquals( v[(d-1)*w*h + w-1], hist.getValue(w-1, 0, d-1), 0.0 );
+		}
+	}
+
+	// counts the voxel reads a descriptor makes
+	static class Counting extends Buffered {
+		int reads;
+		Counting( float[] v, int w, int h, int d ) { super(v, w, h, d); }
+		public FloatBuffer getVoxelBuffer() { reads++; return super.getVoxelBuffer(); }
+		public double[][][] getValues() { reads++; return super.getValues(); }
+	}
+
+	@Test
+	public void testHistogramOnly() throws Exception {
+		Random r = new Random( 16 );
+		int w = 5, h = 7, d = 3;
+		float[] v = new float[w*h*d];
+		for (int i=0; i < v.length; i++) v[i] = r.nextInt(4096);
+		Counting c = new Counting(v, w, h, d);
+		VoxelHistogramDescriptor hist = new VoxelHistogramExtractor().extract( c );
+		assertEquals( 1, hist.getLength() );
+		hist.getNormalizedHistogram();
+		assertEquals( w, hist.getWidth() );
+		assertEquals( h, hist.getHeight() );
+		assertEquals( d, hist.getDepth() );
+		assertEquals( 0, c.reads );
+		for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int x=0; x < w; x++)
+			assertEquals( v[(z*h + y)*w + x], hist.getValue(x,y,z), 0.0 );
+		assertEquals( 1, c.reads );
+	}
+
+	@Test
+	public void testMaskAndLabelsFromBuffer() throws Exception {
+		Random r = new Random( 19 );
+		int[][] shapes = { {1,1,1}, {3,1,2}, {5,7,3}, {16,9,4} };
+		for (int[] s : shapes) {
+			int w = s[0], h = s[1], d = s[2];
+			float[] v = new float[w*h*d];
+			for (int i=0; i < v.length; i++) v[i] = r.nextInt(7) - 3 + r.nextFloat();
+			Voxels plain = new Voxels(v, w, h, d);
+			Counting c = new Counting(v, w, h, d);
+			VoxelToArrayFeature cube     = new VoxelToArrayFeature( plain.getValues() );
+			VoxelToArrayFeature buffered = new VoxelToArrayFeature( c );
+			assertTrue( java.util.Arrays.equals( cube.getLabels(), buffered.getLabels() ) );
+			assertEquals( cube.getVoxelMask().cardinality(), buffered.getVoxelMask().cardinality() );
+			assertEquals( cube.getVoxelMask().cardinality(), cube.getVoxelMask().andCount( buffered.getVoxelMask() ) );
+			assertEquals( cube.getVoxelMask().cardinality(), buffered.getVoxelMask().orCount( cube.getVoxelMask() ) );
+			assertEquals( 1, c.reads );		// the buffer, taken once; no volume built
+			for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int x=0; x < w; x++)
+				assertEquals( cube.getValue(x,y,z), buffered.getValue(x,y,z), 0.0 );
+		}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( VoxelBufferTest.class );
+	}
+}
@@ -0,0 +1,235 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          AllPairsEngine
+ * description   Checks that the tiled, mirrored all-pairs run gives every ordered pair exactly the result of
+ *               a direct compare, in the same order for any number of threads.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import edu.illinois.ncsa.versus.descriptor.Descriptor;
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.ValidationPolicy;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasHistogram;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.BatchMeasureEvaluator;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.SymmetricMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.BhattacharyyaMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.CanberraMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.CosineMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.EuclideanL2Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.JeffreysMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.KullbackLeiblerMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsRegistry;
+import org.junit.Test;
+
+/**
+ * AllPairsEngine Test
+ */
+public class AllPairsEngineTest extends junit.framework.TestCase
+{
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Measure>[] measures = new Class[]{
+		CanberraMeasure.class, KullbackLeiblerMeasure.class, CosineMeasure.class, JeffreysMeasure.class };
+
+	public AllPairsEngineTest(){}
+
+	static class Histogram implements HasHistogram {
+		private final Double[] h;
+		Histogram( Double[] h ) { this.h = h; }
+		public Double[] getHistogram() { return h; }
+		public int getLength() { return h.length; }
+		public String getName() { return "test histogram"; }
+		public List<String> getSupportedMediaTypes() { return new ArrayList<String>(); }
+	}
+
+	private static String outcome( BatchMeasureEvaluator.Result r ) throws Exception {
+		if ( r.error != null ) return r.error.getClass().getSimpleName();
+		return Long.toHexString( Double.doubleToLongBits( r.similarity.getValue() ) );
+	}
+
+	private static List<String> run( final HashMap<String,Descriptor> descriptors, String[] files, int threads, int tile ) throws Exception
+	{
+		return run( descriptors, files, threads, tile, ValidationPolicy.STRICT );
+	}
+
+	private static List<String> run( final HashMap<String,Descriptor> descriptors, String[] files, int threads, int tile, ValidationPolicy validation ) throws Exception
+	{
+		final List<String> lines = new ArrayList<String>();
+		new AllPairsEngine( measures, threads, tile, MetricsRegistry.NONE, true, false, validation ).run( files,
+			new AllPairsEngine.DescriptorSource() {
+				public Descriptor descriptor( String fileName ) { return descriptors.get(fileName); }
+			},
+			new AllPairsEngine.PairSink() {
+				public void pair( String f1, String f2, BatchMeasureEvaluator.Result[] results, Exception error ) throws Exception {
+					assertNull( error );
+					for ( BatchMeasureEvaluator.Result r : results )
+						lines.add( f1 + "," + f2 + "," + r.measure.getClass().getSimpleName() + "," + outcome(r) );
+				}
+			});
+		return lines;
+	}
+
+	@Test
+	public void testAllPairs() throws Exception {
+		Random r = new Random( 99L );
+		int n = 11, bins = 300;
+		String[] files = new String[n];
+		HashMap<String,Descriptor> descriptors = new HashMap<String,Descriptor>();
+		for ( int i=0; i < n; i++ ) {
+			Double[] h = new Double[bins];
+			for ( int b=0; b < bins; b++ ) h[b] = (double)( r.nextInt(3)==0 ? 0 : r.nextInt(500) );
+			files[i] = "f" + i;
+			descriptors.put( files[i], new VoxelHistogramDescriptor( new double[1][1][1], new Histogram(h) ) );
+		}
+
+		List<String> serial   = run( descriptors, files, 1, 3 );
+		List<String> parallel = run( descriptors, files, 4, 3 );
+		assertEquals( serial, parallel );
+		assertEquals( n * n * measures.length, parallel.size() );
+
+		List<String> expected = new ArrayList<String>();
+		for ( String f1 : files ) for ( String f2 : files ) for ( Class<? extends Measure> m : measures ) {
+			BatchMeasureEvaluator.Result res;
+			Measure measure = m.newInstance();
+			try { res = new BatchMeasureEvaluator.Result( measure, measure.compare(descriptors.get(f1), descriptors.get(f2)), null ); }
+			catch( Exception e ) { res = new BatchMeasureEvaluator.Result( measure, null, e ); }
+			expected.add( f1 + "," + f2 + "," + m.getSimpleName() + "," + outcome(res) );
+		}
+		List<String> sortedExpected = new ArrayList<String>( expected ), sortedActual = new ArrayList<String>( parallel );
+		java.util.Collections.sort( sortedExpected );
+		java.util.Collections.sort( sortedActual );
+		assertEquals( sortedExpected, sortedActual );
+	}
+
+	private static HashMap<String,Descriptor> histograms( String[] files, int bins, long seed )
+	{
+		Random r = new Random( seed );
+		HashMap<String,Descriptor> descriptors = new HashMap<String,Descriptor>();
+		for ( int i=0; i < files.length; i++ ) {
+			Double[] h = new Double[bins];
+			for ( int b=0; b < bins; b++ ) h[b] = (double)( r.nextInt(3)==0 ? 0 : r.nextInt(500) );
+			files[i] = "f" + i;
+			descriptors.put( files[i], new VoxelHistogramDescriptor( new double[1][1][1], new Histogram(h) ) );
+		}
+		return descriptors;
+	}
+
+	@Test
+	public void testTimes() throws Exception {
+		final String[] files = new String[5];
+		final HashMap<String,Descriptor> descriptors = histograms( files, 400, 11L );
+		final java.util.Set<String> seen = new java.util.HashSet<String>();
+		final long[] forward = new long[1];
+		new AllPairsEngine( measures, 2, 2, MetricsRegistry.NONE, true, false ).run( files,
+			new AllPairsEngine.DescriptorSource() {
+				public Descriptor descriptor( String fileName ) { return descriptors.get(fileName); }
+			},
+			new AllPairsEngine.PairSink() {
+				public void pair( String f1, String f2, BatchMeasureEvaluator.Result[] results, Exception error ) throws Exception {
+					assertNull( error );
+					boolean mirrored = seen.contains( f2 + "," + f1 ) && !f1.equals(f2);
+					seen.add( f1 + "," + f2 );
+					for ( BatchMeasureEvaluator.Result r : results ) {
+						assertTrue( r.getNanos() >= 0 );
+						if ( mirrored && r.measure instanceof SymmetricMeasure )
+							assertEquals( f1 + "," + f2, 0L, r.getNanos() );
+						else if ( !mirrored ) forward[0] += r.getNanos();
+					}
+				}
+			});
+		assertTrue( forward[0] > 0 );
+	}
+
+	@Test
+	public void testValidationPolicies() throws Exception {
+		String[] files = new String[6];
+		List<String> strict = run( histograms(files, 200, 7L), files, 2, 2 );
+
+		// normalized unscanned first, then compared under each policy
+		HashMap<String,Descriptor> descriptors = histograms( files, 200, 7L );
+		for ( Descriptor d : descriptors.values() ) {
+			((VoxelHistogramDescriptor)d).getNormalizedHistogram( ValidationPolicy.OFF );
+			assertTrue( !((VoxelHistogramDescriptor)d).isValidated() );
+		}
+		assertEquals( strict, run(descriptors, files, 2, 2, ValidationPolicy.OFF) );
+		for ( Descriptor d : descriptors.values() ) assertTrue( !((VoxelHistogramDescriptor)d).isValidated() );
+		assertEquals( strict, run(descriptors, files, 2, 2, ValidationPolicy.ENTRY_ONLY) );
+		for ( Descriptor d : descriptors.values() ) assertTrue( ((VoxelHistogramDescriptor)d).isValidated() );
+	}
+
+	@Test
+	public void testGram() throws Exception {
+		@SuppressWarnings("unchecked")
+		Class<? extends Measure>[] mixed = new Class[]{
+			CosineMeasure.class, CanberraMeasure.class, EuclideanL2Measure.class, BhattacharyyaMeasure.class, KullbackLeiblerMeasure.class };
+		Random r = new Random( 314L );
+		int n = 13, bins = 700;
+		String[] files = new String[n];
+		final HashMap<String,Descriptor> descriptors = new HashMap<String,Descriptor>();
+		for ( int i=0; i < n; i++ ) {
+			Double[] h = new Double[bins];
+			for ( int b=0; b < bins; b++ ) h[b] = (double)( r.nextInt(3)==0 ? 0 : r.nextInt(500) );
+			if ( i == 5 ) for ( int b=0; b < bins; b++ ) h[b] = ( b < 10 ) ? 1.0 : 0.0;		// disjoint from 6
+			if ( i == 6 ) for ( int b=0; b < bins; b++ ) h[b] = ( b < 10 ) ? 0.0 : 2.0;
+			files[i] = "f" + i;
+			descriptors.put( files[i], new VoxelHistogramDescriptor( new double[1][1][1], new Histogram(h) ) );
+		}
+		files[n-1] = files[2];		// a repeated file: its distances to f2 are exactly 0
+
+		for ( int threads : new int[]{ 1, 3 } ) {
+			final List<BatchMeasureEvaluator.Result> got = new ArrayList<BatchMeasureEvaluator.Result>();
+			final List<String> pairs = new ArrayList<String>();
+			new AllPairsEngine( mixed, threads, 4, gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsRegistry.NONE, true, true ).run( files,
+				new AllPairsEngine.DescriptorSource() {
+					public Descriptor descriptor( String fileName ) { return descriptors.get(fileName); }
+				},
+				new AllPairsEngine.PairSink() {
+					public void pair( String f1, String f2, BatchMeasureEvaluator.Result[] results, Exception error ) throws Exception {
+						assertNull( error );
+						for ( BatchMeasureEvaluator.Result res : results ) { got.add( res ); pairs.add( f1 + "," + f2 ); }
+					}
+				});
+			assertEquals( n * n * mixed.length, got.size() );
+
+			for ( int k=0; k < got.size(); k++ ) {
+				BatchMeasureEvaluator.Result res = got.get( k );
+				String[] f = pairs.get( k ).split( "," );
+				String name = res.measure.getClass().getSimpleName();
+				String expected;
+				double v = Double.NaN;
+				try { v = res.measure.compare( descriptors.get(f[0]), descriptors.get(f[1]) ).getValue(); expected = null; }
+				catch( Exception e ) { expected = e.getClass().getSimpleName(); }
+				if ( expected != null ) {
+					assertTrue( name + " " + pairs.get(k), res.error != null );
+					assertEquals( name, expected, res.error.getClass().getSimpleName() );
+				}
+				else if ( !(res.measure instanceof CosineMeasure) )		// swept exactly, not finished from the GramMatrix
+					assertEquals( name, Double.doubleToLongBits(v), Double.doubleToLongBits(res.similarity.getValue()) );
+				else
+					assertEquals( name + " " + pairs.get(k), v, res.similarity.getValue(), 1e-12 + 1e-9 * Math.abs(v) );
+				if ( f[0].equals(f[1]) && res.measure instanceof EuclideanL2Measure )
+					assertEquals( 0.0, res.similarity.getValue() );
+			}
+		}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( AllPairsEngineTest.class );
+	}
+}
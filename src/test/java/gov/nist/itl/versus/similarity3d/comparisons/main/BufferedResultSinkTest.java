@@ -0,0 +1,71 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          BufferedResultSink
+ * description   Checks the size- and time-based flushing of the long-lived results writer.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.io.File;
+import org.junit.Test;
+
+/**
+ * BufferedResultSink Test
+ */
+public class BufferedResultSinkTest extends junit.framework.TestCase
+{
+	public BufferedResultSinkTest(){}
+
+	@Test
+	public void testFlushBySize() throws Exception {
+		File f = File.createTempFile( "results", ".txt" );
+		f.deleteOnExit();
+		BufferedResultSink s = new BufferedResultSink( f.getPath(), false, 16, 0 );
+		s.append( "a\tb\n" );
+		assertEquals( 0, f.length() );			// still buffered
+		s.append( "0123456789abcdef\n" );		// overflows the buffer
+		assertTrue( f.length() > 0 );
+		s.close();
+		assertEquals( 4 + 17, f.length() );
+	}
+
+	@Test
+	public void testFlushByTime() throws Exception {
+		File f = File.createTempFile( "results", ".txt" );
+		f.deleteOnExit();
+		BufferedResultSink s = new BufferedResultSink( f.getPath(), false, 1024, 50 );
+		s.append( "a\tb\n" );
+		assertEquals( 0, f.length() );
+		for ( int i=0; i < 100 && f.length() == 0; i++ ) Thread.sleep( 20 );	// daemon timer flushes
+		assertEquals( 4, f.length() );
+		s.close();
+	}
+
+	@Test
+	public void testAppend() throws Exception {
+		File f = File.createTempFile( "results", ".txt" );
+		f.deleteOnExit();
+		BufferedResultSink s = new BufferedResultSink( f.getPath(), false, 1024, 0 );
+		s.append( "x\n" );
+		s.close();
+		s = new BufferedResultSink( f.getPath(), true, 1024, 0 );
+		s.append( "y\n" );
+		s.close();
+		assertEquals( 4, f.length() );
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( BufferedResultSinkTest.class );
+	}
+}
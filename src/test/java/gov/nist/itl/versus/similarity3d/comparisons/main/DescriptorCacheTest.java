@@ -0,0 +1,61 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          DescriptorCache
+ * description   Checks LRU eviction of the strong tier and promotion from the soft tier.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import edu.illinois.ncsa.versus.descriptor.Descriptor;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelHistogramDescriptor;
+import org.junit.Test;
+
+/**
+ * DescriptorCache Test
+ */
+public class DescriptorCacheTest extends junit.framework.TestCase
+{
+	public DescriptorCacheTest(){}
+
+	@Test
+	public void testLruEviction() throws Exception {
+		DescriptorCache c = new DescriptorCache( 2, false );
+		Descriptor a = new VoxelHistogramDescriptor(), b = new VoxelHistogramDescriptor(), d = new VoxelHistogramDescriptor();
+		c.put( "a", a );
+		c.put( "b", b );
+		assertSame( a, c.get("a") );		// "a" is now most recently used
+		c.put( "d", d );					// evicts "b"
+		assertSame( a, c.get("a") );
+		assertNull( c.get("b") );
+		assertSame( d, c.get("d") );
+		assertEquals( 2, c.size() );
+		assertEquals( 3, c.getHits() );
+		assertEquals( 1, c.getMisses() );
+	}
+
+	@Test
+	public void testSoftTier() throws Exception {
+		DescriptorCache c = new DescriptorCache( 1, true );
+		Descriptor a = new VoxelHistogramDescriptor(), b = new VoxelHistogramDescriptor();
+		c.put( "a", a );
+		c.put( "b", b );					// "a" demoted to the soft tier, still strongly held by this test
+		assertEquals( 2, c.size() );
+		assertSame( a, c.get("a") );		// promoted back, "b" demoted
+		assertSame( b, c.get("b") );
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( DescriptorCacheTest.class );
+	}
+}
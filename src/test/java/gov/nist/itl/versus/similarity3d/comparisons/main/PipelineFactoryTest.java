@@ -0,0 +1,68 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          PipelineFactory
+ * description   Checks class resolution through the registered services, and adapter and extractor reuse.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import org.junit.Test;
+
+import edu.illinois.ncsa.versus.adapter.Adapter;
+import edu.illinois.ncsa.versus.extract.Extractor;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.impl.MappedVolumeAdapter;
+import gov.nist.itl.versus.similarity3d.comparisons.extract.impl.VoxelHistogramExtractor;
+import gov.nist.itl.versus.similarity3d.comparisons.extract.impl.VoxelToArrayFeatureExtractor;
+
+/**
+ * PipelineFactory Test
+ */
+public class PipelineFactoryTest extends junit.framework.TestCase
+{
+	public PipelineFactoryTest(){}
+
+	@Test
+	public void testResolve() throws Exception {
+		assertEquals( MappedVolumeAdapter.class, PipelineFactory.resolve(Adapter.class, MappedVolumeAdapter.class.getName(), true) );
+		assertEquals( MappedVolumeAdapter.class, PipelineFactory.resolve(Adapter.class, MappedVolumeAdapter.class.getName(), false) );
+		assertEquals( VoxelHistogramExtractor.class, PipelineFactory.resolve(Extractor.class, " VoxelHistogramExtractor", true) );	// registered provider
+		try { PipelineFactory.resolve(Extractor.class, "VoxelHistogramExtractor", false); fail("simple name without services"); } catch(ClassNotFoundException e) {}
+		try { PipelineFactory.resolve(Extractor.class, MappedVolumeAdapter.class.getName(), true); fail("not an extractor"); } catch(ClassCastException e) {}
+	}
+
+	@Test
+	public void testInstances() throws Exception {
+		final PipelineFactory p = new PipelineFactory(MappedVolumeAdapter.class.getName(), VoxelToArrayFeatureExtractor.class.getName(), true);
+		assertEquals( MappedVolumeAdapter.class, p.getAdapterClass() );
+		Adapter a1 = p.newAdapter(), a2 = p.newAdapter();
+		assertTrue( a1 instanceof MappedVolumeAdapter );
+		assertTrue( a1 != a2 );		// adapters hold their file
+
+		Extractor x = p.extractor();
+		assertTrue( x instanceof VoxelToArrayFeatureExtractor );
+		assertSame( x, p.extractor() );
+		final Extractor[] other = new Extractor[1];
+		Thread t = new Thread() {
+			public void run() { other[0] = p.extractor(); }
+		};
+		t.start();
+		t.join();
+		assertNotNull( other[0] );
+		assertTrue( x != other[0] );
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( PipelineFactoryTest.class );
+	}
+}
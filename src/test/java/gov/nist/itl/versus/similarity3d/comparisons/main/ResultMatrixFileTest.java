@@ -0,0 +1,66 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          ResultMatrixFile
+ * description   Round-trips a binary result matrix and checks its documented cell offsets.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.main;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import org.junit.Test;
+
+/**
+ * ResultMatrixFile Test
+ */
+public class ResultMatrixFileTest extends junit.framework.TestCase
+{
+	public ResultMatrixFileTest(){}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		File f = File.createTempFile( "results", ".v3dm" );
+		f.deleteOnExit();
+		String[] files = { "a.dcm", "b.dcm", "c/\u00e9.dcm" };
+		String[] measures = { "Canberra", "Cosine" };
+
+		ResultMatrixFile w = ResultMatrixFile.create( f.getPath(), files, measures );
+		w.put( 0, 0, 1, 0.25 );
+		w.put( 1, 2, 0, -3.5 );
+		w.close();
+
+		ResultMatrixFile r = ResultMatrixFile.open( f.getPath() );
+		assertEquals( 3, r.getFiles().length );
+		assertEquals( "c/\u00e9.dcm", r.getFiles()[2] );
+		assertEquals( "Cosine", r.getMeasures()[1] );
+		assertEquals( 0.25, r.get(0, 0, 1), 0.0 );
+		assertEquals( -3.5, r.get(1, 2, 0), 0.0 );
+		assertTrue( Double.isNaN( r.get(0, 1, 0) ) );
+		assertTrue( Double.isNaN( r.get(1, 2, 2) ) );
+		r.close();
+
+		RandomAccessFile raf = new RandomAccessFile( f, "r" );
+		raf.seek( 16 );
+		long offset = raf.readLong();
+		assertEquals( 0, offset % 8 );
+		assertEquals( offset + 8L * 2 * 3 * 3, raf.length() );
+		raf.seek( offset + 8L * ((1 * 3 + 2) * 3 + 0) );
+		assertEquals( -3.5, raf.readDouble(), 0.0 );
+		raf.close();
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( ResultMatrixFileTest.class );
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          StreamingVoxelMeasure
+ * description   Checks that voxel measures finished from streamed volumes equal those on whole VoxelToArrayFeatures.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.measure;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.VoxelCounter;
+import gov.nist.itl.versus.similarity3d.comparisons.adapter.HasVoxelBuffer;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.*;
+import org.junit.Test;
+
+/**
+ * StreamingVoxelMeasure Test
+ */
+public class StreamingVoxelMeasureTest extends junit.framework.TestCase
+{
+	public StreamingVoxelMeasureTest(){}
+
+	// voxels in ImageStack order
+	static class Volume implements HasVoxelBuffer {
+		final float[] v;
+		final int w, h, d;
+		Volume( float[] v, int w, int h, int d ) { this.v = v; this.w = w; this.h = h; this.d = d; }
+		public int getWidth()  { return w; }
+		public int getHeight() { return h; }
+		public int getDepth()  { return d; }
+		public double getValue( int x, int y, int z ) { return v[(z*h + y)*w + x]; }
+		public double[][][] getValues() {
+			double[][][] p = new double[d][w][h];
+			for (int z=0; z < d; z++) for (int y=0; y < h; y++) for (int x=0; x < w; x++) p[z][x][y] = getValue(x,y,z);
+			return p;
+		}
+		public double getRGBPixel( int row, int col, int slice ) { return getValue(row,col,slice); }
+		public double[][][] getRGBPixels() { return getValues(); }
+		public FloatBuffer getVoxelBuffer() { return FloatBuffer.wrap(v).asReadOnlyBuffer(); }
+		public double[] getSpacing() { return new double[] { 1, 1, 1 }; }
+		public String getName() { return "test volume"; }
+		public List<String> getSupportedMediaTypes() { return new ArrayList<String>(); }
+	}
+
+	private static Measure[] measures() {
+		return new Measure[] {
+			new DiceVoxelMeasure(), new JaccardVoxelMeasure(), new TotalErrorRateEvaluationMeasure(),
+			new TotalErrorRateTestMeasure(), new RandIndexMeasure(), new AdjustedRandIndexMeasure(),
+			new VoxelSimilarityMeasure() };
+	}
+
+	// background 0, labels offset..offset+labels-1 (some negative, some past the dense range)
+	private static Volume volume( Random r, int w, int h, int d, int labels, int offset ) {
+		float[] v = new float[w*h*d];
+		for (int i=0; i < v.length; i++) v[i] = r.nextInt(3) == 0 ? 0 : offset + r.nextInt(labels) + r.nextFloat() * 0.99f;
+		return new Volume(v, w, h, d);
+	}
+
+	private static String outcome( BatchMeasureEvaluator.Result r ) {
+		if ( r.error != null ) return r.error.getClass().getSimpleName();
+		return Long.toHexString( Double.doubleToLongBits( r.similarity.getValue() ) );
+	}
+
+	private static String outcome( VoxelSimilarity s, VoxelSimilarity.Index i ) {
+		try {
+			return Long.toHexString( Double.doubleToLongBits( s.get(i) ) );
+		}
+		catch( Exception e ) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	@Test
+	public void testSameAsWholeVolumes() throws Exception {
+		Random r = new Random( 17 );
+		int[][] shapes = { {1,1,1}, {3,1,2}, {7,5,3}, {40,40,50} };	// the last spans several chunks
+		int[][] labels = { {2,0}, {40,-3}, {300,-150}, {5,100000} };
+		BatchMeasureEvaluator evaluator = new BatchMeasureEvaluator( measures() );
+		for (int[] s : shapes) {
+			for (int[] l : labels) {
+				Volume a = volume(r, s[0], s[1], s[2], l[0], l[1]);
+				Volume b = volume(r, s[0], s[1], s[2], l[0] + 3, -l[1]);
+				BatchMeasureEvaluator.Result[] streamed = evaluator.evaluateStreaming(a, b);
+				BatchMeasureEvaluator.Result[] whole = evaluator.evaluate(new VoxelToArrayFeature(a), new VoxelToArrayFeature(b));
+				for (int i=0; i < whole.length; i++) {
+					assertEquals( whole[i].measure.getName(), outcome(whole[i]), outcome(streamed[i]) );
+					if ( whole[i].similarity instanceof VoxelSimilarity ) {
+						for (VoxelSimilarity.Index k : VoxelSimilarity.Index.values())
+							assertEquals( outcome((VoxelSimilarity)whole[i].similarity, k), outcome((VoxelSimilarity)streamed[i].similarity, k) );
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPiecesAgree() throws Exception {
+		Random r = new Random( 18 );
+		Volume a = volume(r, 9, 8, 7, 90, -20), b = volume(r, 9, 8, 7, 70, 0);
+		VoxelCounter whole = new VoxelCounter(true);
+		whole.count(a.getVoxelBuffer(), b.getVoxelBuffer());
+		VoxelCounter pieces = new VoxelCounter(true);
+		for (int i=0; i < a.v.length; ) {
+			int k = Math.min(1 + r.nextInt(50), a.v.length - i);
+			float[] p1 = new float[k], p2 = new float[k];
+			System.arraycopy(a.v, i, p1, 0, k);
+			System.arraycopy(b.v, i, p2, 0, k);
+			pieces.add(p1, p2, k);
+			i += k;
+		}
+		assertEquals( whole.size(), pieces.size() );
+		assertEquals( whole.overlap(), pieces.overlap() );
+		assertEquals( whole.size1(), pieces.size1() );
+		assertEquals( whole.size2(), pieces.size2() );
+		assertEquals( whole.table().cellPairs(), pieces.table().cellPairs() );
+		assertEquals( whole.table().rowPairs(), pieces.table().rowPairs() );
+		assertEquals( whole.table().colPairs(), pieces.table().colPairs() );
+	}
+
+	@Test
+	public void testMismatchedVolumes() throws Exception {
+		Random r = new Random( 19 );
+		Measure[] m = measures();
+		BatchMeasureEvaluator.Result[] results = new BatchMeasureEvaluator( m ).evaluateStreaming( volume(r, 3, 4, 5, 4, 0), volume(r, 3, 4, 6, 4, 0) );
+		for (BatchMeasureEvaluator.Result res : results) assertNotNull( res.error );
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( StreamingVoxelMeasureTest.class );
+	}
+}
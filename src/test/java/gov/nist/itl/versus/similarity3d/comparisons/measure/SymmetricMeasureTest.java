@@ -0,0 +1,117 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          SymmetricMeasure
+ * description   Checks that every histogram and voxel measure declared symmetric gives the same value bits
+ *               (or the same exception) for (P,Q) and (Q,P).
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.measure;
+
+import java.util.Random;
+import gov.nist.itl.versus.similarity3d.comparisons.HistogramEquation;
+import gov.nist.itl.versus.similarity3d.comparisons.MathKernels;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
+import edu.illinois.ncsa.versus.measure.Measure;
+import org.junit.Test;
+
+/**
+ * SymmetricMeasure Test
+ */
+public class SymmetricMeasureTest extends junit.framework.TestCase
+{
+	private static String[] histogramMeasures = {
+		"AdditiveSymmetricChiSquared", "AvgDifference", "Bhattacharyya", "Canberra", "ChebyshevLInf", "CityBlockL1",
+		"Clark", "Cosine", "CzekanowskiD", "Czekanowski", "DiceD", "Dice", "Divergence", "EuclideanL2", "Fidelity",
+		"Gower", "HarmonicMean", "Hellinger", "InnerProduct", "IntersectionD", "Intersection", "JaccardD", "Jaccard",
+		"Jeffreys", "JensenDifference", "JensenShannon", "KDivergence", "Kulczynski", "KulczynskiS", "KullbackLeibler",
+		"KumarHassebrookPCE", "KumarJohnsonDifference", "Lorentzian", "MatusitaD", "Matusita", "Minkowski", "MotykaD",
+		"Motyka", "NeymanChiSquared", "PearsonChiSquared", "ProbabilisticSymmetricChiSquared", "Ruzicka", "Soergel",
+		"Sorensen", "SquaredChiSquared", "SquaredChordD", "SquaredChord", "SquaredEuclidean", "TanejaDifference",
+		"Tanimoto", "Topsoe", "WaveHedges" };
+
+	private static String[] voxelMeasures = { "AdjustedRandIndex", "DiceVoxel", "JaccardVoxel", "RandIndex" };
+
+	private static MathKernels kernels = new MathKernels();
+
+	public SymmetricMeasureTest(){}
+
+	private static String outcome( HistogramEquation eq, double[] P, double[] Q ) {
+		try {
+			return Long.toHexString( Double.doubleToLongBits( eq.compute(kernels, P, Q) ) );
+		}
+		catch( Exception e ) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static double[] randomHistogram( Random r, int len, boolean zeros ) throws Exception {
+		double[] h = new double[len];
+		for ( int i=0; i < len; i++ ) h[i] = ( zeros && r.nextInt(4)==0 ) ? 0 : 1 + r.nextInt(1000);
+		return kernels.normalizeHistogram( h );
+	}
+
+	private static String outcome( Measure m, VoxelToArrayFeature f1, VoxelToArrayFeature f2 ) {
+		try {
+			return Long.toHexString( Double.doubleToLongBits( m.compare(f1, f2).getValue() ) );
+		}
+		catch( Exception e ) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static VoxelToArrayFeature randomVolume( Random r, int d, int w, int h, int labels ) {
+		double[][][] v = new double[d][w][h];
+		for ( int z=0; z < d; z++ )
+			for ( int x=0; x < w; x++ )
+				for ( int y=0; y < h; y++ ) v[z][x][y] = r.nextInt(labels);
+		return new VoxelToArrayFeature( v );
+	}
+
+	@Test
+	public void testDeclaredSymmetry() throws Exception {
+		Random r = new Random( 42L );
+		int symmetric = 0;
+		for ( String name : histogramMeasures ) {
+			Object m = Class.forName( "gov.nist.itl.versus.similarity3d.comparisons.measure.impl." + name + "Measure" ).newInstance();
+			assertTrue( name, m instanceof HistogramMeasure );
+			if ( !(m instanceof SymmetricMeasure) ) continue;
+			symmetric++;
+			HistogramEquation eq = ((HistogramMeasure)m).getEquation();
+			for ( int t=0; t < 30; t++ ) {
+				int len = 1 + r.nextInt(1024);
+				double[] P = randomHistogram( r, len, t % 2 == 0 ), Q = randomHistogram( r, len, t % 3 == 0 );
+				assertEquals( name, outcome(eq, P, Q), outcome(eq, Q, P) );
+			}
+		}
+		assertEquals( 47, symmetric );
+	}
+
+	@Test
+	public void testDeclaredVoxelSymmetry() throws Exception {
+		Random r = new Random( 42L );
+		for ( String name : voxelMeasures ) {
+			Object m = Class.forName( "gov.nist.itl.versus.similarity3d.comparisons.measure.impl." + name + "Measure" ).newInstance();
+			assertTrue( name, m instanceof SymmetricMeasure );
+			for ( int t=0; t < 10; t++ ) {
+				int d = 1 + r.nextInt(4), w = 1 + r.nextInt(8), h = 1 + r.nextInt(8), labels = 2 + r.nextInt(3);
+				VoxelToArrayFeature a = randomVolume( r, d, w, h, labels ), b = randomVolume( r, d, w, h, labels );
+				assertEquals( name, outcome((Measure)m, a, b), outcome((Measure)m, b, a) );
+			}
+		}
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( SymmetricMeasureTest.class );
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          VoxelSimilarity
+ * description   Checks each combined index against the single-valued voxel measure of the same name.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.measure.impl;
+
+import java.util.Random;
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.descriptor.impl.VoxelToArrayFeature;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.VoxelSimilarity;
+import org.junit.Test;
+
+/**
+ * VoxelSimilarityMeasure Test
+ */
+public class VoxelSimilarityMeasureTest extends junit.framework.TestCase
+{
+	public VoxelSimilarityMeasureTest(){}
+
+	private static VoxelToArrayFeature volume( Random r, int d, int w, int h, int labels )
+	{
+		double[][][] v = new double[d][w][h];
+		for (int z=0; z < d; z++)
+			for (int x=0; x < w; x++)
+				for (int y=0; y < h; y++)
+					v[z][x][y] = r.nextInt(labels);
+		return new VoxelToArrayFeature( v );
+	}
+
+	private static String outcome( Measure m, VoxelToArrayFeature f1, VoxelToArrayFeature f2 ) {
+		try {
+			return Long.toHexString( Double.doubleToLongBits( m.compare(f1, f2).getValue() ) );
+		}
+		catch( Exception e ) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static String outcome( VoxelSimilarity s, VoxelSimilarity.Index i ) {
+		try {
+			return Long.toHexString( Double.doubleToLongBits( s.get(i) ) );
+		}
+		catch( Exception e ) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	private static void compareAll( VoxelToArrayFeature f1, VoxelToArrayFeature f2 ) throws Exception
+	{
+		VoxelSimilarity s = new VoxelSimilarityMeasure().compare( f1, f2 );
+		assertEquals( outcome( new AdjustedRandIndexMeasure(), f1, f2 ),        outcome( s, VoxelSimilarity.Index.ADJUSTED_RAND ) );
+		assertEquals( outcome( new RandIndexMeasure(), f1, f2 ),                outcome( s, VoxelSimilarity.Index.RAND ) );
+		assertEquals( outcome( new TotalErrorRateEvaluationMeasure(), f1, f2 ), outcome( s, VoxelSimilarity.Index.TOTAL_ERROR_RATE_EVALUATION ) );
+		assertEquals( outcome( new TotalErrorRateTestMeasure(), f1, f2 ),       outcome( s, VoxelSimilarity.Index.TOTAL_ERROR_RATE_TEST ) );
+		assertEquals( outcome( new DiceVoxelMeasure(), f1, f2 ),                outcome( s, VoxelSimilarity.Index.DICE ) );
+		assertEquals( outcome( new JaccardVoxelMeasure(), f1, f2 ),             outcome( s, VoxelSimilarity.Index.JACCARD ) );
+		if ( s.getError( VoxelSimilarity.Index.ADJUSTED_RAND ) == null )
+			assertEquals( s.get( VoxelSimilarity.Index.ADJUSTED_RAND ), s.getValue() );
+		else
+			assertTrue( Double.isNaN( s.getValue() ) );
+	}
+
+	@Test
+	public void testIndices() throws Exception {
+		Random r = new Random( 11 );
+		for (int labels : new int[] { 2, 3, 12 })
+			for (int t=0; t < 5; t++)
+				compareAll( volume( r, 3, 9, 7, labels ), volume( r, 3, 9, 7, labels ) );
+	}
+
+	@Test
+	public void testEmptyMask() throws Exception {
+		Random r = new Random( 12 );
+		VoxelToArrayFeature empty = new VoxelToArrayFeature( new double[2][4][4] );
+		VoxelToArrayFeature other = volume( r, 2, 4, 4, 3 );
+		compareAll( other, empty );
+		compareAll( empty, empty );
+	}
+
+	@Test
+	public void testAdjustedRandFailureKeepsOtherIndices() throws Exception {
+		VoxelToArrayFeature empty = new VoxelToArrayFeature( new double[2][4][4] );
+		VoxelSimilarity s = new VoxelSimilarityMeasure().compare( empty, empty );
+		assertTrue( "undefined Adjusted Rand Index accepted", s.getError( VoxelSimilarity.Index.ADJUSTED_RAND ) != null );
+		try { s.get( VoxelSimilarity.Index.ADJUSTED_RAND ); fail( "undefined Adjusted Rand Index accepted" ); }
+		catch( Exception e ) {}
+		assertEquals( new RandIndexMeasure().compare( empty, empty ).getValue(), s.get( VoxelSimilarity.Index.RAND ) );
+		assertTrue( Double.isNaN( s.getValue() ) );
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( VoxelSimilarityMeasureTest.class );
+	}
+}
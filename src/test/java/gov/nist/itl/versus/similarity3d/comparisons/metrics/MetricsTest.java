@@ -0,0 +1,152 @@
+/**
+ * This software was developed at the National Institute of Standards and
+ * Technology by employees of the Federal Government in the course of
+ * their official duties. Pursuant to title 17 Section 105 of the United
+ * States Code this software is not subject to copyright protection and is
+ * in the public domain. This software is an experimental system. NIST assumes
+ * no responsibility whatsoever for its use by other parties, and makes no
+ * guarantees, expressed or implied, about its quality, reliability, or
+ * any other characteristic. We would appreciate acknowledgment if the
+ * software is used.
+ *
+ * name          Metrics
+ * description   Checks stage totals, counters, failures and latency percentiles, under concurrent updates.
+ * @version      1.0
+ *
+ */
+package gov.nist.itl.versus.similarity3d.comparisons.metrics;
+
+import java.util.Random;
+import org.junit.Test;
+
+import edu.illinois.ncsa.versus.measure.Measure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.BatchMeasureEvaluator;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.DiceVoxelMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.measure.impl.JaccardVoxelMeasure;
+import gov.nist.itl.versus.similarity3d.comparisons.metrics.MetricsRegistry.Stage;
+
+/**
+ * Metrics Test
+ */
+public class MetricsTest extends junit.framework.TestCase
+{
+	public MetricsTest(){}
+
+	@Test
+	public void testStagesCountersFailures() throws Exception {
+		Metrics m = new Metrics();
+		m.stage(Stage.DECODE, 100);
+		m.stage(Stage.DECODE, 50);
+		m.count(MetricsRegistry.FILES, 2);
+		m.count(MetricsRegistry.FILES, 1);
+		m.failure(new IllegalStateException());
+		m.failure(new IllegalStateException());
+		m.failure(new java.io.IOException());
+		assertEquals( 150L, m.getStageNanos().get("DECODE").longValue() );
+		assertEquals( 2L, m.getStageCounts().get("DECODE").longValue() );
+		assertEquals( 0L, m.getStageCounts().get("LOAD").longValue() );
+		assertEquals( 3L, m.getCounters().get("files").longValue() );
+		assertEquals( 2L, m.getFailures().get("IllegalStateException").longValue() );
+		assertEquals( 1L, m.getFailures().get("IOException").longValue() );
+		assertTrue( m.summary().contains("DECODE") );
+
+		m.reset();
+		assertEquals( 0L, m.getStageNanos().get("DECODE").longValue() );
+		assertTrue( m.getCounters().isEmpty() );
+		assertTrue( m.getFailures().isEmpty() );
+	}
+
+	@Test
+	public void testBuckets() throws Exception {
+		for (long v=0; v < 100000; v++) {
+			int b = Metrics.Histogram.bucket(v);
+			assertTrue( v <= Metrics.Histogram.upper(b) );
+			assertTrue( b == 0 || v > Metrics.Histogram.upper(b-1) );
+		}
+		long big = Long.MAX_VALUE;
+		assertEquals( big, Metrics.Histogram.upper(Metrics.Histogram.bucket(big)) );
+	}
+
+	@Test
+	public void testPercentiles() throws Exception {
+		Metrics m = new Metrics();
+		Random r = new Random( 19 );
+		long[] v = new long[10000];
+		for (int i=0; i < v.length; i++) { v[i] = 1000 + r.nextInt(1000000); m.measure("x", v[i]); }
+		java.util.Arrays.sort(v);
+		Metrics.Latency l = m.getMeasureLatencies().get("x");
+		assertEquals( v.length, l.getCount() );
+		assertEquals( v[v.length-1], l.getMaxNanos() );
+		long[] exact = { v[v.length/2 - 1], v[v.length*9/10 - 1], v[v.length*99/100 - 1] };
+		long[] got   = { l.getP50Nanos(), l.getP90Nanos(), l.getP99Nanos() };
+		for (int k=0; k < 3; k++) {
+			assertTrue( got[k] >= exact[k] );
+			assertTrue( got[k] <= exact[k] * 1.25 );
+		}
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws Exception {
+		final Metrics m = new Metrics();
+		final int perThread = 20000;
+		Thread[] t = new Thread[4];
+		for (int i=0; i < t.length; i++) {
+			t[i] = new Thread() {
+				public void run() {
+					for (int k=0; k < perThread; k++) {
+						m.stage(Stage.MEASURE, 3);
+						m.count(MetricsRegistry.PAIRS, 1);
+						m.measure("m" + (k % 3), k);
+					}
+				}
+			};
+			t[i].start();
+		}
+		for (Thread x : t) x.join();
+		long n = (long)t.length * perThread;
+		assertEquals( n, m.getStageCounts().get("MEASURE").longValue() );
+		assertEquals( 3 * n, m.getStageNanos().get("MEASURE").longValue() );
+		assertEquals( n, m.getCounters().get("pairs").longValue() );
+		long total = 0;
+		for (Metrics.Latency l : m.getMeasureLatencies().values()) total += l.getCount();
+		assertEquals( n, total );
+	}
+
+	@Test
+	public void testEvaluatorRecords() throws Exception {
+		Metrics m = new Metrics();
+		BatchMeasureEvaluator e = new BatchMeasureEvaluator(new Measure[] { new DiceVoxelMeasure() }, m);
+		BatchMeasureEvaluator.Result[] r = e.evaluate(null, null);		// unsupported descriptors
+		assertNotNull( r[0].error );
+		assertEquals( 1L, m.getMeasureLatencies().get(r[0].measure.getName()).getCount() );
+		assertEquals( 1L, m.getFailures().get(r[0].error.getClass().getSimpleName()).longValue() );
+		assertEquals( 1L, m.getStageCounts().get("MEASURE").longValue() );
+	}
+
+	@Test
+	public void testResultTimes() throws Exception {
+		final java.util.Map<String,Long> recorded = new java.util.HashMap<String,Long>();
+		MetricsRegistry m = new Metrics() {
+			public void measure(String measure, long nanos) { recorded.put(measure, nanos); }
+		};
+		BatchMeasureEvaluator e = new BatchMeasureEvaluator(new Measure[] { new DiceVoxelMeasure(), new JaccardVoxelMeasure() }, m);
+		BatchMeasureEvaluator.Result[] r = e.evaluate(null, null);
+		assertEquals( 2, recorded.size() );
+		for ( BatchMeasureEvaluator.Result x : r )
+			assertEquals( recorded.get(x.measure.getName()).longValue(), x.getNanos() );
+	}
+
+	@Test
+	public void testNone() throws Exception {
+		MetricsRegistry.NONE.stage(Stage.LOAD, 1);
+		MetricsRegistry.NONE.count(MetricsRegistry.FILES, 1);
+		MetricsRegistry.NONE.failure(new Exception());
+		MetricsRegistry.NONE.measure("x", 1);
+		assertEquals( "", MetricsRegistry.NONE.summary() );
+	}
+
+	public static void main( String[] args )
+	{
+		org.junit.runner.JUnitCore.runClasses( MetricsTest.class );
+	}
+}